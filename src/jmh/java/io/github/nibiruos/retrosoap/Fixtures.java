@@ -0,0 +1,157 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.MediaType;
+import org.xmlpull.mxp1_serializer.MXSerializer;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+import org.xmlpull.v1.XmlSerializer;
+
+import javax.inject.Provider;
+
+// Generated, self contained documents, so benchmarks don't need network
+// access.
+class Fixtures {
+    static final MediaType XML_MEDIA_TYPE = MediaType.parse("text/xml; charset=utf-8");
+    static final String ENVELOPE_NAMESPACE = SoapSpec.V_1_1.getEnvelopeNamespace();
+
+    private Fixtures() {
+    }
+
+    static Provider<XmlPullParser> pullParserProvider() {
+        final XmlPullParserFactory factory;
+        try {
+            factory = XmlPullParserFactory.newInstance();
+        } catch (XmlPullParserException e) {
+            throw new RuntimeException(e);
+        }
+        factory.setNamespaceAware(true);
+        return new Provider<XmlPullParser>() {
+            @Override
+            public XmlPullParser get() {
+                try {
+                    return factory.newPullParser();
+                } catch (XmlPullParserException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+    }
+
+    static Provider<XmlSerializer> serializerProvider() {
+        return new Provider<XmlSerializer>() {
+            @Override
+            public XmlSerializer get() {
+                return new MXSerializer();
+            }
+        };
+    }
+
+    // Body payload with the given number of rows. Namespaced rows carry
+    // prefixed elements and attributes declared on the Envelope.
+    static String payload(int rows, boolean namespaced) {
+        StringBuilder payload = new StringBuilder();
+        payload.append(namespaced
+                ? "<ns1:report>"
+                : "<report>");
+        for (int i = 0; i < rows; i++) {
+            if (namespaced) {
+                payload.append("<ns1:row ns2:id=\"").append(i)
+                        .append("\" ns2:kind=\"detail\"><ns1:name>Row number ").append(i)
+                        .append("</ns1:name><ns1:amount>").append(i * 31 % 1000)
+                        .append(".50</ns1:amount></ns1:row>");
+            } else {
+                payload.append("<row id=\"").append(i)
+                        .append("\"><name>Row number ").append(i)
+                        .append("</name><amount>").append(i * 31 % 1000)
+                        .append(".50</amount></row>");
+            }
+        }
+        payload.append(namespaced
+                ? "</ns1:report>"
+                : "</report>");
+        return payload.toString();
+    }
+
+    static String envelope(String payload) {
+        return "<soapenv:Envelope xmlns:soapenv=\"" + ENVELOPE_NAMESPACE + "\"" +
+                " xmlns:ns1=\"urn:retrosoap:report\" xmlns:ns2=\"urn:retrosoap:attributes\">" +
+                "<soapenv:Header/>" +
+                "<soapenv:Body>" +
+                payload +
+                "</soapenv:Body>" +
+                "</soapenv:Envelope>";
+    }
+
+    static String fault() {
+        return "<soapenv:Envelope xmlns:soapenv=\"" + ENVELOPE_NAMESPACE + "\">" +
+                "<soapenv:Body>" +
+                "<soapenv:Fault>" +
+                "<faultcode>soapenv:Server</faultcode>" +
+                "<faultstring>Report generation failed</faultstring>" +
+                "<detail><ns1:error xmlns:ns1=\"urn:retrosoap:report\">" +
+                "<ns1:code>1234</ns1:code>" +
+                "</ns1:error></detail>" +
+                "</soapenv:Fault>" +
+                "</soapenv:Body>" +
+                "</soapenv:Envelope>";
+    }
+
+    // WSDL with a large types section and the given number of operations,
+    // all of them bound to a single service port at the end of the document.
+    static String wsdl(int operations) {
+        StringBuilder wsdl = new StringBuilder();
+        wsdl.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<wsdl:definitions targetNamespace=\"urn:retrosoap:bench\"")
+                .append(" xmlns:tns=\"urn:retrosoap:bench\"")
+                .append(" xmlns:wsdl=\"http://schemas.xmlsoap.org/wsdl/\"")
+                .append(" xmlns:wsdlsoap=\"http://schemas.xmlsoap.org/wsdl/soap/\"")
+                .append(" xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\">")
+                .append("<wsdl:types>")
+                .append("<xsd:schema elementFormDefault=\"qualified\" targetNamespace=\"urn:retrosoap:bench\">");
+        for (int i = 0; i < operations; i++) {
+            for (String suffix : new String[]{"Request", "Response"}) {
+                wsdl.append("<xsd:element name=\"operation").append(i).append(suffix).append("\">")
+                        .append("<xsd:complexType><xsd:sequence>");
+                for (int field = 0; field < 10; field++) {
+                    wsdl.append("<xsd:element name=\"field").append(field)
+                            .append("\" type=\"xsd:string\" minOccurs=\"0\"/>");
+                }
+                wsdl.append("</xsd:sequence></xsd:complexType></xsd:element>");
+            }
+        }
+        wsdl.append("</xsd:schema></wsdl:types>");
+        for (int i = 0; i < operations; i++) {
+            for (String suffix : new String[]{"Request", "Response"}) {
+                wsdl.append("<wsdl:message name=\"operation").append(i).append(suffix).append("\">")
+                        .append("<wsdl:part element=\"tns:operation").append(i).append(suffix)
+                        .append("\" name=\"parameters\"/></wsdl:message>");
+            }
+        }
+        wsdl.append("<wsdl:portType name=\"BenchPortType\">");
+        for (int i = 0; i < operations; i++) {
+            wsdl.append("<wsdl:operation name=\"operation").append(i).append("\">")
+                    .append("<wsdl:input message=\"tns:operation").append(i).append("Request\"/>")
+                    .append("<wsdl:output message=\"tns:operation").append(i).append("Response\"/>")
+                    .append("</wsdl:operation>");
+        }
+        wsdl.append("</wsdl:portType>")
+                .append("<wsdl:binding name=\"BenchBinding\" type=\"tns:BenchPortType\">")
+                .append("<wsdlsoap:binding style=\"document\" transport=\"http://schemas.xmlsoap.org/soap/http\"/>");
+        for (int i = 0; i < operations; i++) {
+            wsdl.append("<wsdl:operation name=\"operation").append(i).append("\">")
+                    .append("<wsdlsoap:operation soapAction=\"urn:operation").append(i).append("\"/>")
+                    .append("<wsdl:input><wsdlsoap:body use=\"literal\"/></wsdl:input>")
+                    .append("<wsdl:output><wsdlsoap:body use=\"literal\"/></wsdl:output>")
+                    .append("</wsdl:operation>");
+        }
+        wsdl.append("</wsdl:binding>")
+                .append("<wsdl:service name=\"BenchService\">")
+                .append("<wsdl:port binding=\"tns:BenchBinding\" name=\"BenchPort\">")
+                .append("<wsdlsoap:address location=\"http://localhost/bench\"/>")
+                .append("</wsdl:port>")
+                .append("</wsdl:service>")
+                .append("</wsdl:definitions>");
+        return wsdl.toString();
+    }
+}
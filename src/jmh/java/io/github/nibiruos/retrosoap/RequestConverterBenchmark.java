@@ -0,0 +1,44 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.RequestBody;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import retrofit2.Converter;
+
+import java.io.IOException;
+
+import static io.github.nibiruos.retrosoap.Fixtures.XML_MEDIA_TYPE;
+
+@State(Scope.Benchmark)
+public class RequestConverterBenchmark {
+    @Param({"1", "100", "50000"})
+    public int rows;
+
+    private RequestConverter<byte[]> requestConverter;
+    private byte[] payload;
+
+    @Setup
+    public void setup() {
+        payload = Fixtures.payload(rows, false).getBytes();
+        requestConverter = new RequestConverter<>(new Converter<byte[], RequestBody>() {
+            @Override
+            public RequestBody convert(byte[] value) {
+                return RequestBody.create(XML_MEDIA_TYPE, value);
+            }
+        }, EnvelopeTemplate.create(Fixtures.serializerProvider(),
+                SoapSpec.V_1_1,
+                RetroSoapFactory.SOAP_ENVELOPE_PREFIX));
+    }
+
+    @Benchmark
+    public Buffer convert() throws IOException {
+        Buffer buffer = new Buffer();
+        requestConverter.convert(payload)
+                .writeTo(buffer);
+        return buffer;
+    }
+}
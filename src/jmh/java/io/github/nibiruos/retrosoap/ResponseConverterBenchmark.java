@@ -0,0 +1,69 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.ResponseBody;
+import okio.Okio;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import retrofit2.Converter;
+
+import java.io.IOException;
+
+import static io.github.nibiruos.retrosoap.Fixtures.XML_MEDIA_TYPE;
+
+@State(Scope.Benchmark)
+public class ResponseConverterBenchmark {
+    @Param({"1", "100", "50000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean namespaced;
+
+    @Param({"false", "true"})
+    public boolean streaming;
+
+    private ResponseConverter<Long> responseConverter;
+    private byte[] response;
+    private byte[] fault;
+
+    @Setup
+    public void setup() {
+        response = Fixtures.envelope(Fixtures.payload(rows, namespaced)).getBytes();
+        fault = Fixtures.fault().getBytes();
+        // Reads the whole unwrapped body, as a real body converter would
+        responseConverter = new ResponseConverter<>(new Converter<ResponseBody, Long>() {
+            @Override
+            public Long convert(ResponseBody value) throws IOException {
+                try {
+                    return value.source().readAll(Okio.blackhole());
+                } finally {
+                    value.close();
+                }
+            }
+        }, XmlPool.pullParsers(Fixtures.pullParserProvider(), 1),
+                XmlPool.serializers(Fixtures.serializerProvider(), 1),
+                SoapSpec.V_1_1,
+                streaming,
+                null,
+                true,
+                RetroSoapMetrics.NONE,
+                null);
+    }
+
+    @Benchmark
+    public Long convert() throws IOException {
+        return responseConverter.convert(ResponseBody.create(XML_MEDIA_TYPE, response));
+    }
+
+    @Benchmark
+    public SoapFault convertFault() throws IOException {
+        try {
+            responseConverter.convert(ResponseBody.create(XML_MEDIA_TYPE, fault));
+            throw new IllegalStateException("SoapFault expected");
+        } catch (SoapFault expected) {
+            return expected;
+        }
+    }
+}
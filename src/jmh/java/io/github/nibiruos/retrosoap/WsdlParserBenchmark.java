@@ -0,0 +1,38 @@
+package io.github.nibiruos.retrosoap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+
+@State(Scope.Benchmark)
+public class WsdlParserBenchmark {
+    @Param({"10", "500"})
+    public int operations;
+
+    private WsdlParser wsdlParser;
+    private byte[] wsdl;
+
+    @Setup
+    public void setup() {
+        wsdlParser = new WsdlParser(Fixtures.pullParserProvider());
+        wsdl = Fixtures.wsdl(operations).getBytes();
+    }
+
+    @Benchmark
+    public String findServicePortUrl() {
+        return wsdlParser.findServicePortUrl(new ByteArrayInputStream(wsdl),
+                SoapSpec.V_1_1,
+                "BenchService",
+                "BenchPort");
+    }
+
+    @Benchmark
+    public WsdlIndex parseIndex() {
+        return wsdlParser.parseIndex(new ByteArrayInputStream(wsdl),
+                SoapSpec.V_1_1);
+    }
+}
@@ -0,0 +1,536 @@
+package io.github.nibiruos.retrosoap;
+
+import org.simpleframework.xml.Attribute;
+import org.simpleframework.xml.Element;
+import org.simpleframework.xml.ElementList;
+import org.simpleframework.xml.Namespace;
+import org.simpleframework.xml.NamespaceList;
+import org.simpleframework.xml.Root;
+import org.simpleframework.xml.Text;
+import org.simpleframework.xml.Transient;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlSerializer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.xml.namespace.QName;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// XmlCodec for classes annotated for Simple XML. Annotations are scanned
+// once per class, and the resulting bindings are cached, so reading only
+// walks the parser events and sets fields. Supports @Root, @Namespace,
+// @Attribute, @Element, @Text and @ElementList fields holding strings,
+// primitives, enums, big numbers or other annotated classes. Any other
+// Simple XML annotation is rejected when the class is scanned, rather
+// than ignored.
+class AnnotatedCodec<T> implements XmlCodec<T> {
+    private static final ConcurrentMap<Class<?>, AnnotatedCodec<?>> CODECS = new ConcurrentHashMap<>();
+    private static final String SIMPLE_XML_PACKAGE = "org.simpleframework.xml";
+    private static final List<Class<? extends Annotation>> CLASS_ANNOTATIONS = Arrays.asList(
+            Root.class, Namespace.class, NamespaceList.class);
+    private static final List<Class<? extends Annotation>> FIELD_ANNOTATIONS = Arrays.asList(
+            Attribute.class, Element.class, ElementList.class, Text.class, Namespace.class, Transient.class);
+    private static final List<Class<? extends Annotation>> METHOD_ANNOTATIONS = Collections.emptyList();
+
+    private final Constructor<T> constructor;
+    private final String name;
+    private final Namespace namespace;
+    private final boolean strict;
+    private final List<Binding> attributes = new ArrayList<>();
+    private final List<Binding> elements = new ArrayList<>();
+    // Elements with and without @Namespace
+    private final Map<QName, Binding> qualifiedElements = new HashMap<>();
+    private final Map<String, Binding> elementsByName = new HashMap<>();
+    private Binding text;
+
+    private AnnotatedCodec(Class<T> type) {
+        try {
+            constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("No default constructor for " + type.getName(), e);
+        }
+        Root root = type.getAnnotation(Root.class);
+        name = rootName(type);
+        namespace = type.getAnnotation(Namespace.class);
+        strict = root == null || root.strict();
+        for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+            checkAnnotations(current.getAnnotations(), CLASS_ANNOTATIONS, current);
+            for (Method method : current.getDeclaredMethods()) {
+                checkAnnotations(method.getAnnotations(), METHOD_ANNOTATIONS, method);
+            }
+            for (Field field : current.getDeclaredFields()) {
+                bind(field);
+            }
+        }
+    }
+
+    static boolean isAnnotated(Type type) {
+        return type instanceof Class && ((Class<?>) type).isAnnotationPresent(Root.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> AnnotatedCodec<T> of(Class<T> type) {
+        AnnotatedCodec<?> codec = CODECS.get(type);
+        if (codec == null) {
+            codec = new AnnotatedCodec<>(type);
+            AnnotatedCodec<?> existing = CODECS.putIfAbsent(type, codec);
+            if (existing != null) {
+                codec = existing;
+            }
+        }
+        return (AnnotatedCodec<T>) codec;
+    }
+
+    @Override
+    public T read(@Nonnull XmlPullParser parser) throws IOException, XmlPullParserException {
+        T value = newInstance();
+        for (Binding attribute : attributes) {
+            String attributeText = attributeValue(parser, attribute.name);
+            if (attributeText != null) {
+                attribute.set(value, parse(attribute.type, attributeText));
+            } else if (attribute.required) {
+                throw new IOException("Attribute " + attribute.name + " not found in " + name);
+            }
+        }
+
+        StringBuilder content = text != null
+                ? new StringBuilder()
+                : null;
+        Map<Binding, Collection<Object>> lists = new HashMap<>();
+        List<Binding> found = new ArrayList<>();
+        int depth = parser.getDepth();
+        String parentNamespace = parser.getNamespace();
+        for (int event = parser.next();
+             event != XmlPullParser.END_TAG || parser.getDepth() != depth;
+             event = parser.next()) {
+            if (event == XmlPullParser.START_TAG) {
+                Binding element = element(parser, parentNamespace);
+                if (element == null) {
+                    if (strict) {
+                        throw new IOException("Unexpected element " + parser.getName() + " in " + name);
+                    }
+                    skip(parser);
+                } else if (element.list) {
+                    Collection<Object> list = lists.get(element);
+                    if (list == null) {
+                        list = newCollection(element);
+                        lists.put(element, list);
+                    }
+                    if (element.inline) {
+                        list.add(readValue(element.type, parser));
+                    } else {
+                        readEntries(element, parser, list);
+                    }
+                    found.add(element);
+                } else {
+                    element.set(value, readValue(element.type, parser));
+                    found.add(element);
+                }
+            } else if (content != null
+                    && (event == XmlPullParser.TEXT || event == XmlPullParser.ENTITY_REF)) {
+                content.append(parser.getText());
+            } else if (event == XmlPullParser.END_DOCUMENT) {
+                throw new IOException(name + " end tag not found.");
+            }
+        }
+
+        for (Map.Entry<Binding, Collection<Object>> list : lists.entrySet()) {
+            list.getKey().set(value, list.getValue());
+        }
+        for (Binding element : elements) {
+            if (element.required && !found.contains(element)) {
+                throw new IOException("Element " + element.name + " not found in " + name);
+            }
+        }
+        if (text != null && (content.length() > 0 || !text.required)) {
+            text.set(value, parse(text.type, content.toString()));
+        }
+        return value;
+    }
+
+    @Override
+    public void write(@Nonnull T value, @Nonnull XmlSerializer serializer) throws IOException {
+        write(value, serializer, name, namespace, "");
+    }
+
+    private void write(T value,
+                       XmlSerializer serializer,
+                       String elementName,
+                       @Nullable Namespace elementNamespace,
+                       String defaultNamespace) throws IOException {
+        if (elementNamespace == null) {
+            elementNamespace = namespace;
+        }
+        String tagNamespace = startTag(serializer, elementName, elementNamespace, defaultNamespace);
+        if (elementNamespace != null && elementNamespace.prefix().isEmpty()) {
+            defaultNamespace = elementNamespace.reference();
+        }
+        for (Binding attribute : attributes) {
+            Object attributeValue = attribute.get(value);
+            if (attributeValue != null) {
+                serializer.attribute("", attribute.name, format(attributeValue));
+            }
+        }
+        if (text != null) {
+            Object textValue = text.get(value);
+            if (textValue != null) {
+                writeText(serializer, format(textValue), text.data);
+            }
+        }
+        for (Binding element : elements) {
+            Object elementValue = element.get(value);
+            if (elementValue == null) {
+                continue;
+            }
+            if (!element.list) {
+                writeValue(serializer, element, element.name, elementValue, defaultNamespace);
+                continue;
+            }
+            String listNamespace = null;
+            if (!element.inline) {
+                listNamespace = startTag(serializer, element.name, element.namespace, defaultNamespace);
+            }
+            for (Object entry : (Collection<?>) elementValue) {
+                if (entry != null) {
+                    writeValue(serializer, element, element.entry, entry, defaultNamespace);
+                }
+            }
+            if (!element.inline) {
+                serializer.endTag(listNamespace, element.name);
+            }
+        }
+        serializer.endTag(tagNamespace, elementName);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeValue(XmlSerializer serializer,
+                                   Binding element,
+                                   String elementName,
+                                   Object value,
+                                   String defaultNamespace) throws IOException {
+        if (isSimple(element.type)) {
+            String tagNamespace = startTag(serializer, elementName, element.namespace, defaultNamespace);
+            writeText(serializer, format(value), element.data);
+            serializer.endTag(tagNamespace, elementName);
+        } else {
+            ((AnnotatedCodec<Object>) of(value.getClass()))
+                    .write(value, serializer, elementName, element.namespace, defaultNamespace);
+        }
+    }
+
+    // Namespaces are declared on every element that sets one
+    private static String startTag(XmlSerializer serializer,
+                                   String elementName,
+                                   @Nullable Namespace elementNamespace,
+                                   String defaultNamespace) throws IOException {
+        if (elementNamespace == null) {
+            serializer.startTag(defaultNamespace, elementName);
+            return defaultNamespace;
+        }
+        serializer.setPrefix(elementNamespace.prefix(), elementNamespace.reference());
+        serializer.startTag(elementNamespace.reference(), elementName);
+        return elementNamespace.reference();
+    }
+
+    private static void writeText(XmlSerializer serializer, String text, boolean data) throws IOException {
+        if (data) {
+            serializer.cdsect(text);
+        } else {
+            serializer.text(text);
+        }
+    }
+
+    private void bind(Field field) {
+        if (Modifier.isStatic(field.getModifiers())) {
+            return;
+        }
+        checkAnnotations(field.getAnnotations(), FIELD_ANNOTATIONS, field);
+        Attribute attribute = field.getAnnotation(Attribute.class);
+        Element element = field.getAnnotation(Element.class);
+        ElementList elementList = field.getAnnotation(ElementList.class);
+        Text textAnnotation = field.getAnnotation(Text.class);
+        Namespace fieldNamespace = field.getAnnotation(Namespace.class);
+        if (attribute != null) {
+            attributes.add(new Binding(field,
+                    name(attribute.name(), field),
+                    field.getType(),
+                    attribute.required()));
+        } else if (element != null) {
+            Binding binding = new Binding(field,
+                    name(element.name(), field),
+                    element.type() != void.class
+                            ? element.type()
+                            : field.getType(),
+                    element.required());
+            binding.data = element.data();
+            binding.namespace = fieldNamespace;
+            addElement(binding, binding.name);
+        } else if (elementList != null) {
+            Class<?> entryType = elementList.type() != void.class
+                    ? elementList.type()
+                    : entryType(field);
+            Binding binding = new Binding(field,
+                    name(elementList.name(), field),
+                    entryType,
+                    elementList.required());
+            binding.list = true;
+            binding.inline = elementList.inline();
+            binding.data = elementList.data();
+            binding.namespace = fieldNamespace;
+            binding.entry = !elementList.entry().isEmpty()
+                    ? elementList.entry()
+                    : rootName(entryType);
+            addElement(binding, binding.inline
+                    ? binding.entry
+                    : binding.name);
+        } else if (textAnnotation != null) {
+            text = new Binding(field, null, field.getType(), textAnnotation.required());
+            text.data = textAnnotation.data();
+        }
+    }
+
+    // Arrays, maps, unions, paths, converters, defaults and annotated
+    // methods would change the binding
+    private static void checkAnnotations(Annotation[] annotations,
+                                         List<Class<? extends Annotation>> supported,
+                                         Object annotated) {
+        for (Annotation annotation : annotations) {
+            Class<? extends Annotation> annotationType = annotation.annotationType();
+            if (annotationType.getName().startsWith(SIMPLE_XML_PACKAGE) && !supported.contains(annotationType)) {
+                throw new IllegalArgumentException("Unsupported annotation @" + annotationType.getSimpleName()
+                        + " in " + annotated);
+            }
+        }
+    }
+
+    private void addElement(Binding binding, String elementName) {
+        elements.add(binding);
+        if (binding.namespace != null) {
+            qualifiedElements.put(new QName(binding.namespace.reference(), elementName), binding);
+        } else {
+            elementsByName.put(elementName, binding);
+        }
+    }
+
+    @Nullable
+    private Binding element(XmlPullParser parser, String parentNamespace) {
+        Binding element = qualifiedElements.get(new QName(parser.getNamespace(), parser.getName()));
+        return element == null && inheritsNamespace(parser, parentNamespace)
+                ? elementsByName.get(parser.getName())
+                : element;
+    }
+
+    // Elements without @Namespace are either in the default namespace in
+    // scope or, for qualified documents, in the enclosing element one
+    private static boolean inheritsNamespace(XmlPullParser parser, String parentNamespace) {
+        String defaultNamespace = parser.getNamespace(null);
+        return parser.getNamespace().equals(parentNamespace)
+                || parser.getNamespace().equals(defaultNamespace != null ? defaultNamespace : "");
+    }
+
+    private T newInstance() throws IOException {
+        try {
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Can not create " + constructor.getDeclaringClass().getName(), e);
+        }
+    }
+
+    private static Object readValue(Class<?> type, XmlPullParser parser) throws IOException, XmlPullParserException {
+        return isSimple(type)
+                ? parse(type, parser.nextText())
+                : of(type).read(parser);
+    }
+
+    // Parser is left at the list end tag
+    private static void readEntries(Binding list,
+                                    XmlPullParser parser,
+                                    Collection<Object> entries) throws IOException, XmlPullParserException {
+        int depth = parser.getDepth();
+        String listNamespace = parser.getNamespace();
+        for (int event = parser.next();
+             event != XmlPullParser.END_TAG || parser.getDepth() != depth;
+             event = parser.next()) {
+            if (event == XmlPullParser.START_TAG) {
+                boolean inNamespace = list.namespace != null
+                        ? list.namespace.reference().equals(parser.getNamespace())
+                        : inheritsNamespace(parser, listNamespace);
+                if (inNamespace && list.entry.equals(parser.getName())) {
+                    entries.add(readValue(list.type, parser));
+                } else {
+                    skip(parser);
+                }
+            } else if (event == XmlPullParser.END_DOCUMENT) {
+                throw new IOException(list.name + " end tag not found.");
+            }
+        }
+    }
+
+    private static void skip(XmlPullParser parser) throws IOException, XmlPullParserException {
+        int depth = parser.getDepth();
+        int event;
+        do {
+            event = parser.next();
+        } while (!(event == XmlPullParser.END_TAG && parser.getDepth() == depth)
+                && event != XmlPullParser.END_DOCUMENT);
+    }
+
+    @Nullable
+    private static String attributeValue(XmlPullParser parser, String attributeName) {
+        for (int i = 0; i < parser.getAttributeCount(); i++) {
+            if (attributeName.equals(parser.getAttributeName(i))) {
+                return parser.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    private static Collection<Object> newCollection(Binding list) throws IOException {
+        Class<?> type = list.field.getType();
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            return new ArrayList<>();
+        }
+        try {
+            @SuppressWarnings("unchecked")
+            Collection<Object> collection = (Collection<Object>) type.getDeclaredConstructor().newInstance();
+            return collection;
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Can not create " + type.getName(), e);
+        }
+    }
+
+    private static Class<?> entryType(Field field) {
+        Type type = field.getGenericType();
+        if (type instanceof ParameterizedType) {
+            Type argument = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (argument instanceof Class) {
+                return (Class<?>) argument;
+            }
+        }
+        throw new IllegalArgumentException("Unknown entry type for field " + field);
+    }
+
+    private static boolean isSimple(Class<?> type) {
+        return type.isPrimitive()
+                || type == String.class
+                || Number.class.isAssignableFrom(type)
+                || type == Boolean.class
+                || type == Character.class
+                || type.isEnum();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object parse(Class<?> type, String text) throws IOException {
+        try {
+            if (type == String.class) {
+                return text;
+            } else if (type == int.class || type == Integer.class) {
+                return Integer.valueOf(text.trim());
+            } else if (type == long.class || type == Long.class) {
+                return Long.valueOf(text.trim());
+            } else if (type == boolean.class || type == Boolean.class) {
+                return Boolean.valueOf(text.trim());
+            } else if (type == double.class || type == Double.class) {
+                return Double.valueOf(text.trim());
+            } else if (type == float.class || type == Float.class) {
+                return Float.valueOf(text.trim());
+            } else if (type == short.class || type == Short.class) {
+                return Short.valueOf(text.trim());
+            } else if (type == byte.class || type == Byte.class) {
+                return Byte.valueOf(text.trim());
+            } else if (type == char.class || type == Character.class) {
+                return text.charAt(0);
+            } else if (type == BigDecimal.class) {
+                return new BigDecimal(text.trim());
+            } else if (type == BigInteger.class) {
+                return new BigInteger(text.trim());
+            } else if (type.isEnum()) {
+                return Enum.valueOf((Class<Enum>) type, text.trim());
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Invalid " + type.getSimpleName() + " value: " + text, e);
+        }
+        throw new IllegalArgumentException("Unsupported type " + type.getName());
+    }
+
+    private static String format(Object value) {
+        return value instanceof Enum
+                ? ((Enum<?>) value).name()
+                : value.toString();
+    }
+
+    private static String rootName(Class<?> type) {
+        Root root = type.getAnnotation(Root.class);
+        return root != null && !root.name().isEmpty()
+                ? root.name()
+                : decapitalize(type.getSimpleName());
+    }
+
+    private static String name(String annotated, Field field) {
+        return !annotated.isEmpty()
+                ? annotated
+                : field.getName();
+    }
+
+    private static String decapitalize(String name) {
+        return name.isEmpty()
+                ? name
+                : Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static class Binding {
+        private final Field field;
+        private final String name;
+        private final Class<?> type;
+        private final boolean required;
+        private Namespace namespace;
+        private boolean data;
+        private boolean list;
+        private boolean inline;
+        private String entry;
+
+        Binding(Field field, String name, Class<?> type, boolean required) {
+            this.field = field;
+            this.name = name;
+            this.type = type;
+            this.required = required;
+            field.setAccessible(true);
+        }
+
+        Object get(Object target) throws IOException {
+            try {
+                return field.get(target);
+            } catch (IllegalAccessException e) {
+                throw new IOException(e);
+            }
+        }
+
+        void set(Object target, Object value) throws IOException {
+            try {
+                field.set(target, value);
+            } catch (IllegalAccessException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
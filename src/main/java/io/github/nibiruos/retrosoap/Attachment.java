@@ -0,0 +1,132 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static java.util.Objects.requireNonNull;
+
+// Binary part of an MTOM message. The body refers to it with an
+// xop:Include element whose href is getHref().
+public abstract class Attachment {
+    public static final String XOP_NAMESPACE = "http://www.w3.org/2004/08/xop/include";
+    public static final String XOP_INCLUDE_TAG = "Include";
+
+    private final String contentId;
+    private final MediaType contentType;
+
+    private Attachment(String contentId, MediaType contentType) {
+        this.contentId = requireNonNull(contentId);
+        this.contentType = requireNonNull(contentType);
+    }
+
+    // File contents are read when the request is written, so the request
+    // can be retried
+    public static Attachment create(@Nonnull String contentId,
+                                    @Nonnull MediaType contentType,
+                                    @Nonnull final File file) {
+        requireNonNull(file);
+        return new Attachment(contentId, contentType) {
+            @Override
+            public long contentLength() {
+                return file.length();
+            }
+
+            @Override
+            public Source source() throws IOException {
+                return Okio.source(file);
+            }
+        };
+    }
+
+    // The stream is read once, when the request is written, and closed
+    // afterwards. Requests with stream attachments can not be retried.
+    public static Attachment create(@Nonnull String contentId,
+                                    @Nonnull MediaType contentType,
+                                    @Nonnull final InputStream input) {
+        requireNonNull(input);
+        return new Attachment(contentId, contentType) {
+            @Override
+            public long contentLength() {
+                return -1;
+            }
+
+            @Override
+            public Source source() {
+                return Okio.source(input);
+            }
+        };
+    }
+
+    // Response attachments, streamed from the response
+    static Attachment create(String contentId,
+                             MediaType contentType,
+                             final Source content) {
+        return new Attachment(contentId, contentType) {
+            @Override
+            public long contentLength() {
+                return -1;
+            }
+
+            @Override
+            public Source source() {
+                return content;
+            }
+        };
+    }
+
+    public String getContentId() {
+        return contentId;
+    }
+
+    public MediaType getContentType() {
+        return contentType;
+    }
+
+    public String getHref() {
+        return "cid:" + contentId;
+    }
+
+    // -1 if unknown
+    public abstract long contentLength();
+
+    // Attachment contents. Response attachments can only be read once.
+    public abstract Source source() throws IOException;
+
+    public InputStream byteStream() throws IOException {
+        return Okio.buffer(source()).inputStream();
+    }
+
+    RequestBody toRequestBody() {
+        return new RequestBody() {
+            @Override
+            @Nullable
+            public MediaType contentType() {
+                return contentType;
+            }
+
+            @Override
+            public long contentLength() {
+                return Attachment.this.contentLength();
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                Source source = source();
+                try {
+                    sink.writeAll(source);
+                } finally {
+                    source.close();
+                }
+            }
+        };
+    }
+}
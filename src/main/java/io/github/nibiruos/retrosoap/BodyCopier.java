@@ -0,0 +1,147 @@
+package io.github.nibiruos.retrosoap;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlSerializer;
+
+import java.io.IOException;
+
+// Copies parser events to a serializer. Namespace declarations are only
+// registered when the parser reports new ones for the current depth.
+// Prefixes bound outside the copied fragment are declared on the first
+// element that uses them, and remembered until that element ends, so
+// descendants do not declare them again.
+class BodyCopier {
+    private static final String XML_PREFIX = "xml";
+    private static final String XMLNS_PREFIX = "xmlns";
+
+    private final ParserAdapter parser;
+    private final XmlSerializer serializer;
+    private final int parentDepth;
+    private int fragmentStart = -1;
+    // Inherited prefixes declared so far, and the depth of the element
+    // declaring them, innermost last
+    private String[] prefixes = new String[8];
+    private int[] depths = new int[8];
+    private int declared;
+
+    BodyCopier(ParserAdapter parser,
+               XmlSerializer serializer,
+               int parentDepth) {
+        this.parser = parser;
+        this.serializer = serializer;
+        this.parentDepth = parentDepth;
+    }
+
+    void copyEvent() throws IOException {
+        switch (parser.getEventType()) {
+            case XmlPullParser.START_TAG:
+                if (fragmentStart < 0) {
+                    fragmentStart = parser.getNamespaceCount(parentDepth);
+                }
+                int depth = parser.getDepth();
+                while (declared > 0 && depths[declared - 1] >= depth) {
+                    declared--;
+                }
+                int namespaceCount = parser.getNamespaceCount(depth);
+                for (int i = parser.getNamespaceCount(depth - 1); i < namespaceCount; i++) {
+                    registerPrefix(parser.getNamespacePrefix(i),
+                            parser.getNamespaceUri(i));
+                }
+                declareInherited(parser.getPrefix(),
+                        parser.getNamespace(),
+                        depth,
+                        namespaceCount);
+                int attributeCount = parser.getAttributeCount();
+                for (int i = 0; i < attributeCount; i++) {
+                    declareInherited(parser.getAttributePrefix(i),
+                            parser.getAttributeNamespace(i),
+                            depth,
+                            namespaceCount);
+                }
+                serializer.startTag(lookupNamespace(parser),
+                        parser.getName());
+                for (int i = 0; i < attributeCount; i++) {
+                    serializer.attribute(lookupNamespace(parser.getAttributePrefix(i),
+                            parser.getAttributeNamespace(i),
+                            parser),
+                            parser.getAttributeName(i),
+                            parser.getAttributeValue(i));
+                }
+                break;
+            case XmlPullParser.END_TAG:
+                serializer.endTag(lookupNamespace(parser),
+                        parser.getName());
+                break;
+            default:
+                serializer.text(parser.getText());
+        }
+    }
+
+    private void declareInherited(String prefix,
+                                  String namespace,
+                                  int depth,
+                                  int namespaceCount) throws IOException {
+        if (namespace == null || prefix == null && namespace.isEmpty()) {
+            return;
+        }
+        prefix = prefixOf(prefix);
+        // Bound inside the fragment, so already registered
+        for (int i = namespaceCount - 1; i >= fragmentStart; i--) {
+            if (prefix.equals(prefixOf(parser.getNamespacePrefix(i)))) {
+                return;
+            }
+        }
+        for (int i = 0; i < declared; i++) {
+            if (prefixes[i].equals(prefix)) {
+                return;
+            }
+        }
+        if (declared == prefixes.length) {
+            grow();
+        }
+        prefixes[declared] = prefix;
+        depths[declared] = depth;
+        declared++;
+        registerPrefix(prefix, namespace);
+    }
+
+    private void grow() {
+        String[] newPrefixes = new String[prefixes.length * 2];
+        System.arraycopy(prefixes, 0, newPrefixes, 0, prefixes.length);
+        prefixes = newPrefixes;
+        int[] newDepths = new int[depths.length * 2];
+        System.arraycopy(depths, 0, newDepths, 0, depths.length);
+        depths = newDepths;
+    }
+
+    private void registerPrefix(String prefix,
+                                String namespace) throws IOException {
+        prefix = prefixOf(prefix);
+        if (namespace != null
+                && !XML_PREFIX.equals(prefix)
+                && !XMLNS_PREFIX.equals(prefix)) {
+            serializer.setPrefix(prefix, namespace);
+        }
+    }
+
+    // Default namespace declarations have no prefix
+    private static String prefixOf(String prefix) {
+        return prefix != null
+                ? prefix
+                : "";
+    }
+
+    private static String lookupNamespace(String prefix,
+                                          String namespace,
+                                          ParserAdapter parser) {
+        return namespace != null
+                ? namespace
+                : parser.getNamespace(prefix);
+    }
+
+    private static String lookupNamespace(ParserAdapter parser) {
+        return lookupNamespace(parser.getPrefix(),
+                parser.getNamespace(),
+                parser);
+    }
+}
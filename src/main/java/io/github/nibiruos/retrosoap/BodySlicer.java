@@ -0,0 +1,224 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Okio;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Extracts the Body contents of a buffered SOAP response as a slice of
+// the original bytes, so they don't need to be serialized again.
+class BodySlicer {
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private BodySlicer() {
+    }
+
+    // Parser must be positioned at the first Body child. Returns null if
+    // the slice can not be safely located, so caller should fall back to
+    // copying the Body contents.
+    @Nullable
+    static ResponseBody slice(byte[] document,
+                              ParserAdapter parser,
+                              String bodyName,
+                              @Nullable MediaType contentType) {
+        if (!isUtf8(parser.getInputEncoding(), contentType)) {
+            return null;
+        }
+        int bodyStart = findStartTag(document, 0, bodyName);
+        if (bodyStart == -1) {
+            return null;
+        }
+        int contentStart = findTagEnd(document, bodyStart);
+        if (contentStart == -1) {
+            return null;
+        }
+        int childStart = skipMisc(document, contentStart + 1);
+        String childName = qualifiedName(parser.getPrefix(), parser.getName());
+        if (childStart == -1
+                || !isTagName(document, childStart + 1, childName)) {
+            return null;
+        }
+        int bodyEnd = findEndTag(document, childStart, bodyName);
+        if (bodyEnd == -1) {
+            return null;
+        }
+
+        int childNameEnd = childStart + 1 + childName.length();
+        byte[] declarations = inheritedNamespaces(parser).getBytes(UTF_8);
+        InputStream content = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+                new ByteArrayInputStream(document,
+                        childStart,
+                        childNameEnd - childStart),
+                new ByteArrayInputStream(declarations),
+                new ByteArrayInputStream(document,
+                        childNameEnd,
+                        bodyEnd - childNameEnd))));
+        return ResponseBody.create(contentType,
+                bodyEnd - childStart + declarations.length,
+                Okio.buffer(Okio.source(content)));
+    }
+
+    static boolean isUtf8(@Nullable String encoding,
+                                  @Nullable MediaType contentType) {
+        Charset charset = contentType != null
+                ? contentType.charset()
+                : null;
+        return (encoding == null || UTF_8.name().equalsIgnoreCase(encoding))
+                && (charset == null || UTF_8.equals(charset));
+    }
+
+    private static String inheritedNamespaces(ParserAdapter parser) {
+        int depth = parser.getDepth();
+        int inherited = parser.getNamespaceCount(depth - 1);
+        Map<String, String> namespaces = new LinkedHashMap<>();
+        for (int i = 0; i < inherited; i++) {
+            namespaces.put(parser.getNamespacePrefix(i),
+                    parser.getNamespaceUri(i));
+        }
+        for (int i = inherited; i < parser.getNamespaceCount(depth); i++) {
+            namespaces.remove(parser.getNamespacePrefix(i));
+        }
+
+        StringBuilder declarations = new StringBuilder();
+        for (Map.Entry<String, String> namespace : namespaces.entrySet()) {
+            declarations.append(namespace.getKey() != null
+                    ? " xmlns:" + namespace.getKey()
+                    : " xmlns")
+                    .append("=\"");
+            escape(namespace.getValue(), declarations);
+            declarations.append('"');
+        }
+        return declarations.toString();
+    }
+
+    static void escape(String value, StringBuilder output) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    output.append("&amp;");
+                    break;
+                case '<':
+                    output.append("&lt;");
+                    break;
+                case '"':
+                    output.append("&quot;");
+                    break;
+                default:
+                    output.append(c);
+            }
+        }
+    }
+
+    static String qualifiedName(@Nullable String prefix, String name) {
+        return prefix != null
+                ? prefix + ":" + name
+                : name;
+    }
+
+    private static int findStartTag(byte[] document, int from, String name) {
+        for (int i = from; i < document.length - 1; i++) {
+            if (document[i] == '<' && isTagName(document, i + 1, name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int findEndTag(byte[] document, int from, String name) {
+        // Body is the last Envelope child, so its end tag is the last one
+        for (int i = document.length - 2; i >= from; i--) {
+            if (document[i] == '<'
+                    && document[i + 1] == '/'
+                    && isTagName(document, i + 2, name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int findTagEnd(byte[] document, int from) {
+        byte quote = 0;
+        for (int i = from; i < document.length; i++) {
+            byte b = document[i];
+            if (quote != 0) {
+                if (b == quote) {
+                    quote = 0;
+                }
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '>') {
+                return document[i - 1] != '/'
+                        ? i
+                        : -1;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipMisc(byte[] document, int from) {
+        int i = from;
+        while (i < document.length) {
+            byte b = document[i];
+            if (b == '<') {
+                if (startsWith(document, i, "<!--")) {
+                    i = indexOf(document, i + 4, "-->");
+                } else if (startsWith(document, i, "<?")) {
+                    i = indexOf(document, i + 2, "?>");
+                } else {
+                    return i;
+                }
+                if (i == -1) {
+                    return -1;
+                }
+            } else if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return -1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    static boolean isTagName(byte[] document, int from, String name) {
+        if (!startsWith(document, from, name)) {
+            return false;
+        }
+        int end = from + name.length();
+        if (end >= document.length) {
+            return false;
+        }
+        byte next = document[end];
+        return next == '>' || next == '/'
+                || next == ' ' || next == '\t' || next == '\r' || next == '\n';
+    }
+
+    static boolean startsWith(byte[] document, int from, String prefix) {
+        if (from + prefix.length() > document.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (document[from + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int indexOf(byte[] document, int from, String token) {
+        for (int i = from; i < document.length; i++) {
+            if (startsWith(document, i, token)) {
+                return i + token.length() - 1;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,727 @@
+package io.github.nibiruos.retrosoap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.xml.namespace.QName;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static java.util.Objects.requireNonNull;
+
+// Generates model classes and reflection-free XmlCodecs from the schemas
+// of a WSDL, for the types reachable from its top level elements. Each
+// element gets a class named after it, as the interfaces written by
+// ServiceGenerator expect, and a Codecs class registers their codecs in
+// an XmlCodecFactory.Builder. Unsupported schema constructs fail the
+// generation of the types using them.
+public class CodecGenerator {
+    static final String REGISTRY_NAME = "Codecs";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String CODEC_SUFFIX = "Codec";
+    private static final String TYPE_SUFFIX = "Type";
+    private static final String VALUE_PROPERTY = "value";
+    // Names the generated code refers to without qualifying them
+    private static final Set<String> RESERVED = new HashSet<>(Arrays.asList(
+            "ArrayList", "BigDecimal", "BigInteger", "Body", "Boolean", "Byte", "Call", "Class", "Double",
+            "Float", "Headers", "IOException", "IllegalArgumentException", "Integer", "List", "Long",
+            "Object", "Override", "POST", "Short", "SoapConstants", "String", "Void", "XmlCodec",
+            "XmlCodecFactory", "XmlCodecSupport", "XmlPullParser", "XmlPullParserException", "XmlSerializer",
+            REGISTRY_NAME));
+    private static final Map<String, Simple> BUILTIN_TYPES = new HashMap<>();
+
+    static {
+        for (String type : Arrays.asList("int", "unsignedShort")) {
+            BUILTIN_TYPES.put(type, Simple.INT);
+        }
+        for (String type : Arrays.asList("long", "unsignedInt")) {
+            BUILTIN_TYPES.put(type, Simple.LONG);
+        }
+        for (String type : Arrays.asList("short", "unsignedByte")) {
+            BUILTIN_TYPES.put(type, Simple.SHORT);
+        }
+        for (String type : Arrays.asList("integer", "nonNegativeInteger", "positiveInteger",
+                "nonPositiveInteger", "negativeInteger", "unsignedLong")) {
+            BUILTIN_TYPES.put(type, Simple.INTEGER);
+        }
+        BUILTIN_TYPES.put("byte", Simple.BYTE);
+        BUILTIN_TYPES.put("boolean", Simple.BOOLEAN);
+        BUILTIN_TYPES.put("float", Simple.FLOAT);
+        BUILTIN_TYPES.put("double", Simple.DOUBLE);
+        BUILTIN_TYPES.put("decimal", Simple.DECIMAL);
+        BUILTIN_TYPES.put("base64Binary", Simple.BASE64);
+        BUILTIN_TYPES.put("hexBinary", Simple.HEX);
+    }
+
+    private final String packageName;
+
+    public CodecGenerator(@Nonnull String packageName) {
+        this.packageName = requireNonNull(packageName);
+    }
+
+    // Class name of the model of a top level element, as generated
+    static String className(String elementName) {
+        String name = ServiceGenerator.typeName(elementName);
+        return RESERVED.contains(name)
+                ? name + "_"
+                : name;
+    }
+
+    // Writes the model classes, their codecs and the Codecs class, and
+    // returns the files written
+    public List<File> generate(@Nonnull WsdlSchema schema,
+                               @Nonnull File outputDirectory) throws IOException {
+        requireNonNull(outputDirectory);
+        File packageDirectory = new File(outputDirectory, packageName.replace('.', File.separatorChar));
+        if (!packageDirectory.isDirectory() && !packageDirectory.mkdirs()) {
+            throw new IOException("Can not create directory " + packageDirectory);
+        }
+        List<File> files = new ArrayList<>();
+        for (Map.Entry<String, String> source : generate(schema).entrySet()) {
+            File file = new File(packageDirectory, source.getKey() + ".java");
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), UTF_8)) {
+                writer.write(source.getValue());
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    // Sources by class name
+    public Map<String, String> generate(@Nonnull WsdlSchema schema) {
+        Model model = new Model(requireNonNull(schema));
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (ClassModel classModel : model.classes.values()) {
+            sources.put(classModel.name, modelSource(classModel));
+            sources.put(classModel.name + CODEC_SUFFIX, codecSource(classModel));
+        }
+        sources.put(REGISTRY_NAME, registrySource(model));
+        return sources;
+    }
+
+    private String modelSource(ClassModel model) {
+        StringBuilder source = header(model);
+        Set<String> imports = new TreeSet<>();
+        for (Property property : model.properties) {
+            imports.addAll(property.imports());
+            if (property.repeated) {
+                imports.add("java.util.ArrayList");
+                imports.add("java.util.List");
+            }
+        }
+        appendImports(source, imports);
+        source.append("public class ").append(model.name);
+        if (model.superclass != null) {
+            source.append(" extends ").append(model.superclass.name);
+        }
+        source.append(" {\n");
+        for (Property property : model.properties) {
+            source.append("    private ");
+            if (property.repeated) {
+                source.append("List<").append(property.javaType()).append("> ")
+                        .append(property.field)
+                        .append(" = new ArrayList<>();\n");
+            } else {
+                source.append(property.javaType()).append(' ').append(property.field).append(";\n");
+            }
+        }
+        for (Property property : model.properties) {
+            source.append('\n');
+            String type = property.repeated
+                    ? "List<" + property.javaType() + ">"
+                    : property.javaType();
+            source.append("    public ").append(type).append(" get").append(property.accessor).append("() {\n")
+                    .append("        return ").append(property.field).append(";\n")
+                    .append("    }\n");
+            if (!property.repeated) {
+                source.append('\n')
+                        .append("    public void set").append(property.accessor)
+                        .append('(').append(type).append(' ').append(property.field).append(") {\n")
+                        .append("        this.").append(property.field).append(" = ").append(property.field).append(";\n")
+                        .append("    }\n");
+            }
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private String codecSource(ClassModel model) {
+        List<Property> properties = model.allProperties();
+        StringBuilder source = header(model);
+        Set<String> imports = new TreeSet<>(Arrays.asList(
+                "io.github.nibiruos.retrosoap.XmlCodec",
+                "io.github.nibiruos.retrosoap.XmlCodecSupport",
+                "org.xmlpull.v1.XmlPullParser",
+                "org.xmlpull.v1.XmlPullParserException",
+                "org.xmlpull.v1.XmlSerializer",
+                "java.io.IOException"));
+        for (Property property : properties) {
+            imports.addAll(property.imports());
+        }
+        appendImports(source, imports);
+        String name = model.name;
+        String codec = name + CODEC_SUFFIX;
+        source.append("public class ").append(codec).append(" implements XmlCodec<").append(name).append("> {\n")
+                .append("    private final String namespace;\n")
+                .append("    private final String name;\n")
+                .append('\n');
+        if (model.element != null) {
+            source.append("    public ").append(codec).append("() {\n")
+                    .append("        this(").append(literal(model.element.getNamespaceURI()))
+                    .append(", ").append(literal(model.element.getLocalPart())).append(");\n")
+                    .append("    }\n")
+                    .append('\n');
+        }
+        source.append("    public ").append(codec).append("(String namespace, String name) {\n")
+                .append("        this.namespace = namespace;\n")
+                .append("        this.name = name;\n")
+                .append("    }\n")
+                .append('\n')
+                .append("    @Override\n")
+                .append("    public ").append(name).append(" read(XmlPullParser parser) throws IOException, XmlPullParserException {\n")
+                .append("        return readElement(parser);\n")
+                .append("    }\n")
+                .append('\n')
+                .append("    @Override\n")
+                .append("    public void write(").append(name).append(" value, XmlSerializer serializer) throws IOException {\n")
+                .append("        writeElement(value, namespace, name, serializer);\n")
+                .append("    }\n")
+                .append('\n')
+                .append("    static ").append(name).append(" readElement(XmlPullParser parser) throws IOException, XmlPullParserException {\n")
+                .append("        if (XmlCodecSupport.isNil(parser)) {\n")
+                .append("            XmlCodecSupport.skip(parser);\n")
+                .append("            return null;\n")
+                .append("        }\n")
+                .append("        ").append(name).append(" value = new ").append(name).append("();\n")
+                .append("        readContent(parser, value);\n")
+                .append("        return value;\n")
+                .append("    }\n")
+                .append('\n')
+                .append("    static void readContent(XmlPullParser parser, ").append(name)
+                .append(" value) throws IOException, XmlPullParserException {\n");
+        appendReadContent(source, model, properties);
+        source.append("    }\n")
+                .append('\n')
+                .append("    static void writeElement(").append(name)
+                .append(" value, String namespace, String name, XmlSerializer serializer) throws IOException {\n")
+                .append("        serializer.startTag(namespace, name);\n")
+                .append("        writeContent(value, serializer);\n")
+                .append("        serializer.endTag(namespace, name);\n")
+                .append("    }\n")
+                .append('\n')
+                .append("    static void writeContent(").append(name)
+                .append(" value, XmlSerializer serializer) throws IOException {\n");
+        appendWriteContent(source, model, properties);
+        source.append("    }\n")
+                .append("}\n");
+        return source.toString();
+    }
+
+    private static void appendReadContent(StringBuilder source, ClassModel model, List<Property> properties) {
+        if (model.delegate != null) {
+            source.append("        ").append(model.delegate.name).append(CODEC_SUFFIX)
+                    .append(".readContent(parser, value);\n");
+            return;
+        }
+        boolean text = false;
+        for (Property property : properties) {
+            text |= property.complex == null;
+        }
+        source.append("        try {\n");
+        if (text) {
+            source.append("            String text;\n");
+        }
+        Property value = null;
+        List<Property> elements = new ArrayList<>();
+        for (Property property : properties) {
+            if (property.kind == Kind.ATTRIBUTE) {
+                source.append("            text = XmlCodecSupport.attribute(parser, ")
+                        .append(literal(property.xmlName.getLocalPart())).append(");\n")
+                        .append("            if (text != null) {\n")
+                        .append("                value.set").append(property.accessor)
+                        .append('(').append(property.simple.parse("text")).append(");\n")
+                        .append("            }\n");
+            } else if (property.kind == Kind.VALUE) {
+                value = property;
+            } else {
+                elements.add(property);
+            }
+        }
+        if (value != null) {
+            source.append("            value.set").append(value.accessor)
+                    .append('(').append(value.simple.parse("parser.nextText()")).append(");\n");
+        } else {
+            source.append("            int depth = parser.getDepth();\n")
+                    .append("            while (XmlCodecSupport.nextElement(parser, depth)) {\n")
+                    .append("                ");
+            for (Property element : elements) {
+                source.append("if (XmlCodecSupport.isElement(parser, ")
+                        .append(literal(element.xmlName.getNamespaceURI())).append(", ")
+                        .append(literal(element.xmlName.getLocalPart())).append(")) {\n");
+                String read;
+                if (element.complex != null) {
+                    read = element.complex.name + CODEC_SUFFIX + ".readElement(parser)";
+                } else {
+                    source.append("                    text = XmlCodecSupport.readText(parser);\n");
+                    read = element.simple == Simple.STRING
+                            ? "text"
+                            : "text != null ? " + element.simple.parse("text") + " : null";
+                }
+                source.append("                    value.")
+                        .append(element.repeated ? "get" : "set").append(element.accessor)
+                        .append(element.repeated ? "().add(" : "(")
+                        .append(read).append(");\n")
+                        .append("                } else ");
+            }
+            source.append("{\n")
+                    .append("                    XmlCodecSupport.skip(parser);\n")
+                    .append("                }\n")
+                    .append("            }\n");
+        }
+        source.append("        } catch (IllegalArgumentException e) {\n")
+                .append("            throw new IOException(\"Invalid ").append(model.name).append(" content\", e);\n")
+                .append("        }\n");
+    }
+
+    private static void appendWriteContent(StringBuilder source, ClassModel model, List<Property> properties) {
+        if (model.delegate != null) {
+            source.append("        ").append(model.delegate.name).append(CODEC_SUFFIX)
+                    .append(".writeContent(value, serializer);\n");
+            return;
+        }
+        // Attributes go before any content
+        for (Kind kind : Kind.values()) {
+            for (Property property : properties) {
+                if (property.kind == kind) {
+                    appendWrite(source, property);
+                }
+            }
+        }
+    }
+
+    private static void appendWrite(StringBuilder source, Property property) {
+        String getter = "value.get" + property.accessor + "()";
+        String indent = "            ";
+        if (property.repeated) {
+            source.append("        for (").append(property.javaType()).append(" item : ").append(getter).append(") {\n")
+                    .append("            if (item != null) {\n");
+            getter = "item";
+            indent = "                ";
+        } else {
+            source.append("        if (").append(getter).append(" != null) {\n");
+        }
+        source.append(indent);
+        if (property.kind == Kind.ATTRIBUTE) {
+            source.append("serializer.attribute(\"\", ")
+                    .append(literal(property.xmlName.getLocalPart())).append(", ")
+                    .append(property.simple.format(getter)).append(");\n");
+        } else if (property.kind == Kind.VALUE) {
+            source.append("serializer.text(").append(property.simple.format(getter)).append(");\n");
+        } else if (property.complex != null) {
+            source.append(property.complex.name).append(CODEC_SUFFIX).append(".writeElement(").append(getter).append(", ")
+                    .append(literal(property.xmlName.getNamespaceURI())).append(", ")
+                    .append(literal(property.xmlName.getLocalPart())).append(", serializer);\n");
+        } else {
+            source.append("XmlCodecSupport.writeText(serializer, ")
+                    .append(literal(property.xmlName.getNamespaceURI())).append(", ")
+                    .append(literal(property.xmlName.getLocalPart())).append(", ")
+                    .append(property.simple.format(getter)).append(");\n");
+        }
+        if (property.repeated) {
+            source.append("            }\n");
+        }
+        source.append("        }\n");
+    }
+
+    private String registrySource(Model model) {
+        StringBuilder source = new StringBuilder();
+        source.append("// Generated by CodecGenerator. Do not edit.\n");
+        appendPackage(source);
+        appendImports(source, new TreeSet<>(Arrays.asList("io.github.nibiruos.retrosoap.XmlCodecFactory")));
+        source.append("public final class ").append(REGISTRY_NAME).append(" {\n")
+                .append("    private ").append(REGISTRY_NAME).append("() {\n")
+                .append("    }\n")
+                .append('\n')
+                .append("    // Codecs of the top level elements\n")
+                .append("    public static XmlCodecFactory.Builder register(XmlCodecFactory.Builder builder) {\n")
+                .append("        return builder");
+        for (ClassModel classModel : model.classes.values()) {
+            if (classModel.element != null) {
+                source.append("\n                .add(").append(classModel.name).append(".class, new ")
+                        .append(classModel.name).append(CODEC_SUFFIX).append("())");
+            }
+        }
+        source.append(";\n")
+                .append("    }\n")
+                .append("}\n");
+        return source.toString();
+    }
+
+    private StringBuilder header(ClassModel model) {
+        StringBuilder source = new StringBuilder();
+        source.append("// Generated by CodecGenerator from ")
+                .append(model.element != null ? "element " + model.element : "type " + model.typeName)
+                .append(". Do not edit.\n");
+        appendPackage(source);
+        return source;
+    }
+
+    private void appendPackage(StringBuilder source) {
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+    }
+
+    // Java imports go last, as in the rest of the code base
+    private static void appendImports(StringBuilder source, Set<String> imports) {
+        boolean java = false;
+        boolean any = false;
+        for (String name : imports) {
+            if (!name.startsWith("java.")) {
+                source.append("import ").append(name).append(";\n");
+                any = true;
+            }
+        }
+        for (String name : imports) {
+            if (name.startsWith("java.")) {
+                if (any && !java) {
+                    source.append('\n');
+                }
+                source.append("import ").append(name).append(";\n");
+                java = true;
+                any = true;
+            }
+        }
+        if (any) {
+            source.append('\n');
+        }
+    }
+
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c < ' ' || c > '~') {
+                literal.append(String.format("\\u%04x", (int) c));
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    // Classes for the top level elements and the types they use, built on
+    // demand so unused types do not need to be supported
+    private static class Model {
+        private final WsdlSchema schema;
+        private final Map<String, ClassModel> classes = new LinkedHashMap<>();
+        private final Map<QName, ClassModel> elementClasses = new HashMap<>();
+        private final Map<QName, ClassModel> typeClasses = new HashMap<>();
+
+        Model(WsdlSchema schema) {
+            this.schema = schema;
+            // Element classes are named first, so types give way to them
+            Map<String, WsdlSchema.Element> names = new LinkedHashMap<>();
+            for (WsdlSchema.Element element : schema.getElements()) {
+                String name = className(element.getName().getLocalPart());
+                if (names.put(name, element) != null) {
+                    throw new IllegalArgumentException("Elements with the same class name: " + name);
+                }
+            }
+            for (Map.Entry<String, WsdlSchema.Element> entry : names.entrySet()) {
+                WsdlSchema.Element element = entry.getValue();
+                ClassModel model;
+                QName type = element.getType();
+                WsdlSchema.ComplexType complexType = type != null
+                        ? schema.getComplexType(type)
+                        : null;
+                if (complexType != null
+                        && entry.getKey().equals(className(type.getLocalPart()))
+                        && !typeClasses.containsKey(type)) {
+                    // Element named after its type, both share the class
+                    model = new ClassModel(entry.getKey(), type);
+                    model.type = complexType;
+                    typeClasses.put(type, model);
+                } else {
+                    model = new ClassModel(entry.getKey(), null);
+                    model.type = element.getComplexType();
+                    if (complexType != null) {
+                        model.base = type;
+                    } else if (element.getComplexType() == null) {
+                        model.simpleValue = type;
+                    }
+                }
+                model.element = element.getName();
+                classes.put(model.name, model);
+                elementClasses.put(element.getName(), model);
+            }
+            for (ClassModel model : new ArrayList<>(classes.values())) {
+                fill(model);
+            }
+        }
+
+        private ClassModel typeClass(QName type) {
+            ClassModel model = typeClasses.get(type);
+            if (model != null) {
+                return model;
+            }
+            WsdlSchema.ComplexType complexType = schema.getComplexType(type);
+            if (complexType == null) {
+                throw new IllegalArgumentException("Unknown type " + type);
+            }
+            String name = className(type.getLocalPart());
+            if (classes.containsKey(name)) {
+                name += TYPE_SUFFIX;
+            }
+            model = new ClassModel(name, type);
+            model.type = complexType;
+            typeClasses.put(type, model);
+            add(model);
+            fill(model);
+            return model;
+        }
+
+        private void add(ClassModel model) {
+            if (classes.containsKey(model.name)) {
+                throw new IllegalArgumentException("Types with the same class name: " + model.name);
+            }
+            classes.put(model.name, model);
+        }
+
+        private void fill(ClassModel model) {
+            if (model.filled) {
+                return;
+            }
+            model.filled = true;
+            if (model.simpleValue != null || model.type == null && model.base == null) {
+                model.addProperty(new Property(VALUE_PROPERTY, Kind.VALUE, null, false, simple(model.simpleValue), null));
+                return;
+            }
+            if (model.type == null) {
+                // Element of a named type with another name
+                model.superclass = typeClass(model.base);
+                model.delegate = model.superclass;
+                return;
+            }
+            WsdlSchema.ComplexType type = model.type;
+            if (type.getUnsupported() != null) {
+                throw new IllegalArgumentException("Unsupported " + type.getUnsupported() + " in " + model.name);
+            }
+            if (type.getBase() != null) {
+                model.superclass = typeClass(type.getBase());
+            }
+            if (type.getSimpleContent() != null) {
+                if (schema.getComplexType(type.getSimpleContent()) != null) {
+                    model.superclass = typeClass(type.getSimpleContent());
+                } else {
+                    model.addProperty(new Property(VALUE_PROPERTY, Kind.VALUE, null, false,
+                            simple(type.getSimpleContent()), null));
+                }
+            }
+            for (WsdlSchema.Attribute attribute : type.getAttributes()) {
+                model.addProperty(new Property(attribute.getName(),
+                        Kind.ATTRIBUTE,
+                        new QName("", attribute.getName()),
+                        false,
+                        simple(attribute.getType()),
+                        null));
+            }
+            for (WsdlSchema.Element element : type.getElements()) {
+                model.addProperty(elementProperty(model, element));
+            }
+        }
+
+        private Property elementProperty(ClassModel owner, WsdlSchema.Element element) {
+            if (element.getRef() != null) {
+                ClassModel referenced = elementClasses.get(element.getRef());
+                if (referenced == null) {
+                    throw new IllegalArgumentException("Unknown element " + element.getRef());
+                }
+                return new Property(element.getRef().getLocalPart(),
+                        Kind.ELEMENT,
+                        element.getRef(),
+                        element.isRepeated(),
+                        null,
+                        referenced);
+            }
+            QName name = element.getName();
+            ClassModel complex = null;
+            Simple simple = null;
+            if (element.getComplexType() != null) {
+                complex = new ClassModel(owner.name + className(name.getLocalPart()), null);
+                complex.type = element.getComplexType();
+                add(complex);
+                fill(complex);
+            } else if (element.getType() != null && schema.getComplexType(element.getType()) != null) {
+                complex = typeClass(element.getType());
+            } else {
+                simple = simple(element.getType());
+            }
+            return new Property(name.getLocalPart(), Kind.ELEMENT, name, element.isRepeated(), simple, complex);
+        }
+
+        // Named simple types are bound as the builtin type they restrict
+        private Simple simple(@Nullable QName type) {
+            for (int i = 0; type != null && i < 32; i++) {
+                if (SchemaParser.XSD_NAMESPACE.equals(type.getNamespaceURI())) {
+                    Simple simple = BUILTIN_TYPES.get(type.getLocalPart());
+                    return simple != null
+                            ? simple
+                            : Simple.STRING;
+                }
+                WsdlSchema.SimpleType simpleType = schema.getSimpleType(type);
+                if (simpleType == null) {
+                    throw new IllegalArgumentException("Unknown simple type " + type);
+                }
+                type = simpleType.getBase();
+            }
+            return Simple.STRING;
+        }
+    }
+
+    private static class ClassModel {
+        private final String name;
+        private final QName typeName;
+        private final List<Property> properties = new ArrayList<>();
+        private final Set<String> fields = new HashSet<>();
+        private QName element;
+        private WsdlSchema.ComplexType type;
+        private QName base;
+        private QName simpleValue;
+        private ClassModel superclass;
+        private ClassModel delegate;
+        private boolean filled;
+
+        ClassModel(String name, @Nullable QName typeName) {
+            this.name = name;
+            this.typeName = typeName;
+        }
+
+        void addProperty(Property property) {
+            // Inherited fields keep their names
+            Set<String> taken = new HashSet<>(fields);
+            for (ClassModel current = superclass; current != null; current = current.superclass) {
+                taken.addAll(current.fields);
+            }
+            String field = property.field;
+            for (int i = 2; taken.contains(field); i++) {
+                field = property.field + i;
+            }
+            property.rename(field);
+            fields.add(field);
+            properties.add(property);
+        }
+
+        List<Property> allProperties() {
+            List<Property> all = new ArrayList<>();
+            if (superclass != null) {
+                all.addAll(superclass.allProperties());
+            }
+            all.addAll(properties);
+            return all;
+        }
+    }
+
+    // Attributes come first when writing
+    private enum Kind {
+        ATTRIBUTE, VALUE, ELEMENT
+    }
+
+    private static class Property {
+        private final Kind kind;
+        private final QName xmlName;
+        private final boolean repeated;
+        private final Simple simple;
+        private final ClassModel complex;
+        private String field;
+        private String accessor;
+
+        Property(String name,
+                 Kind kind,
+                 @Nullable QName xmlName,
+                 boolean repeated,
+                 @Nullable Simple simple,
+                 @Nullable ClassModel complex) {
+            this.kind = kind;
+            this.xmlName = xmlName;
+            this.repeated = repeated;
+            this.simple = simple;
+            this.complex = complex;
+            rename(ServiceGenerator.methodName(name));
+        }
+
+        void rename(String field) {
+            this.field = field;
+            String identifier = field.endsWith("_")
+                    ? field.substring(0, field.length() - 1)
+                    : field;
+            String accessor = Character.toUpperCase(identifier.charAt(0)) + identifier.substring(1);
+            // getClass is taken by Object
+            this.accessor = "Class".equals(accessor)
+                    ? accessor + "_"
+                    : accessor;
+        }
+
+        String javaType() {
+            return complex != null
+                    ? complex.name
+                    : simple.javaType;
+        }
+
+        List<String> imports() {
+            return simple != null && simple.javaImport != null
+                    ? Arrays.asList(simple.javaImport)
+                    : new ArrayList<String>();
+        }
+    }
+
+    // Java bindings of the builtin simple types; any other is a String
+    private enum Simple {
+        STRING("String", null, "%s", "%s"),
+        INT("Integer", null, "Integer.valueOf(%s.trim())", "String.valueOf(%s)"),
+        LONG("Long", null, "Long.valueOf(%s.trim())", "String.valueOf(%s)"),
+        SHORT("Short", null, "Short.valueOf(%s.trim())", "String.valueOf(%s)"),
+        BYTE("Byte", null, "Byte.valueOf(%s.trim())", "String.valueOf(%s)"),
+        BOOLEAN("Boolean", null, "XmlCodecSupport.parseBoolean(%s)", "String.valueOf(%s)"),
+        FLOAT("Float", null, "XmlCodecSupport.parseFloat(%s)", "XmlCodecSupport.formatFloat(%s)"),
+        DOUBLE("Double", null, "XmlCodecSupport.parseDouble(%s)", "XmlCodecSupport.formatDouble(%s)"),
+        DECIMAL("BigDecimal", "java.math.BigDecimal", "new BigDecimal(%s.trim())", "%s.toPlainString()"),
+        INTEGER("BigInteger", "java.math.BigInteger", "new BigInteger(%s.trim())", "%s.toString()"),
+        BASE64("byte[]", null, "XmlCodecSupport.parseBase64(%s)", "XmlCodecSupport.formatBase64(%s)"),
+        HEX("byte[]", null, "XmlCodecSupport.parseHex(%s)", "XmlCodecSupport.formatHex(%s)");
+
+        private final String javaType;
+        private final String javaImport;
+        private final String parse;
+        private final String format;
+
+        Simple(String javaType, @Nullable String javaImport, String parse, String format) {
+            this.javaType = javaType;
+            this.javaImport = javaImport;
+            this.parse = parse;
+            this.format = format;
+        }
+
+        String parse(String text) {
+            return String.format(parse, text);
+        }
+
+        String format(String value) {
+            return String.format(format, value);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.GzipSource;
+import okio.InflaterSource;
+import okio.Okio;
+import okio.Source;
+
+import java.io.IOException;
+import java.util.zip.Inflater;
+
+// Gzips request bodies at least as big as the threshold (or of unknown
+// size), and decodes gzip and deflate responses while they are read.
+// Add it after FaultCodeInterceptor, so faults are detected on the decoded
+// body.
+public class CompressionInterceptor implements Interceptor {
+    static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+    static final String CONTENT_LENGTH_HEADER = "Content-Length";
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+    private static final long DEFAULT_THRESHOLD = 1024;
+
+    private final long threshold;
+
+    public CompressionInterceptor() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    public CompressionInterceptor(long threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold can not be negative: " + threshold);
+        }
+        this.threshold = threshold;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Request.Builder builder = request.newBuilder();
+        RequestBody body = request.body();
+        if (body != null
+                && request.header(CONTENT_ENCODING_HEADER) == null
+                && (body.contentLength() < 0 || body.contentLength() >= threshold)) {
+            builder.header(CONTENT_ENCODING_HEADER, GZIP)
+                    .method(request.method(), new GzipRequestBody(body));
+        }
+        // OkHttp only decodes responses by itself when it adds this header
+        boolean decode = request.header(ACCEPT_ENCODING_HEADER) == null;
+        if (decode) {
+            builder.header(ACCEPT_ENCODING_HEADER, GZIP + ", " + DEFLATE);
+        }
+
+        Response response = chain.proceed(builder.build());
+        return decode
+                ? decode(response)
+                : response;
+    }
+
+    private static Response decode(Response response) {
+        ResponseBody body = response.body();
+        String encoding = response.header(CONTENT_ENCODING_HEADER);
+        if (body == null || encoding == null) {
+            return response;
+        }
+        Source source;
+        if (GZIP.equalsIgnoreCase(encoding)) {
+            source = new GzipSource(body.source());
+        } else if (DEFLATE.equalsIgnoreCase(encoding)) {
+            source = new InflaterSource(body.source(), new Inflater());
+        } else {
+            return response;
+        }
+        return response.newBuilder()
+                .removeHeader(CONTENT_ENCODING_HEADER)
+                .removeHeader(CONTENT_LENGTH_HEADER)
+                .body(ResponseBody.create(body.contentType(),
+                        -1,
+                        Okio.buffer(source)))
+                .build();
+    }
+
+    private static class GzipRequestBody extends RequestBody {
+        private final RequestBody body;
+
+        GzipRequestBody(RequestBody body) {
+            this.body = body;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return body.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            BufferedSink gzipSink = Okio.buffer(new GzipSink(sink));
+            body.writeTo(gzipSink);
+            gzipSink.close();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package io.github.nibiruos.retrosoap;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import static java.util.Objects.requireNonNull;
+
+public class EndpointCache {
+    private static final String ANY = "*";
+    private static final String SEPARATOR = " ";
+
+    private final long ttlMillis;
+    private final File snapshot;
+    private final Map<String, Entry> entries;
+    private final Object storeLock = new Object();
+    // Snapshot changes, guarded by this
+    private long version;
+    // Last version written, guarded by storeLock
+    private long storedVersion;
+
+    public EndpointCache(long ttl, @Nonnull TimeUnit unit) {
+        this(ttl, unit, null);
+    }
+
+    // Endpoints found in the snapshot are considered resolved when the
+    // cache is created, so a cold start does not need to fetch any WSDL.
+    public EndpointCache(long ttl,
+                         @Nonnull TimeUnit unit,
+                         @Nullable File snapshot) {
+        if (ttl < 0) {
+            throw new IllegalArgumentException("TTL can not be negative: " + ttl);
+        }
+        this.ttlMillis = requireNonNull(unit).toMillis(ttl);
+        this.snapshot = snapshot;
+        this.entries = new HashMap<>();
+        if (snapshot != null && snapshot.isFile()) {
+            load(snapshot);
+        }
+    }
+
+    @Nullable
+    synchronized String get(@Nonnull String wsdlUrl,
+                            @Nonnull SoapSpec soapSpec,
+                            @Nullable String serviceName,
+                            @Nullable String portName) {
+        Entry entry = entries.get(key(wsdlUrl, soapSpec, serviceName, portName));
+        return entry != null && !entry.isExpired()
+                ? entry.url
+                : null;
+    }
+
+    // Ignores TTL, used when the WSDL can not be fetched for a refresh
+    @Nullable
+    synchronized String getStale(@Nonnull String wsdlUrl,
+                                 @Nonnull SoapSpec soapSpec,
+                                 @Nullable String serviceName,
+                                 @Nullable String portName) {
+        Entry entry = entries.get(key(wsdlUrl, soapSpec, serviceName, portName));
+        return entry != null
+                ? entry.url
+                : null;
+    }
+
+    void put(@Nonnull String wsdlUrl,
+             @Nonnull SoapSpec soapSpec,
+             @Nullable String serviceName,
+             @Nullable String portName,
+             @Nonnull String url) {
+        String key = key(wsdlUrl, soapSpec, serviceName, portName);
+        requireNonNull(url);
+        synchronized (this) {
+            Entry previous = entries.put(key, new Entry(url));
+            if (snapshot == null
+                    || (previous != null && previous.url.equals(url))) {
+                return;
+            }
+            version++;
+        }
+        store(snapshot);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private static String key(String wsdlUrl,
+                              SoapSpec soapSpec,
+                              String serviceName,
+                              String portName) {
+        requireNonNull(wsdlUrl);
+        requireNonNull(soapSpec);
+        // Names are XML NCNames, so they can contain neither the
+        // separator nor the wildcard
+        return soapSpec.name()
+                + SEPARATOR + (serviceName != null ? serviceName : ANY)
+                + SEPARATOR + (portName != null ? portName : ANY)
+                + SEPARATOR + wsdlUrl;
+    }
+
+    private void load(File file) {
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(file)) {
+            properties.load(input);
+        } catch (IOException e) {
+            // A broken snapshot only means endpoints are fetched again
+            return;
+        }
+        for (String key : properties.stringPropertyNames()) {
+            entries.put(key, new Entry(properties.getProperty(key)));
+        }
+    }
+
+    // Written outside the cache lock, so lookups do not wait for the
+    // file. Callers queued behind a write share the next one: it takes
+    // the entries as they are then, including their changes.
+    private void store(File file) {
+        synchronized (storeLock) {
+            Properties properties = new Properties();
+            long current;
+            synchronized (this) {
+                if (storedVersion == version) {
+                    return;
+                }
+                current = version;
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    properties.setProperty(entry.getKey(), entry.getValue().url);
+                }
+            }
+            write(file, properties);
+            storedVersion = current;
+        }
+    }
+
+    // Failing to write the snapshot only means endpoints are fetched
+    // again on the next start, so it does not fail the caller
+    private static void write(File file, Properties properties) {
+        File temp = new File(file.getPath() + ".tmp");
+        try (OutputStream output = new FileOutputStream(temp)) {
+            properties.store(output, "Retrosoap endpoints");
+        } catch (IOException e) {
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            file.delete();
+            if (!temp.renameTo(file)) {
+                temp.delete();
+            }
+        }
+    }
+
+    private class Entry {
+        private final String url;
+        private final long resolved;
+
+        Entry(String url) {
+            this.url = url;
+            this.resolved = System.currentTimeMillis();
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - resolved >= ttlMillis;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package io.github.nibiruos.retrosoap;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+// Equivalent endpoints of a service, used by LoadBalancingInterceptor.
+// Endpoints failing several calls in a row are ejected for a while; if
+// every endpoint is ejected, all of them are used again.
+public class EndpointPool {
+    private static final int DEFAULT_MAX_FAILURES = 3;
+    private static final long DEFAULT_EJECTION_MILLIS = 30_000;
+    // Weight of the last sample in the latency average
+    private static final double EWMA_ALPHA = 0.3;
+
+    public enum Strategy {
+        // Fewest calls in flight
+        LEAST_OUTSTANDING,
+        // Lowest average latency, weighted by calls in flight
+        EWMA
+    }
+
+    private final List<Endpoint> endpoints;
+    private final Strategy strategy;
+    private final int maxFailures;
+    private final long ejectionNanos;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public EndpointPool(@Nonnull List<String> urls,
+                        @Nonnull Strategy strategy) {
+        this(urls, strategy, DEFAULT_MAX_FAILURES, DEFAULT_EJECTION_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public EndpointPool(@Nonnull List<String> urls,
+                        @Nonnull Strategy strategy,
+                        int maxFailures,
+                        long ejectionTime,
+                        @Nonnull TimeUnit unit) {
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("No endpoints");
+        }
+        if (maxFailures < 1) {
+            throw new IllegalArgumentException("Max failures must be positive: " + maxFailures);
+        }
+        List<Endpoint> endpoints = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            endpoints.add(new Endpoint(baseUrl(requireNonNull(url))));
+        }
+        this.endpoints = Collections.unmodifiableList(endpoints);
+        this.strategy = requireNonNull(strategy);
+        this.maxFailures = maxFailures;
+        this.ejectionNanos = unit.toNanos(ejectionTime);
+    }
+
+    // Retrofit base URLs must end with a slash
+    static String baseUrl(String url) {
+        return url.endsWith("/")
+                ? url
+                : url + "/";
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    // URL services are created with, and replaced on each call
+    public String getPrimaryUrl() {
+        return endpoints.get(0).getUrl();
+    }
+
+    // Picks an endpoint and counts the call as outstanding until
+    // release() is called for it
+    Endpoint acquire() {
+        long now = System.nanoTime();
+        int size = endpoints.size();
+        // Rotating the starting point spreads calls among equal endpoints
+        int start = (next.getAndIncrement() & Integer.MAX_VALUE) % size;
+        Endpoint selected = select(start, now, false);
+        if (selected == null) {
+            selected = select(start, now, true);
+        }
+        selected.outstanding.incrementAndGet();
+        return selected;
+    }
+
+    void release(Endpoint endpoint, long nanos, boolean failed) {
+        endpoint.outstanding.decrementAndGet();
+        endpoint.record(nanos, failed, maxFailures, ejectionNanos);
+    }
+
+    private Endpoint select(int start, long now, boolean includeEjected) {
+        Endpoint selected = null;
+        double selectedScore = 0;
+        for (int i = 0; i < endpoints.size(); i++) {
+            Endpoint endpoint = endpoints.get((start + i) % endpoints.size());
+            if (!includeEjected && endpoint.isEjected(now)) {
+                continue;
+            }
+            double score = strategy == Strategy.EWMA
+                    ? endpoint.getLatencyNanos() * (endpoint.getOutstanding() + 1)
+                    : endpoint.getOutstanding();
+            if (selected == null || score < selectedScore) {
+                selected = endpoint;
+                selectedScore = score;
+            }
+        }
+        return selected;
+    }
+
+    public static class Endpoint {
+        private final String url;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private double latencyNanos;
+        private int failures;
+        private long ejectedUntil;
+        private boolean ejected;
+
+        Endpoint(String url) {
+            this.url = url;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        // Average call latency, zero until the first call completes
+        public synchronized double getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        public boolean isEjected() {
+            return isEjected(System.nanoTime());
+        }
+
+        synchronized boolean isEjected(long now) {
+            return ejected && now - ejectedUntil < 0;
+        }
+
+        synchronized void record(long nanos,
+                                 boolean failed,
+                                 int maxFailures,
+                                 long ejectionNanos) {
+            latencyNanos = latencyNanos == 0
+                    ? nanos
+                    : latencyNanos + EWMA_ALPHA * (nanos - latencyNanos);
+            if (!failed) {
+                failures = 0;
+                ejected = false;
+            } else if (++failures >= maxFailures) {
+                failures = 0;
+                ejected = true;
+                ejectedUntil = System.nanoTime() + ejectionNanos;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s outstanding=%d, latency=%.0fns, ejected=%b",
+                    url,
+                    getOutstanding(),
+                    getLatencyNanos(),
+                    isEjected());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ByteString;
+import okio.ForwardingSink;
+import okio.Okio;
+import okio.Sink;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// The cached parts of the envelope are written straight from the
+// template, around the dynamic headers rendered for this request.
+class EnvelopeRequestBody extends RequestBody {
+    private final EnvelopeTemplate template;
+    private final ByteString headers;
+    private final RequestBody body;
+    private final RetroSoapMetrics metrics;
+    private final String soapAction;
+    private final long bodyNanos;
+    private final long headersNanos;
+    private final AtomicBoolean reported = new AtomicBoolean();
+
+    EnvelopeRequestBody(EnvelopeTemplate template,
+                        ByteString headers,
+                        RequestBody body) {
+        this(template, headers, body, RetroSoapMetrics.NONE, null, 0, 0);
+    }
+
+    // The envelope is written when the request is sent, so wrapping is
+    // timed then, on top of the time taken to render the headers
+    EnvelopeRequestBody(EnvelopeTemplate template,
+                        ByteString headers,
+                        RequestBody body,
+                        RetroSoapMetrics metrics,
+                        @Nullable String soapAction,
+                        long bodyNanos,
+                        long headersNanos) {
+        this.template = template;
+        this.headers = headers;
+        this.body = body;
+        this.metrics = metrics;
+        this.soapAction = soapAction;
+        this.bodyNanos = bodyNanos;
+        this.headersNanos = headersNanos;
+    }
+
+    @Override
+    @Nullable
+    public MediaType contentType() {
+        return body.contentType();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        long bodyLength = body.contentLength();
+        return bodyLength != -1
+                ? template.getProlog().size()
+                + headers.size()
+                + template.getHeaderEnd().size()
+                + bodyLength
+                + template.getEpilog().size()
+                : -1;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        if (metrics == RetroSoapMetrics.NONE) {
+            writeEnvelope(sink);
+            return;
+        }
+
+        // Streamed through a counting sink, so the envelope is never held
+        // in memory. Retries write the body again but are not reported.
+        long start = System.nanoTime();
+        CountingSink counter = new CountingSink(sink);
+        BufferedSink envelope = Okio.buffer(counter);
+        writeEnvelope(envelope);
+        envelope.emit();
+        long wrapNanos = headersNanos + System.nanoTime() - start;
+        if (reported.compareAndSet(false, true)) {
+            metrics.requestConverted(soapAction, bodyNanos, wrapNanos, counter.bytes);
+        }
+    }
+
+    private void writeEnvelope(BufferedSink sink) throws IOException {
+        sink.write(template.getProlog());
+        sink.write(headers);
+        sink.write(template.getHeaderEnd());
+        body.writeTo(sink);
+        sink.write(template.getEpilog());
+    }
+
+    private static class CountingSink extends ForwardingSink {
+        private long bytes;
+
+        CountingSink(Sink delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void write(Buffer source, long byteCount) throws IOException {
+            super.write(source, byteCount);
+            bytes += byteCount;
+        }
+    }
+}
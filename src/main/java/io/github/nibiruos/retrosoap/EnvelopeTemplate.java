@@ -0,0 +1,156 @@
+package io.github.nibiruos.retrosoap;
+
+import org.xmlpull.v1.XmlSerializer;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.inject.Provider;
+
+import okio.Buffer;
+import okio.ByteString;
+
+import static io.github.nibiruos.retrosoap.RetroSoapFactory.*;
+import static java.util.Objects.requireNonNull;
+
+class EnvelopeTemplate {
+    private static final String UTF_8 = "UTF-8";
+
+    private final ByteString prolog;
+    private final ByteString headerEnd;
+    private final ByteString epilog;
+    private final List<HeaderProvider> dynamicProviders;
+    private final XmlPool<XmlSerializer> serializerPool;
+
+    private EnvelopeTemplate(ByteString prolog,
+                             ByteString headerEnd,
+                             ByteString epilog,
+                             List<HeaderProvider> dynamicProviders,
+                             XmlPool<XmlSerializer> serializerPool) {
+        this.prolog = prolog;
+        this.headerEnd = headerEnd;
+        this.epilog = epilog;
+        this.dynamicProviders = dynamicProviders;
+        this.serializerPool = serializerPool;
+    }
+
+    static EnvelopeTemplate create(@Nonnull Provider<XmlSerializer> serializerProvider,
+                                   @Nonnull SoapSpec soapSpec,
+                                   @Nonnull String prefix) {
+        requireNonNull(serializerProvider);
+        return create(XmlPool.serializers(serializerProvider, 0),
+                soapSpec,
+                prefix,
+                Collections.<HeaderProvider>emptyList());
+    }
+
+    static EnvelopeTemplate create(@Nonnull XmlPool<XmlSerializer> serializerPool,
+                                   @Nonnull SoapSpec soapSpec,
+                                   @Nonnull String prefix,
+                                   @Nonnull List<HeaderProvider> headerProviders) {
+        requireNonNull(serializerPool);
+        requireNonNull(soapSpec);
+        requireNonNull(prefix);
+        requireNonNull(headerProviders);
+        List<HeaderProvider> dynamicProviders = new ArrayList<>();
+        for (HeaderProvider headerProvider : headerProviders) {
+            if (headerProvider.isDynamic()) {
+                dynamicProviders.add(headerProvider);
+            }
+        }
+        XmlSerializer serializer = serializerPool.acquire();
+        try {
+            StringWriter output = new StringWriter();
+            serializer.setOutput(output);
+            serializer.setPrefix(prefix,
+                    soapSpec.getEnvelopeNamespace());
+
+            serializer.startTag(soapSpec.getEnvelopeNamespace(),
+                    ENVELOPE_TAG);
+            serializer.startTag(soapSpec.getEnvelopeNamespace(),
+                    HEADER_TAG);
+            for (HeaderProvider headerProvider : headerProviders) {
+                headerProvider.writeStatic(serializer);
+            }
+
+            // Dynamic headers go after the static ones
+            int staticLength = -1;
+            if (!dynamicProviders.isEmpty()) {
+                serializer.flush();
+                staticLength = output.getBuffer().length();
+            }
+
+            serializer.endTag(soapSpec.getEnvelopeNamespace(),
+                    HEADER_TAG);
+            serializer.startTag(soapSpec.getEnvelopeNamespace(),
+                    BODY_TAG);
+
+            serializer.flush();
+            // Everything written so far goes before the body content,
+            // the rest goes after it.
+            int prologLength = output.getBuffer().length();
+
+            serializer.endTag(soapSpec.getEnvelopeNamespace(),
+                    BODY_TAG);
+            serializer.endTag(soapSpec.getEnvelopeNamespace(),
+                    ENVELOPE_TAG);
+            serializer.endDocument();
+
+            StringBuffer envelope = output.getBuffer();
+            int headerEndStart = staticLength >= 0
+                    ? staticLength
+                    : prologLength;
+            return new EnvelopeTemplate(ByteString.encodeUtf8(envelope.substring(0, headerEndStart)),
+                    ByteString.encodeUtf8(envelope.substring(headerEndStart, prologLength)),
+                    ByteString.encodeUtf8(envelope.substring(prologLength)),
+                    dynamicProviders,
+                    serializerPool);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            serializerPool.release(serializer);
+        }
+    }
+
+    // Everything up to the dynamic headers, or up to the body content if
+    // there are none
+    ByteString getProlog() {
+        return prolog;
+    }
+
+    // Only the dynamic headers are rendered for each request. Empty if
+    // there are none.
+    ByteString renderHeaders() {
+        if (dynamicProviders.isEmpty()) {
+            return ByteString.EMPTY;
+        }
+        Buffer output = new Buffer();
+        XmlSerializer serializer = serializerPool.acquire();
+        try {
+            serializer.setOutput(output.outputStream(), UTF_8);
+            for (HeaderProvider headerProvider : dynamicProviders) {
+                headerProvider.writeDynamic(serializer);
+            }
+            serializer.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            serializerPool.release(serializer);
+        }
+        return output.readByteString();
+    }
+
+    // Rest of the prolog after the dynamic headers. Empty if there are
+    // none.
+    ByteString getHeaderEnd() {
+        return headerEnd;
+    }
+
+    ByteString getEpilog() {
+        return epilog;
+    }
+}
@@ -1,20 +1,29 @@
 package io.github.nibiruos.retrosoap;
 
 import okhttp3.Interceptor;
+import okhttp3.MediaType;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
 
 import java.io.IOException;
 
 public class FaultCodeInterceptor implements Interceptor {
+    private static final int FAULT_CODE = 500;
+    private static final long PEEK_SIZE = 64;
+
     @Override
     public Response intercept(Chain chain) throws IOException {
         Request request = chain.request();
         Response response = chain.proceed(request);
 
-        // If response is not sucessful, create a new one with
+        // If response is a SOAP fault, create a new one with
         // same data and HTTP ok code so fault can be parsed.
-        return response.isSuccessful()
+        // Any other error is left as is, so it fails as a plain HTTP error
+        // without going through the XML parser.
+        return response.isSuccessful() || !isFault(response)
                 ? response
                 : new Response.Builder()
                 .request(request)
@@ -25,4 +34,37 @@ public class FaultCodeInterceptor implements Interceptor {
                 .body(response.body())
                 .build();
     }
+
+    private static boolean isFault(Response response) throws IOException {
+        ResponseBody body = response.body();
+        if (response.code() != FAULT_CODE || body == null || !isXml(body.contentType())) {
+            return false;
+        }
+        // Only peeks at the buffered bytes, so the body can still be read
+        BufferedSource source = body.source();
+        source.request(PEEK_SIZE);
+        Buffer buffer = source.buffer();
+        for (long i = 0; i < buffer.size(); i++) {
+            byte b = buffer.getByte(i);
+            if (b == '<') {
+                return true;
+            }
+            if (!isWhitespaceOrBom(b)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isXml(MediaType contentType) {
+        return contentType != null
+                && ("text".equals(contentType.type()) && "xml".equals(contentType.subtype())
+                || "application".equals(contentType.type()) && "soap+xml".equals(contentType.subtype()));
+    }
+
+    // UTF-8 byte order mark is EF BB BF
+    private static boolean isWhitespaceOrBom(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n'
+                || b == (byte) 0xEF || b == (byte) 0xBB || b == (byte) 0xBF;
+    }
 }
@@ -0,0 +1,230 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.MediaType;
+import okio.Buffer;
+import okio.ByteString;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Contents of a fault detail element. When the response was buffered, only
+// the raw bytes of the contents are kept, and the namespaces in scope inside
+// detail are declared on each of its child elements the first time they are
+// read, as BodySlicer does for the Body child.
+class FaultDetail implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final ByteString raw;
+    private final Map<String, String> namespaces;
+    private ByteString contents;
+
+    private FaultDetail(ByteString raw, Map<String, String> namespaces) {
+        this.raw = raw;
+        this.namespaces = namespaces;
+    }
+
+    static FaultDetail of(ByteString contents) {
+        FaultDetail detail = new FaultDetail(null, null);
+        detail.contents = contents;
+        return detail;
+    }
+
+    // Parser must be positioned at the detail start tag. Returns null if
+    // the contents can not be safely located, so caller should fall back to
+    // copying them.
+    @Nullable
+    static FaultDetail slice(byte[] document,
+                             ParserAdapter parser,
+                             String bodyName,
+                             String faultName,
+                             @Nullable MediaType contentType) {
+        if (!BodySlicer.isUtf8(parser.getInputEncoding(), contentType)) {
+            return null;
+        }
+        int body = findStartTag(document, 0, bodyName);
+        int fault = body != -1
+                ? findStartTag(document, body, faultName)
+                : -1;
+        String detailName = BodySlicer.qualifiedName(parser.getPrefix(), parser.getName());
+        int detail = fault != -1
+                ? findStartTag(document, fault, detailName)
+                : -1;
+        if (detail == -1) {
+            return null;
+        }
+        int detailEnd = findTagEnd(document, detail);
+        if (detailEnd == -1) {
+            return null;
+        }
+        Map<String, String> namespaces = new LinkedHashMap<>();
+        for (int i = 0; i < parser.getNamespaceCount(parser.getDepth()); i++) {
+            namespaces.put(parser.getNamespacePrefix(i),
+                    parser.getNamespaceUri(i));
+        }
+        if (document[detailEnd - 1] == '/') {
+            return new FaultDetail(ByteString.EMPTY, namespaces);
+        }
+        // Only the detail range is copied, so the fault does not hold on
+        // to the whole response
+        int contentsEnd = findEndTag(document, detailEnd + 1, detailName);
+        return contentsEnd != -1
+                ? new FaultDetail(ByteString.of(document, detailEnd + 1, contentsEnd - detailEnd - 1), namespaces)
+                : null;
+    }
+
+    synchronized ByteString contents() {
+        if (contents == null) {
+            contents = declareNamespaces(raw.toByteArray());
+        }
+        return contents;
+    }
+
+    private ByteString declareNamespaces(byte[] document) {
+        Buffer output = new Buffer();
+        int end = document.length;
+        int written = 0;
+        int depth = 0;
+        for (int i = nextTag(document, 0, end); i != -1; i = nextTag(document, i, end)) {
+            int tagEnd = findTagEnd(document, i);
+            if (document[i + 1] == '/') {
+                depth--;
+            } else {
+                if (depth == 0) {
+                    int nameEnd = nameEnd(document, i + 1);
+                    output.write(document, written, nameEnd - written);
+                    output.writeUtf8(declarations(document, nameEnd, tagEnd));
+                    written = nameEnd;
+                }
+                if (document[tagEnd - 1] != '/') {
+                    depth++;
+                }
+            }
+            i = tagEnd + 1;
+        }
+        output.write(document, written, end - written);
+        return output.readByteString();
+    }
+
+    // Namespaces in scope, except those the element declares itself
+    private String declarations(byte[] document, int from, int tagEnd) {
+        String attributes = new String(document, from, tagEnd - from, BodySlicer.UTF_8);
+        StringBuilder declarations = new StringBuilder();
+        for (Map.Entry<String, String> namespace : namespaces.entrySet()) {
+            String attribute = namespace.getKey() != null
+                    ? "xmlns:" + namespace.getKey()
+                    : "xmlns";
+            if (!declares(attributes, attribute)) {
+                declarations.append(' ')
+                        .append(attribute)
+                        .append("=\"");
+                BodySlicer.escape(namespace.getValue(), declarations);
+                declarations.append('"');
+            }
+        }
+        return declarations.toString();
+    }
+
+    private static boolean declares(String attributes, String attribute) {
+        for (int i = attributes.indexOf(attribute); i != -1; i = attributes.indexOf(attribute, i + 1)) {
+            int next = i + attribute.length();
+            if (Character.isWhitespace(attributes.charAt(i - 1))
+                    && next < attributes.length()
+                    && (attributes.charAt(next) == '=' || Character.isWhitespace(attributes.charAt(next)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int findStartTag(byte[] document, int from, String name) {
+        for (int i = nextTag(document, from, document.length); i != -1; i = nextTag(document, i + 1, document.length)) {
+            if (document[i + 1] != '/' && BodySlicer.isTagName(document, i + 1, name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int findEndTag(byte[] document, int from, String name) {
+        int depth = 0;
+        for (int i = nextTag(document, from, document.length); i != -1; i = nextTag(document, i, document.length)) {
+            int tagEnd = findTagEnd(document, i);
+            if (tagEnd == -1) {
+                return -1;
+            }
+            if (document[i + 1] == '/') {
+                if (depth == 0) {
+                    return BodySlicer.isTagName(document, i + 2, name)
+                            ? i
+                            : -1;
+                }
+                depth--;
+            } else if (document[tagEnd - 1] != '/') {
+                depth++;
+            }
+            i = tagEnd + 1;
+        }
+        return -1;
+    }
+
+    // Start of the next element tag, skipping comments, CDATA sections and
+    // processing instructions
+    private static int nextTag(byte[] document, int from, int to) {
+        int i = from;
+        while (i < to - 1) {
+            if (document[i] != '<') {
+                i++;
+            } else if (BodySlicer.startsWith(document, i, "<!--")) {
+                i = skip(document, i + 4, "-->");
+            } else if (BodySlicer.startsWith(document, i, "<![CDATA[")) {
+                i = skip(document, i + 9, "]]>");
+            } else if (document[i + 1] == '?' || document[i + 1] == '!') {
+                i = skip(document, i + 2, ">");
+            } else {
+                return i;
+            }
+            if (i == -1) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static int skip(byte[] document, int from, String token) {
+        int end = BodySlicer.indexOf(document, from, token);
+        return end != -1
+                ? end + 1
+                : -1;
+    }
+
+    private static int findTagEnd(byte[] document, int from) {
+        byte quote = 0;
+        for (int i = from; i < document.length; i++) {
+            byte b = document[i];
+            if (quote != 0) {
+                if (b == quote) {
+                    quote = 0;
+                }
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '>') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int nameEnd(byte[] document, int from) {
+        int i = from;
+        while (i < document.length) {
+            byte b = document[i];
+            if (b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                return i;
+            }
+            i++;
+        }
+        return i;
+    }
+}
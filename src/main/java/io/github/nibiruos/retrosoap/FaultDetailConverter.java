@@ -0,0 +1,38 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ByteString;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+class FaultDetailConverter {
+    private static final MediaType XML_MEDIA_TYPE = MediaType.parse("text/xml; charset=utf-8");
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    private final Converter.Factory bodyFactory;
+    private final Retrofit retrofit;
+
+    FaultDetailConverter(Converter.Factory bodyFactory,
+                         Retrofit retrofit) {
+        this.bodyFactory = bodyFactory;
+        this.retrofit = retrofit;
+    }
+
+    Object convert(Type type, ByteString detail) throws IOException {
+        Converter<ResponseBody, ?> converter = bodyFactory.responseBodyConverter(type,
+                NO_ANNOTATIONS,
+                retrofit);
+        if (converter == null) {
+            throw new IllegalArgumentException("Can not convert fault detail to " + type);
+        }
+        return converter.convert(ResponseBody.create(XML_MEDIA_TYPE,
+                detail.size(),
+                new Buffer().write(detail)));
+    }
+}
@@ -0,0 +1,25 @@
+package io.github.nibiruos.retrosoap;
+
+import org.xmlpull.v1.XmlSerializer;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+
+// Contributes elements to the SOAP Header of every request. Elements
+// written by writeStatic are serialized once, when the factory is built,
+// and reused as bytes. Only providers that return true from isDynamic
+// are called on each request, to write the parts that change, such as
+// timestamps or message IDs. Elements must be complete: every tag
+// started must be ended.
+public abstract class HeaderProvider {
+    public void writeStatic(@Nonnull XmlSerializer serializer) throws IOException {
+    }
+
+    public boolean isDynamic() {
+        return false;
+    }
+
+    // Called concurrently from the threads converting requests
+    public void writeDynamic(@Nonnull XmlSerializer serializer) throws IOException {
+    }
+}
@@ -0,0 +1,279 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+// Hedges calls to operations marked with SoapConstants.IDEMPOTENT_HEADER:
+// if no response arrives within the usual latency of the operation
+// (tracked per SOAPAction), a duplicate is sent with the hedge client and
+// the first successful response wins. The read timeout of those calls is
+// also derived from the observed latencies, capped by the configured one.
+// Configure the hedge client with a LoadBalancingInterceptor on the same
+// EndpointPool to send duplicates to another endpoint.
+public class HedgingInterceptor implements Interceptor {
+    static final String IDEMPOTENT_HEADER_NAME = "RetroSoap-Idempotent";
+    private static final int WINDOW_SIZE = 256;
+    private static final int DEFAULT_MIN_SAMPLES = 20;
+    private static final double DEFAULT_HEDGE_PERCENTILE = 0.95;
+    private static final double TIMEOUT_PERCENTILE = 0.99;
+    private static final double DEFAULT_TIMEOUT_MULTIPLIER = 3;
+    private static final long DEFAULT_MIN_TIMEOUT_MILLIS = 1000;
+    private static final int SERVER_ERROR = 500;
+
+    private final OkHttpClient hedgeClient;
+    private final ExecutorService executor;
+    private final double hedgePercentile;
+    private final double timeoutMultiplier;
+    private final long minTimeoutMillis;
+    private final int minSamples;
+    private final ConcurrentMap<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+
+    public HedgingInterceptor(@Nonnull OkHttpClient hedgeClient,
+                              @Nonnull ExecutorService executor) {
+        this(hedgeClient,
+                executor,
+                DEFAULT_HEDGE_PERCENTILE,
+                DEFAULT_TIMEOUT_MULTIPLIER,
+                DEFAULT_MIN_TIMEOUT_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    // Calls are hedged after the given latency percentile. Read timeouts
+    // are the 99th percentile times the multiplier, never below the
+    // minimum, nor above the configured read timeout if there is one.
+    public HedgingInterceptor(@Nonnull OkHttpClient hedgeClient,
+                              @Nonnull ExecutorService executor,
+                              double hedgePercentile,
+                              double timeoutMultiplier,
+                              long minTimeout,
+                              @Nonnull TimeUnit unit) {
+        this(hedgeClient,
+                executor,
+                hedgePercentile,
+                timeoutMultiplier,
+                unit.toMillis(minTimeout),
+                DEFAULT_MIN_SAMPLES);
+    }
+
+    HedgingInterceptor(OkHttpClient hedgeClient,
+                       ExecutorService executor,
+                       double hedgePercentile,
+                       double timeoutMultiplier,
+                       long minTimeoutMillis,
+                       int minSamples) {
+        if (hedgePercentile <= 0 || hedgePercentile > 1) {
+            throw new IllegalArgumentException("Invalid percentile: " + hedgePercentile);
+        }
+        this.hedgeClient = requireNonNull(hedgeClient);
+        this.executor = requireNonNull(executor);
+        this.hedgePercentile = hedgePercentile;
+        this.timeoutMultiplier = timeoutMultiplier;
+        this.minTimeoutMillis = minTimeoutMillis;
+        this.minSamples = minSamples;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (request.header(IDEMPOTENT_HEADER_NAME) == null) {
+            return chain.proceed(request);
+        }
+        request = request.newBuilder()
+                .removeHeader(IDEMPOTENT_HEADER_NAME)
+                .build();
+        String soapAction = RetroSoapFactory.getSoapAction(request);
+        LatencyWindow window = getWindow(soapAction != null ? soapAction : "");
+
+        long timeoutNanos = window.percentile(TIMEOUT_PERCENTILE);
+        if (timeoutNanos >= 0) {
+            long timeoutMillis = Math.max(minTimeoutMillis,
+                    TimeUnit.NANOSECONDS.toMillis((long) (timeoutNanos * timeoutMultiplier)));
+            // Zero means no timeout, so nothing to cap it with
+            int configuredMillis = chain.readTimeoutMillis();
+            if (configuredMillis > 0) {
+                timeoutMillis = Math.min(configuredMillis, timeoutMillis);
+            }
+            chain = chain.withReadTimeout((int) Math.min(Integer.MAX_VALUE, timeoutMillis), TimeUnit.MILLISECONDS);
+        }
+        int readTimeoutMillis = chain.readTimeoutMillis();
+
+        Attempt primary = new Attempt(window, readTimeoutMillis) {
+            @Override
+            Response execute(Chain chain, Request request) throws IOException {
+                return chain.proceed(request);
+            }
+        };
+        long hedgeDelay = window.percentile(hedgePercentile);
+        if (hedgeDelay < 0) {
+            return primary.run(chain, request);
+        }
+        return hedge(chain, request, primary, hedgeDelay);
+    }
+
+    LatencyWindow getWindow(String soapAction) {
+        LatencyWindow window = windows.get(soapAction);
+        if (window == null) {
+            window = new LatencyWindow(WINDOW_SIZE, minSamples);
+            LatencyWindow existing = windows.putIfAbsent(soapAction, window);
+            if (existing != null) {
+                window = existing;
+            }
+        }
+        return window;
+    }
+
+    private Response hedge(final Chain chain,
+                           final Request request,
+                           final Attempt primary,
+                           long hedgeDelay) throws IOException {
+        CompletionService<Response> completion = new ExecutorCompletionService<>(executor);
+        Future<Response> primaryFuture = completion.submit(primary.callable(chain, request));
+        Attempt hedge = null;
+        try {
+            Future<Response> done = completion.poll(hedgeDelay, TimeUnit.NANOSECONDS);
+            if (done == null) {
+                final Call call = hedgeClient.newBuilder()
+                        .readTimeout(primary.readTimeoutMillis, TimeUnit.MILLISECONDS)
+                        .build()
+                        .newCall(request);
+                hedge = new Attempt(primary.window, primary.readTimeoutMillis) {
+                    @Override
+                    Response execute(Chain chain, Request request) throws IOException {
+                        return call.execute();
+                    }
+
+                    @Override
+                    void cancel() {
+                        call.cancel();
+                    }
+                };
+                completion.submit(hedge.callable(chain, request));
+                done = completion.take();
+            }
+            if (hedge == null || isSuccess(done)) {
+                if (hedge != null) {
+                    (done == primaryFuture ? hedge : primary).lose();
+                }
+                return getResponse(done);
+            }
+            // First one failed, the other one decides
+            (done == primaryFuture ? primary : hedge).lose();
+            return getResponse(completion.take());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            primary.lose();
+            if (hedge != null) {
+                hedge.lose();
+            }
+            throw new InterruptedIOException("Interrupted while hedging");
+        }
+    }
+
+    private static boolean isSuccess(Future<Response> future) throws InterruptedException {
+        try {
+            return future.get().code() < SERVER_ERROR;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    private static Response getResponse(Future<Response> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    // One of the copies of a call. Its latency is recorded, counting
+    // timeouts as taking the whole timeout, so the window keeps up when
+    // the latency grows past the adaptive timeout. A losing attempt closes
+    // its response when it arrives, without blocking any thread on it.
+    private abstract static class Attempt {
+        private final LatencyWindow window;
+        private final int readTimeoutMillis;
+        private Response response;
+        private boolean lost;
+
+        Attempt(LatencyWindow window, int readTimeoutMillis) {
+            this.window = window;
+            this.readTimeoutMillis = readTimeoutMillis;
+        }
+
+        abstract Response execute(Chain chain, Request request) throws IOException;
+
+        // The primary call can not be cancelled without cancelling the
+        // caller's call
+        void cancel() {
+        }
+
+        Response run(Chain chain, Request request) throws IOException {
+            long start = System.nanoTime();
+            Response response;
+            try {
+                response = execute(chain, request);
+            } catch (SocketTimeoutException e) {
+                window.record(TimeUnit.MILLISECONDS.toNanos(readTimeoutMillis));
+                throw e;
+            }
+            if (response.code() < SERVER_ERROR) {
+                window.record(System.nanoTime() - start);
+            }
+            return response;
+        }
+
+        Callable<Response> callable(final Chain chain, final Request request) {
+            return new Callable<Response>() {
+                @Override
+                public Response call() throws IOException {
+                    Response response = run(chain, request);
+                    synchronized (Attempt.this) {
+                        if (!lost) {
+                            Attempt.this.response = response;
+                            return response;
+                        }
+                    }
+                    response.close();
+                    return response;
+                }
+            };
+        }
+
+        void lose() {
+            Response response;
+            synchronized (this) {
+                lost = true;
+                response = this.response;
+            }
+            cancel();
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package io.github.nibiruos.retrosoap;
+
+import java.util.Arrays;
+
+// Latencies of the last calls of an operation, for percentile estimates
+class LatencyWindow {
+    private final long[] samples;
+    private final long[] sorted;
+    private final int minSamples;
+    private int count;
+    private int next;
+    private boolean dirty;
+
+    LatencyWindow(int size, int minSamples) {
+        this.samples = new long[size];
+        this.sorted = new long[size];
+        this.minSamples = minSamples;
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        dirty = true;
+    }
+
+    // -1 until there are enough samples
+    synchronized long percentile(double percentile) {
+        if (count < minSamples) {
+            return -1;
+        }
+        if (dirty) {
+            System.arraycopy(samples, 0, sorted, 0, count);
+            Arrays.sort(sorted, 0, count);
+            dirty = false;
+        }
+        int index = (int) Math.ceil(percentile * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+}
@@ -0,0 +1,49 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+
+import static java.util.Objects.requireNonNull;
+
+// Sends each call to an endpoint of the pool, replacing the primary URL
+// the service was created with. Transport errors and server errors,
+// including SOAP faults, count as failures for passive ejection, so add
+// it after FaultCodeInterceptor.
+public class LoadBalancingInterceptor implements Interceptor {
+    private static final int SERVER_ERROR = 500;
+
+    private final EndpointPool pool;
+
+    public LoadBalancingInterceptor(@Nonnull EndpointPool pool) {
+        this.pool = requireNonNull(pool);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String url = request.url().toString();
+        String primaryUrl = pool.getPrimaryUrl();
+        if (!url.startsWith(primaryUrl)) {
+            return chain.proceed(request);
+        }
+
+        EndpointPool.Endpoint endpoint = pool.acquire();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            HttpUrl endpointUrl = HttpUrl.parse(endpoint.getUrl() + url.substring(primaryUrl.length()));
+            Response response = chain.proceed(request.newBuilder()
+                    .url(endpointUrl)
+                    .build());
+            failed = response.code() >= SERVER_ERROR;
+            return response;
+        } finally {
+            pool.release(endpoint, System.nanoTime() - start, failed);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+
+import static java.util.Objects.requireNonNull;
+
+public class MetricsInterceptor implements Interceptor {
+    private final RetroSoapMetrics metrics;
+
+    public MetricsInterceptor(@Nonnull RetroSoapMetrics metrics) {
+        this.metrics = requireNonNull(metrics);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String soapAction = RetroSoapFactory.getSoapAction(request);
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException ex) {
+            metrics.transportFailed(soapAction, System.nanoTime() - start, ex);
+            throw ex;
+        }
+        metrics.transportCompleted(soapAction, response.code(), System.nanoTime() - start);
+        return response;
+    }
+}
@@ -0,0 +1,31 @@
+package io.github.nibiruos.retrosoap;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+// Request body sent as an MTOM multipart/related message, with binary
+// contents as separate parts instead of base64 text. Service methods
+// using it must not declare SoapConstants.CONTENT_TYPE_HEADER, since the
+// multipart content type is set by the converter.
+public class MtomBody<T> {
+    private final T body;
+    private final List<Attachment> attachments;
+
+    public MtomBody(@Nonnull T body,
+                    @Nonnull List<Attachment> attachments) {
+        this.body = requireNonNull(body);
+        this.attachments = Collections.unmodifiableList(new ArrayList<>(attachments));
+    }
+
+    public T getBody() {
+        return body;
+    }
+
+    public List<Attachment> getAttachments() {
+        return attachments;
+    }
+}
@@ -0,0 +1,78 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import retrofit2.Converter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+
+import static java.util.Objects.requireNonNull;
+
+class MtomRequestConverter<T>
+        implements Converter<MtomBody<T>, RequestBody> {
+    static final String CONTENT_ID_HEADER = "Content-ID";
+    private static final String CONTENT_TRANSFER_ENCODING_HEADER = "Content-Transfer-Encoding";
+    private static final String ROOT_ID = "<root>";
+
+    private final Converter<T, RequestBody> envelopeConverter;
+    private final MediaType multipartType;
+    private final MediaType rootType;
+
+    MtomRequestConverter(Converter<T, RequestBody> envelopeConverter,
+                         SoapSpec soapSpec) {
+        this.envelopeConverter = envelopeConverter;
+        String startInfo = soapSpec == SoapSpec.V_1_2
+                ? "application/soap+xml"
+                : "text/xml";
+        this.multipartType = MediaType.parse("multipart/related; type=\"application/xop+xml\"; start=\""
+                + ROOT_ID + "\"; start-info=\"" + startInfo + "\"");
+        this.rootType = MediaType.parse("application/xop+xml; charset=UTF-8; type=\"" + startInfo + "\"");
+    }
+
+    @Override
+    public RequestBody convert(@Nonnull MtomBody<T> value) throws IOException {
+        requireNonNull(value);
+        MultipartBody.Builder builder = new MultipartBody.Builder()
+                .setType(multipartType)
+                .addPart(Headers.of(CONTENT_ID_HEADER, ROOT_ID),
+                        new RootRequestBody(envelopeConverter.convert(value.getBody()), rootType));
+        // Binary parts are streamed when the request is written
+        for (Attachment attachment : value.getAttachments()) {
+            builder.addPart(Headers.of(CONTENT_ID_HEADER, "<" + attachment.getContentId() + ">",
+                    CONTENT_TRANSFER_ENCODING_HEADER, "binary"),
+                    attachment.toRequestBody());
+        }
+        return builder.build();
+    }
+
+    private static class RootRequestBody extends RequestBody {
+        private final RequestBody envelope;
+        private final MediaType contentType;
+
+        RootRequestBody(RequestBody envelope, MediaType contentType) {
+            this.envelope = envelope;
+            this.contentType = contentType;
+        }
+
+        @Override
+        @Nullable
+        public MediaType contentType() {
+            return contentType;
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return envelope.contentLength();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            envelope.writeTo(sink);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.nibiruos.retrosoap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Response body together with the MTOM attachments it refers to, by
+// content ID. Responses that are not multipart have no attachments.
+// Attachments are streamed from the response in the order they were sent:
+// looking one up buffers the unread parts before it. The response stays
+// open until every part was reached, so close this if some attachments
+// are never looked up.
+public class MtomResponse<T> implements Closeable {
+    private final T body;
+    private final Map<String, Attachment> attachments;
+    private final MultipartReader reader;
+
+    MtomResponse(T body,
+                 Map<String, Attachment> attachments,
+                 @Nullable MultipartReader reader) {
+        this.body = body;
+        this.attachments = new LinkedHashMap<>(attachments);
+        this.reader = reader;
+    }
+
+    public T getBody() {
+        return body;
+    }
+
+    // Reads the parts of every attachment
+    public synchronized Map<String, Attachment> getAttachments() throws IOException {
+        while (readAttachment() != null) {
+            // Keep reading
+        }
+        return Collections.unmodifiableMap(new LinkedHashMap<>(attachments));
+    }
+
+    // Accepts both content IDs and "cid:" hrefs
+    @Nullable
+    public synchronized Attachment getAttachment(@Nonnull String contentId) throws IOException {
+        String id = contentId.startsWith("cid:")
+                ? contentId.substring(4)
+                : contentId;
+        Attachment attachment = attachments.get(id);
+        while (attachment == null) {
+            attachment = readAttachment();
+            if (attachment == null) {
+                return null;
+            }
+            if (!attachment.getContentId().equals(id)) {
+                attachment = null;
+            }
+        }
+        return attachment;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null) {
+            reader.close();
+        }
+    }
+
+    @Nullable
+    private Attachment readAttachment() throws IOException {
+        MultipartReader.Part part = reader != null
+                ? reader.nextPart()
+                : null;
+        if (part == null) {
+            return null;
+        }
+        Attachment attachment = MtomResponseConverter.toAttachment(part);
+        if (!attachments.containsKey(attachment.getContentId())) {
+            attachments.put(attachment.getContentId(), attachment);
+        }
+        return attachment;
+    }
+}
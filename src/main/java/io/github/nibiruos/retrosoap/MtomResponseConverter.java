@@ -0,0 +1,93 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+class MtomResponseConverter<T>
+        implements Converter<ResponseBody, MtomResponse<T>> {
+    private static final String MULTIPART = "multipart";
+    private static final String CONTENT_TYPE_HEADER = "Content-Type";
+    private static final MediaType DEFAULT_ATTACHMENT_TYPE = MediaType.parse("application/octet-stream");
+
+    private final Converter<ResponseBody, T> envelopeConverter;
+
+    MtomResponseConverter(Converter<ResponseBody, T> envelopeConverter) {
+        this.envelopeConverter = envelopeConverter;
+    }
+
+    @Override
+    public MtomResponse<T> convert(@Nonnull ResponseBody responseBody) throws IOException {
+        requireNonNull(responseBody);
+        MediaType contentType = responseBody.contentType();
+        if (contentType == null || !MULTIPART.equals(contentType.type())) {
+            return new MtomResponse<>(envelopeConverter.convert(responseBody),
+                    Collections.<String, Attachment>emptyMap(),
+                    null);
+        }
+        String boundary = MultipartReader.parameter(contentType, "boundary");
+        if (boundary == null) {
+            throw new IOException("Multipart boundary missing: " + contentType);
+        }
+        String start = MultipartReader.parameter(contentType, "start");
+
+        // Root part is the one named by the start parameter, or the first
+        // one. Parts before it are buffered, the rest are read on demand.
+        MultipartReader reader = new MultipartReader(responseBody.source(), boundary);
+        boolean close = true;
+        try {
+            Map<String, Attachment> attachments = new LinkedHashMap<>();
+            MultipartReader.Part root = reader.nextPart();
+            while (root != null && start != null && !contentId(root).equals(stripBrackets(start))) {
+                Attachment attachment = toAttachment(root);
+                attachments.put(attachment.getContentId(), attachment);
+                root = reader.nextPart();
+            }
+            if (root == null) {
+                throw new IOException("Multipart root part not found");
+            }
+            String rootType = root.getHeaders().get(CONTENT_TYPE_HEADER);
+            T body = envelopeConverter.convert(ResponseBody.create(rootType != null
+                            ? MediaType.parse(rootType)
+                            : null,
+                    -1,
+                    root.getBody()));
+            close = false;
+            return new MtomResponse<>(body, attachments, reader);
+        } finally {
+            if (close) {
+                reader.close();
+            }
+        }
+    }
+
+    static Attachment toAttachment(MultipartReader.Part part) {
+        String partType = part.getHeaders().get(CONTENT_TYPE_HEADER);
+        return Attachment.create(contentId(part),
+                partType != null
+                        ? MediaType.parse(partType)
+                        : DEFAULT_ATTACHMENT_TYPE,
+                part.getBody());
+    }
+
+    private static String contentId(MultipartReader.Part part) {
+        String contentId = part.getHeaders().get(MtomRequestConverter.CONTENT_ID_HEADER);
+        return contentId != null
+                ? stripBrackets(contentId.trim())
+                : "";
+    }
+
+    private static String stripBrackets(String contentId) {
+        return contentId.startsWith("<") && contentId.endsWith(">")
+                ? contentId.substring(1, contentId.length() - 1)
+                : contentId;
+    }
+}
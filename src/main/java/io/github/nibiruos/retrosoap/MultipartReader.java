@@ -0,0 +1,163 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Minimal MIME multipart reader for MTOM responses. Parts are read in
+// order, and each part body is a source bounded by the next delimiter, so
+// binary contents are streamed from the response instead of kept in
+// memory. Moving to the next part buffers whatever was not read from the
+// current one.
+class MultipartReader implements Closeable {
+    private static final String DASHES = "--";
+    private static final String CRLF = "\r\n";
+    private static final long SEGMENT_SIZE = 8192;
+
+    private final BufferedSource source;
+    private final String boundary;
+    private final ByteString dashBoundary;
+    private final ByteString delimiter;
+    private PartSource current;
+    private boolean started;
+    private boolean finished;
+
+    MultipartReader(BufferedSource source, String boundary) {
+        this.source = source;
+        this.boundary = boundary;
+        this.dashBoundary = ByteString.encodeUtf8(DASHES + boundary);
+        this.delimiter = ByteString.encodeUtf8(CRLF + DASHES + boundary);
+    }
+
+    // Null after the last part. The response is closed once it is reached.
+    @Nullable
+    synchronized Part nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        if (!started) {
+            // Preamble is ignored
+            long index = source.indexOf(dashBoundary);
+            if (index == -1) {
+                throw new IOException("Multipart boundary not found: " + boundary);
+            }
+            source.skip(index + dashBoundary.size());
+            started = true;
+        } else {
+            current.detach();
+            source.skip(delimiter.size());
+        }
+
+        // Rest of the boundary line: empty, or dashes for the last one
+        String line = source.readUtf8Line();
+        if (line == null || line.startsWith(DASHES)) {
+            finished = true;
+            source.close();
+            return null;
+        }
+        Headers.Builder headers = new Headers.Builder();
+        for (String header = source.readUtf8LineStrict();
+             !header.isEmpty();
+             header = source.readUtf8LineStrict()) {
+            headers.add(header);
+        }
+        current = new PartSource();
+        return new Part(headers.build(), Okio.buffer(current));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        finished = true;
+        source.close();
+    }
+
+    // Bytes of the current part available without going past the
+    // delimiter. Zero at the end of the part.
+    private long remaining(long max) throws IOException {
+        if (!source.request(delimiter.size())) {
+            throw new IOException("Multipart close delimiter not found: " + boundary);
+        }
+        long index = source.buffer().indexOf(delimiter);
+        return Math.min(max, index != -1
+                ? index
+                : source.buffer().size() - delimiter.size() + 1);
+    }
+
+    // OkHttp MediaType only exposes the charset parameter
+    static String parameter(MediaType mediaType, String name) {
+        Matcher matcher = Pattern.compile(";\\s*" + Pattern.quote(name) + "=(?:\"([^\"]*)\"|([^;\\s]*))",
+                Pattern.CASE_INSENSITIVE)
+                .matcher(mediaType.toString());
+        if (!matcher.find()) {
+            return null;
+        }
+        return matcher.group(1) != null
+                ? matcher.group(1)
+                : matcher.group(2);
+    }
+
+    private class PartSource implements Source {
+        // Unread bytes, once the reader moved past this part
+        private Buffer rest;
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            synchronized (MultipartReader.this) {
+                if (rest != null) {
+                    return rest.read(sink, byteCount);
+                }
+                long count = remaining(byteCount);
+                return count != 0
+                        ? source.read(sink, count)
+                        : -1;
+            }
+        }
+
+        void detach() throws IOException {
+            Buffer buffer = new Buffer();
+            for (long count = remaining(SEGMENT_SIZE); count != 0; count = remaining(SEGMENT_SIZE)) {
+                source.read(buffer, count);
+            }
+            rest = buffer;
+        }
+
+        @Override
+        public Timeout timeout() {
+            return source.timeout();
+        }
+
+        @Override
+        public void close() {
+            // The response is closed by the reader
+        }
+    }
+
+    static class Part {
+        private final Headers headers;
+        private final BufferedSource body;
+
+        Part(Headers headers, BufferedSource body) {
+            this.headers = headers;
+            this.body = body;
+        }
+
+        Headers getHeaders() {
+            return headers;
+        }
+
+        BufferedSource getBody() {
+            return body;
+        }
+    }
+}
@@ -4,15 +4,16 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
-import java.util.Iterator;
-
-import javax.xml.namespace.QName;
 
 class ParserAdapter {
+    private static final String FEATURE_NAMES_INTERNED = "http://xmlpull.org/v1/doc/features.html#names-interned";
+
     private final XmlPullParser parser;
+    private final boolean namesInterned;
 
     ParserAdapter(XmlPullParser parser) {
         this.parser = parser;
+        this.namesInterned = parser.getFeature(FEATURE_NAMES_INTERNED);
     }
 
     void next() {
@@ -51,14 +52,56 @@ class ParserAdapter {
         return parser.getNamespace(prefix);
     }
 
-    boolean isTagStart(QName tag) {
+    String getInputEncoding() {
+        return parser.getInputEncoding();
+    }
+
+    int getDepth() {
+        return parser.getDepth();
+    }
+
+    int getNamespaceCount(int depth) {
+        try {
+            return parser.getNamespaceCount(depth);
+        } catch (XmlPullParserException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    String getNamespacePrefix(int pos) {
+        try {
+            return parser.getNamespacePrefix(pos);
+        } catch (XmlPullParserException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    String getNamespaceUri(int pos) {
+        try {
+            return parser.getNamespaceUri(pos);
+        } catch (XmlPullParserException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    boolean isTagStart(TagMatcher tag) {
         return isTagStart() && isName(tag);
     }
 
-    boolean isTagEnd(QName tag) {
+    boolean isTagEnd(TagMatcher tag) {
         return isTagEnd() && isName(tag);
     }
 
+    // Moves to the end tag matching the current start tag, without
+    // looking at anything in between.
+    void skipSubtree() {
+        int depth = parser.getDepth();
+        do {
+            next();
+        } while (!(isTagEnd() && parser.getDepth() == depth)
+                && !isDocumentEnd());
+    }
+
     boolean isDocumentEnd() {
         return getEventType() == XmlPullParser.END_DOCUMENT;
     }
@@ -72,84 +115,45 @@ class ParserAdapter {
         return null;
     }
 
-    Iterable<Attribute> getAttributes() {
-        return new Iterable<Attribute>() {
-            @Override
-            public Iterator<Attribute> iterator() {
-                return new AttributeIterator();
-            }
-        };
+    String getAttribute(String namespace, String name) {
+        return parser.getAttributeValue(namespace, name);
     }
 
-    private boolean isName(QName name) {
-        return isName(name.getLocalPart())
-                && isNamespace(name.getNamespaceURI());
+    int getAttributeCount() {
+        return parser.getAttributeCount();
     }
 
-    private boolean isName(String name) {
-        return name.equals(parser.getName());
+    String getAttributeName(int index) {
+        return parser.getAttributeName(index);
     }
 
-    private boolean isNamespace(String namespace) {
-        return namespace.equals(parser.getNamespace());
+    String getAttributeValue(int index) {
+        return parser.getAttributeValue(index);
     }
 
-    boolean isTagStart() {
-        return getEventType() == XmlPullParser.START_TAG;
+    String getAttributePrefix(int index) {
+        return parser.getAttributePrefix(index);
     }
 
-    private boolean isTagEnd() {
-        return getEventType() == XmlPullParser.END_TAG;
+    String getAttributeNamespace(int index) {
+        return parser.getAttributeNamespace(index);
     }
 
-
-    interface Attribute {
-        String getName();
-
-        String getValue();
-
-        String getPrefix();
-
-        String getNamespace();
+    private boolean isName(TagMatcher tag) {
+        return tag.matches(parser.getNamespace(),
+                parser.getName(),
+                namesInterned);
     }
 
-    private class AttributeIterator
-            implements Iterator<Attribute> {
-        private int next;
-
+    boolean isTagStart() {
+        return getEventType() == XmlPullParser.START_TAG;
+    }
 
-        @Override
-        public boolean hasNext() {
-            return next < parser.getAttributeCount();
-        }
+    boolean isText() {
+        return getEventType() == XmlPullParser.TEXT;
+    }
 
-        @Override
-        public Attribute next() {
-            Attribute attribute = new Attribute() {
-                int current = next;
-
-                @Override
-                public String getName() {
-                    return parser.getAttributeName(current);
-                }
-
-                @Override
-                public String getValue() {
-                    return parser.getAttributeValue(current);
-                }
-
-                @Override
-                public String getPrefix() {
-                    return parser.getAttributePrefix(current);
-                }
-
-                @Override
-                public String getNamespace() {
-                    return parser.getAttributeNamespace(current);
-                }
-            };
-            next++;
-            return attribute;
-        }
+    boolean isTagEnd() {
+        return getEventType() == XmlPullParser.END_TAG;
     }
 }
@@ -0,0 +1,54 @@
+package io.github.nibiruos.retrosoap;
+
+public class PoolStatistics {
+    private final long hits;
+    private final long misses;
+    private final long discards;
+    private final int idle;
+
+    PoolStatistics(long hits,
+                   long misses,
+                   long discards,
+                   int idle) {
+        this.hits = hits;
+        this.misses = misses;
+        this.discards = discards;
+        this.idle = idle;
+    }
+
+    // Instances taken from the pool
+    public long getHits() {
+        return hits;
+    }
+
+    // Instances created because the pool was empty
+    public long getMisses() {
+        return misses;
+    }
+
+    // Released instances dropped because the pool was full or they could
+    // not be reset
+    public long getDiscards() {
+        return discards;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public double getHitRate() {
+        long total = hits + misses;
+        return total > 0
+                ? (double) hits / total
+                : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d, misses=%d, discards=%d, idle=%d",
+                hits,
+                misses,
+                discards,
+                idle);
+    }
+}
@@ -1,67 +1,58 @@
 package io.github.nibiruos.retrosoap;
 
-import org.xmlpull.v1.XmlSerializer;
-
 import java.io.IOException;
-import java.io.StringWriter;
 
 import javax.annotation.Nonnull;
-import javax.inject.Provider;
+import javax.annotation.Nullable;
 
 import okhttp3.RequestBody;
-import okio.Buffer;
+import okio.ByteString;
 import retrofit2.Converter;
 
-import static io.github.nibiruos.retrosoap.RetroSoapFactory.*;
 import static java.util.Objects.requireNonNull;
 
 class RequestConverter<T>
         implements Converter<T, RequestBody> {
     private final Converter<T, okhttp3.RequestBody> bodyConverter;
-    private final Provider<XmlSerializer> serializerProvider;
-    private final SoapSpec soapSpec;
+    private final EnvelopeTemplate envelopeTemplate;
+    private final RetroSoapMetrics metrics;
+    private final String soapAction;
 
     RequestConverter(Converter<T, okhttp3.RequestBody> bodyConverter,
-                     Provider<XmlSerializer> serializerProvider,
-                     SoapSpec soapSpec) {
+                     EnvelopeTemplate envelopeTemplate) {
+        this(bodyConverter, envelopeTemplate, RetroSoapMetrics.NONE, null);
+    }
+
+    RequestConverter(Converter<T, okhttp3.RequestBody> bodyConverter,
+                     EnvelopeTemplate envelopeTemplate,
+                     RetroSoapMetrics metrics,
+                     @Nullable String soapAction) {
         this.bodyConverter = bodyConverter;
-        this.serializerProvider = serializerProvider;
-        this.soapSpec = soapSpec;
+        this.envelopeTemplate = envelopeTemplate;
+        this.metrics = metrics;
+        this.soapAction = soapAction;
     }
 
     @Override
     public RequestBody convert(@Nonnull T data) throws IOException {
         requireNonNull(data);
+        if (metrics == RetroSoapMetrics.NONE) {
+            return new EnvelopeRequestBody(envelopeTemplate,
+                    envelopeTemplate.renderHeaders(),
+                    bodyConverter.convert(data));
+        }
+
+        // Reported by the envelope once it is written
+        long start = System.nanoTime();
         RequestBody requestBody = bodyConverter.convert(data);
-
-        StringWriter output = new StringWriter();
-        XmlSerializer serializer = serializerProvider.get();
-        serializer.setOutput(output);
-        serializer.setPrefix(SOAP_ENVELOPE_PREFIX,
-                soapSpec.getEnvelopeNamespace());
-
-        serializer.startTag(soapSpec.getEnvelopeNamespace(),
-                ENVELOPE_TAG);
-        serializer.startTag(soapSpec.getEnvelopeNamespace(),
-                HEADER_TAG);
-        serializer.endTag(soapSpec.getEnvelopeNamespace(),
-                HEADER_TAG);
-        serializer.startTag(soapSpec.getEnvelopeNamespace(),
-                BODY_TAG);
-
-        serializer.flush();
-
-        Buffer bodyBuffer = new Buffer();
-        requestBody.writeTo(bodyBuffer);
-        output.write(bodyBuffer.readUtf8());
-
-        serializer.endTag(soapSpec.getEnvelopeNamespace(),
-                BODY_TAG);
-        serializer.endTag(soapSpec.getEnvelopeNamespace(),
-                ENVELOPE_TAG);
-        serializer.endDocument();
-
-        return RequestBody.create(requestBody.contentType(),
-                output.toString());
+        long converted = System.nanoTime();
+        ByteString headers = envelopeTemplate.renderHeaders();
+        return new EnvelopeRequestBody(envelopeTemplate,
+                headers,
+                requestBody,
+                metrics,
+                soapAction,
+                converted - start,
+                System.nanoTime() - converted);
     }
 }
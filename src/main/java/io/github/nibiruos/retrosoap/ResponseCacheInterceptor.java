@@ -0,0 +1,300 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+// Caches successful responses of the operations given a TTL, since HTTP
+// caching does not apply to SOAP POSTs. Entries are keyed by URL,
+// SOAPAction and the SHA-256 of the request envelope, and evicted in LRU
+// order once the cached bodies exceed the size limit. SOAP faults are
+// never cached, even when FaultCodeInterceptor has turned them into
+// successful responses.
+public class ResponseCacheInterceptor implements Interceptor {
+    private static final int OK = 200;
+    private static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+    private final Map<String, Long> ttls;
+    private final long maxBytes;
+    private final boolean direct;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    private ResponseCacheInterceptor(Builder builder) {
+        this.ttls = new HashMap<>(builder.ttls);
+        this.maxBytes = builder.maxBytes;
+        this.direct = builder.direct;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String soapAction = RetroSoapFactory.getSoapAction(request);
+        Long ttl = soapAction != null
+                ? ttls.get(soapAction)
+                : null;
+        RequestBody body = request.body();
+        if (ttl == null || body == null) {
+            return chain.proceed(request);
+        }
+
+        Buffer envelope = new Buffer();
+        body.writeTo(envelope);
+        String key = request.url() + " " + soapAction + " " + envelope.sha256().hex();
+        Entry entry = get(key);
+        if (entry != null) {
+            return entry.toResponse(request);
+        }
+
+        // Bodies such as attachment streams can only be written once
+        Response response = chain.proceed(request.newBuilder()
+                .method(request.method(),
+                        RequestBody.create(body.contentType(), envelope.readByteString()))
+                .build());
+        if (response.code() != OK || response.body() == null) {
+            return response;
+        }
+        ResponseBody responseBody = response.body();
+        MediaType contentType = responseBody.contentType();
+        byte[] bytes = responseBody.bytes();
+        if (bytes.length <= maxBytes && !isFault(bytes)) {
+            put(key, new Entry(response, contentType, store(bytes), System.nanoTime() + ttl));
+        }
+        return response.newBuilder()
+                .body(ResponseBody.create(contentType, bytes))
+                .build();
+    }
+
+    // Looks for a Fault element as the first child of the Body, whatever
+    // the prefixes, without parsing the whole document. Elements before
+    // the Body, such as headers, are skipped by depth.
+    private static boolean isFault(byte[] document) {
+        int i = 0;
+        int depth = 0;
+        boolean inBody = false;
+        while ((i = indexOf(document, '<', i)) >= 0) {
+            i++;
+            if (i >= document.length) {
+                return false;
+            }
+            if (document[i] == '!' || document[i] == '?') {
+                // Comments, CDATA and processing instructions
+                i = indexOf(document, '>', i);
+                if (i < 0) {
+                    return false;
+                }
+                continue;
+            }
+            if (document[i] == '/') {
+                if (inBody) {
+                    // Empty Body
+                    return false;
+                }
+                depth--;
+                continue;
+            }
+            String localName = localName(document, i);
+            if (inBody) {
+                return RetroSoapFactory.FAULT_TAG.equals(localName);
+            }
+            int tagEnd = tagEnd(document, i);
+            if (tagEnd < 0) {
+                return false;
+            }
+            boolean empty = document[tagEnd - 1] == '/';
+            // Body is a child of the Envelope
+            if (depth == 1 && RetroSoapFactory.BODY_TAG.equals(localName)) {
+                if (empty) {
+                    return false;
+                }
+                inBody = true;
+            } else if (!empty) {
+                depth++;
+            }
+            i = tagEnd;
+        }
+        return false;
+    }
+
+    // Closing bracket of a start tag, skipping quoted attribute values
+    private static int tagEnd(byte[] document, int from) {
+        byte quote = 0;
+        for (int i = from; i < document.length; i++) {
+            byte b = document[i];
+            if (quote != 0) {
+                if (b == quote) {
+                    quote = 0;
+                }
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '>') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] document, char b, int from) {
+        for (int i = from; i < document.length; i++) {
+            if (document[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String localName(byte[] document, int start) {
+        int end = start;
+        while (end < document.length && !isNameEnd(document[end])) {
+            if (document[end] == ':') {
+                start = end + 1;
+            }
+            end++;
+        }
+        return new String(document, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isNameEnd(byte b) {
+        return b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    public synchronized void evictAll() {
+        entries.clear();
+        size = 0;
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    @Nullable
+    private synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt - System.nanoTime() <= 0) {
+            entries.remove(key);
+            size -= entry.body.capacity();
+            return null;
+        }
+        return entry;
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            size -= previous.body.capacity();
+        }
+        size += entry.body.capacity();
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (size > maxBytes) {
+            size -= eldest.next().body.capacity();
+            eldest.remove();
+        }
+    }
+
+    private ByteBuffer store(byte[] bytes) {
+        if (!direct) {
+            return ByteBuffer.wrap(bytes);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static class Entry {
+        private final Protocol protocol;
+        private final String message;
+        private final Headers headers;
+        private final MediaType contentType;
+        private final ByteBuffer body;
+        private final long expiresAt;
+
+        Entry(Response response,
+              MediaType contentType,
+              ByteBuffer body,
+              long expiresAt) {
+            this.protocol = response.protocol();
+            this.message = response.message();
+            this.headers = response.headers();
+            this.contentType = contentType;
+            this.body = body;
+            this.expiresAt = expiresAt;
+        }
+
+        Response toResponse(Request request) throws IOException {
+            Buffer content = new Buffer();
+            // Each reader gets its own position
+            content.write(body.duplicate());
+            return new Response.Builder()
+                    .request(request)
+                    .protocol(protocol)
+                    .code(OK)
+                    .message(message)
+                    .headers(headers)
+                    .body(ResponseBody.create(contentType, content.size(), content))
+                    .build();
+        }
+    }
+
+    public static class Builder {
+        private final Map<String, Long> ttls = new HashMap<>();
+        private long maxBytes = DEFAULT_MAX_BYTES;
+        private boolean direct;
+
+        private Builder() {
+        }
+
+        // Only operations given a TTL are cached. The SOAP action is the
+        // SOAPAction header value, including its quotes. SOAP 1.2 actions
+        // are quoted the same way.
+        public Builder ttl(@Nonnull String soapAction, long ttl, @Nonnull TimeUnit unit) {
+            if (ttl <= 0) {
+                throw new IllegalArgumentException("TTL must be positive: " + ttl);
+            }
+            ttls.put(requireNonNull(soapAction), unit.toNanos(ttl));
+            return this;
+        }
+
+        // Total size of the cached response bodies
+        public Builder maxBytes(long maxBytes) {
+            if (maxBytes < 0) {
+                throw new IllegalArgumentException("Max bytes can not be negative: " + maxBytes);
+            }
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        // Keeps cached bodies in direct buffers, outside the Java heap
+        public Builder directBuffers(boolean direct) {
+            this.direct = direct;
+            return this;
+        }
+
+        public ResponseCacheInterceptor build() {
+            return new ResponseCacheInterceptor(this);
+        }
+    }
+}
@@ -1,173 +1,332 @@
 package io.github.nibiruos.retrosoap;
 
-import io.github.nibiruos.retrosoap.ParserAdapter.Attribute;
+import okhttp3.MediaType;
 import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ByteString;
+import okio.Okio;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlSerializer;
 import retrofit2.Converter;
 
 import javax.annotation.Nonnull;
-import javax.inject.Provider;
-import javax.xml.namespace.QName;
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
 
 import static java.util.Objects.requireNonNull;
 
 class ResponseConverter<T>
         implements Converter<ResponseBody, T> {
+    private static final String UTF_8 = "UTF-8";
+    private static final MediaType XML_MEDIA_TYPE = MediaType.parse("text/xml; charset=UTF-8");
+
     private final Converter<ResponseBody, T> bodyConverter;
-    private final Provider<XmlPullParser> pullParserProvider;
-    private final Provider<XmlSerializer> serializerProvider;
-    private final SoapSpec soapSpec;
+    private final XmlPool<XmlPullParser> pullParserPool;
+    private final XmlPool<XmlSerializer> serializerPool;
+    private final SoapTags tags;
+    private final boolean streaming;
+    private final FaultDetailConverter detailConverter;
+    private final boolean faultStackTraces;
+    private final RetroSoapMetrics metrics;
+    private final String soapAction;
+    private final XmlCodec<T> codec;
+
+    ResponseConverter(Converter<ResponseBody, T> bodyConverter,
+                      XmlPool<XmlPullParser> pullParserPool,
+                      XmlPool<XmlSerializer> serializerPool,
+                      SoapSpec soapSpec,
+                      boolean streaming,
+                      @Nullable FaultDetailConverter detailConverter,
+                      boolean faultStackTraces,
+                      RetroSoapMetrics metrics,
+                      @Nullable String soapAction) {
+        this(bodyConverter,
+                pullParserPool,
+                serializerPool,
+                soapSpec,
+                streaming,
+                detailConverter,
+                faultStackTraces,
+                metrics,
+                soapAction,
+                null);
+    }
 
+    // With a codec, the body is read by the codec straight from the
+    // envelope parser, and the body converter is not used.
     ResponseConverter(Converter<ResponseBody, T> bodyConverter,
-                      Provider<XmlPullParser> pullParserProvider,
-                      Provider<XmlSerializer> serializerProvider,
-                      SoapSpec soapSpec) {
+                      XmlPool<XmlPullParser> pullParserPool,
+                      XmlPool<XmlSerializer> serializerPool,
+                      SoapSpec soapSpec,
+                      boolean streaming,
+                      @Nullable FaultDetailConverter detailConverter,
+                      boolean faultStackTraces,
+                      RetroSoapMetrics metrics,
+                      @Nullable String soapAction,
+                      @Nullable XmlCodec<T> codec) {
         this.bodyConverter = bodyConverter;
-        this.serializerProvider = serializerProvider;
-        this.pullParserProvider = pullParserProvider;
-        this.soapSpec = soapSpec;
+        this.serializerPool = serializerPool;
+        this.pullParserPool = pullParserPool;
+        this.tags = SoapTags.of(soapSpec);
+        this.streaming = streaming;
+        this.detailConverter = detailConverter;
+        this.faultStackTraces = faultStackTraces;
+        this.metrics = metrics;
+        this.soapAction = soapAction;
+        this.codec = codec;
     }
 
     @Override
     public T convert(@Nonnull ResponseBody responseBody) throws IOException {
         requireNonNull(responseBody);
+        boolean timed = metrics != RetroSoapMetrics.NONE;
+        long start = timed ? System.nanoTime() : 0;
+        boolean direct = streaming || codec != null;
+        byte[] document = direct
+                ? null
+                : responseBody.bytes();
+        XmlPullParser pullParser = pullParserPool.acquire();
+        // Once the streaming source is created, it is responsible for
+        // releasing the parser
+        boolean release = true;
         try {
-            StringWriter output = new StringWriter();
-            XmlSerializer serializer = serializerProvider.get();
-            serializer.setOutput(output);
-
-            XmlPullParser pullParser = pullParserProvider.get();
-            pullParser.setInput(responseBody.byteStream(), null);
+            pullParser.setInput(direct
+                            ? responseBody.byteStream()
+                            : new ByteArrayInputStream(document),
+                    null);
             ParserAdapter parser = new ParserAdapter(pullParser);
 
-            QName body = new QName(soapSpec.getEnvelopeNamespace(),
-                    RetroSoapFactory.BODY_TAG);
+            TagMatcher body = tags.getBody();
 
             parser.next();
             while (!parser.isTagStart(body)) {
                 checkDocumentEnd(parser, "Body start");
                 parser.next();
             }
+            String bodyName = BodySlicer.qualifiedName(parser.getPrefix(), parser.getName());
+            int bodyDepth = parser.getDepth();
 
             parser.next();
             while (!parser.isTagStart() && !parser.isDocumentEnd()) {
                 parser.next();
             }
 
-            throwFault(parser);
+            throwFault(parser, document, bodyName, responseBody.contentType());
 
-            while (!parser.isTagEnd(body)) {
-                checkDocumentEnd(parser, "Body end");
-                switch (parser.getEventType()) {
-                    case XmlPullParser.START_TAG:
-                        registerPrefix(parser.getPrefix(),
-                                parser.getNamespace(),
-                                serializer);
-                        for (Attribute attribute : parser.getAttributes()) {
-                            registerPrefix(attribute.getPrefix(),
-                                    parser.getNamespace(),
-                                    serializer);
-                        }
-                        serializer.startTag(lookupNamespace(parser),
-                                parser.getName());
-                        for (Attribute attribute : parser.getAttributes()) {
-                            serializer.attribute(lookupNamespace(attribute.getPrefix(),
-                                    attribute.getNamespace(),
-                                    parser),
-                                    attribute.getName(),
-                                    attribute.getValue());
-                        }
-                        break;
-                    case XmlPullParser.END_TAG:
-                        serializer.endTag(lookupNamespace(parser),
-                                parser.getName());
-                        break;
-                    default:
-                        serializer.text(parser.getText());
+            if (codec != null) {
+                try {
+                    checkDocumentEnd(parser, "Body end");
+                    long unwrapped = timed ? System.nanoTime() : 0;
+                    // An empty Body has no element to read
+                    T result = parser.isTagStart()
+                            ? codec.read(pullParser)
+                            : null;
+                    if (timed) {
+                        metrics.responseConverted(soapAction,
+                                unwrapped - start,
+                                System.nanoTime() - unwrapped,
+                                responseBody.contentLength());
+                    }
+                    return result;
+                } finally {
+                    responseBody.close();
                 }
-                parser.next();
             }
-            serializer.endDocument();
 
-            return bodyConverter.convert(ResponseBody.create(responseBody.contentType(),
-                    output.toString()));
+            if (streaming) {
+                checkDocumentEnd(parser, "Body end");
+                StreamingBodySource source = new StreamingBodySource(responseBody,
+                        parser,
+                        pullParser,
+                        pullParserPool,
+                        serializerPool,
+                        body,
+                        bodyDepth);
+                release = false;
+                ResponseBody content = ResponseBody.create(utf8(responseBody.contentType()),
+                        -1,
+                        Okio.buffer(source));
+                return timed
+                        ? convertTimed(content, start, responseBody.contentLength())
+                        : bodyConverter.convert(content);
+            }
+
+            ResponseBody content = parser.isTagStart()
+                    ? BodySlicer.slice(document,
+                    parser,
+                    bodyName,
+                    responseBody.contentType())
+                    : null;
+            if (content == null) {
+                content = ResponseBody.create(responseBody.contentType(),
+                        copyBody(parser, body, bodyDepth));
+            }
+            pullParserPool.release(pullParser);
+            release = false;
+            return timed
+                    ? convertTimed(content, start, document.length)
+                    : bodyConverter.convert(content);
 
         } catch (XmlPullParserException ex) {
             throw new IOException(ex);
+        } finally {
+            if (release) {
+                pullParserPool.release(pullParser);
+            }
         }
     }
 
-    private void throwFault(ParserAdapter parser) {
-        QName fault = new QName(soapSpec.getEnvelopeNamespace(),
-                RetroSoapFactory.FAULT_TAG);
+    // The streaming source writes UTF-8, whatever the document encoding
+    private static MediaType utf8(@Nullable MediaType contentType) {
+        if (contentType == null) {
+            return XML_MEDIA_TYPE;
+        }
+        return BodySlicer.UTF_8.equals(contentType.charset())
+                ? contentType
+                : MediaType.parse(contentType.type() + "/" + contentType.subtype() + "; charset=UTF-8");
+    }
 
-        if (parser.isTagStart(fault)) {
-            boolean inCode = false;
-            boolean inString = false;
+    private T convertTimed(ResponseBody content, long start, long bytes) throws IOException {
+        long unwrapped = System.nanoTime();
+        T result = bodyConverter.convert(content);
+        metrics.responseConverted(soapAction,
+                unwrapped - start,
+                System.nanoTime() - unwrapped,
+                bytes);
+        return result;
+    }
 
-            QName faultCode = new QName("",
-                    RetroSoapFactory.FAULT_CODE_TAG);
+    private String copyBody(ParserAdapter parser, TagMatcher body, int bodyDepth) throws IOException {
+        StringWriter output = new StringWriter();
+        XmlSerializer serializer = serializerPool.acquire();
+        try {
+            serializer.setOutput(output);
+            BodyCopier copier = new BodyCopier(parser, serializer, bodyDepth);
 
-            QName faultString = new QName("",
-                    RetroSoapFactory.FAULT_STRING_TAG);
+            while (!parser.isTagEnd(body)) {
+                checkDocumentEnd(parser, "Body end");
+                copier.copyEvent();
+                parser.next();
+            }
+            serializer.endDocument();
+            return output.toString();
+        } finally {
+            serializerPool.release(serializer);
+        }
+    }
 
-            StringBuilder code = new StringBuilder();
-            StringBuilder string = new StringBuilder();
+    // Without the buffered document, the fault detail is copied while
+    // parsing instead of sliced
+    private void throwFault(ParserAdapter parser,
+                            @Nullable byte[] document,
+                            String bodyName,
+                            @Nullable MediaType contentType) throws IOException {
+        TagMatcher fault = tags.getFault();
+
+        if (parser.isTagStart(fault)) {
+            String faultName = BodySlicer.qualifiedName(parser.getPrefix(), parser.getName());
+            // For SOAP 1.2, code matches every Value element: the first one is
+            // the Code value and the rest come from nested Subcodes. Only the
+            // first Reason Text is kept.
+            TagMatcher faultCode = tags.getFaultCode();
+            TagMatcher faultString = tags.getFaultString();
+            TagMatcher faultDetail = tags.getFaultDetail();
+
+            String code = null;
+            List<String> subcodes = new ArrayList<>();
+            String string = null;
+            String lang = null;
+            FaultDetail detail = null;
             parser.next();
 
-            while (!parser.isTagEnd(fault) || parser.isDocumentEnd()) {
-                if (parser.isTagEnd(faultCode)) {
-                    inCode = false;
-                } else if (parser.isTagEnd(faultString)) {
-                    inString = false;
-                }
-                if (inCode) {
-                    code.append(parser.getText());
-                } else if (inString) {
-                    string.append(parser.getText());
-                }
+            while (!parser.isTagEnd(fault)) {
+                checkDocumentEnd(parser, "Fault end");
                 if (parser.isTagStart(faultCode)) {
-                    inCode = true;
+                    String value = readText(parser);
+                    if (code == null) {
+                        code = value;
+                    } else {
+                        subcodes.add(value);
+                    }
                 } else if (parser.isTagStart(faultString)) {
-                    inString = true;
+                    if (string == null) {
+                        lang = parser.getAttribute(RetroSoapFactory.XML_NAMESPACE,
+                                RetroSoapFactory.LANG_ATTRIBUTE);
+                        string = readText(parser);
+                    } else {
+                        parser.skipSubtree();
+                    }
+                } else if (parser.isTagStart(faultDetail)) {
+                    detail = document != null
+                            ? FaultDetail.slice(document, parser, bodyName, faultName, contentType)
+                            : null;
+                    if (detail != null) {
+                        parser.skipSubtree();
+                    } else {
+                        detail = FaultDetail.of(copyDetail(parser));
+                    }
                 }
                 parser.next();
             }
-            throw new SoapFault(code.toString(),
-                    string.toString());
+            if (code == null) {
+                code = "";
+            }
+            metrics.faultReceived(soapAction, code);
+            throw new SoapFault(code,
+                    string != null ? string : "",
+                    subcodes,
+                    lang,
+                    detail,
+                    detailConverter,
+                    faultStackTraces);
         }
     }
 
-    private static void checkDocumentEnd(ParserAdapter parser, String requiredTag) {
-        if (parser.isDocumentEnd()) {
-            throw new RuntimeException(requiredTag + " tag not found.");
+    // Reads the text of a simple element, leaving the parser at its end tag
+    private static String readText(ParserAdapter parser) {
+        int depth = parser.getDepth();
+        StringBuilder text = new StringBuilder();
+        parser.next();
+        while (!(parser.isTagEnd() && parser.getDepth() == depth)) {
+            checkDocumentEnd(parser, "Fault element end");
+            if (parser.isText()) {
+                text.append(parser.getText());
+            }
+            parser.next();
         }
+        return text.toString();
     }
 
-    private static String lookupNamespace(String prefix,
-                                          String namespace,
-                                          ParserAdapter parser) {
-        return namespace != null
-                ? namespace
-                : parser.getNamespace(prefix);
-    }
-
-    private static String lookupNamespace(ParserAdapter parser) {
-        return lookupNamespace(parser.getPrefix(),
-                parser.getNamespace(),
-                parser);
+    // Copies detail contents, leaving the parser at the detail end tag.
+    // Detail is kept as bytes and only decoded if the caller asks for it.
+    private ByteString copyDetail(ParserAdapter parser) throws IOException {
+        int depth = parser.getDepth();
+        Buffer output = new Buffer();
+        XmlSerializer serializer = serializerPool.acquire();
+        try {
+            serializer.setOutput(output.outputStream(), UTF_8);
+            BodyCopier copier = new BodyCopier(parser, serializer, depth);
+            parser.next();
+            while (!(parser.isTagEnd() && parser.getDepth() == depth)) {
+                checkDocumentEnd(parser, "Detail end");
+                copier.copyEvent();
+                parser.next();
+            }
+            serializer.endDocument();
+            return output.readByteString();
+        } finally {
+            serializerPool.release(serializer);
+        }
     }
 
-    private static void registerPrefix(String prefix,
-                                       String namespace,
-                                       XmlSerializer serializer) throws IOException {
-        if (namespace != null && prefix != null) {
-            serializer.setPrefix(prefix, namespace);
+    private static void checkDocumentEnd(ParserAdapter parser, String requiredTag) {
+        if (parser.isDocumentEnd()) {
+            throw new RuntimeException(requiredTag + " tag not found.");
         }
     }
-
 }
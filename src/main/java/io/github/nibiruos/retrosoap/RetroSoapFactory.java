@@ -4,16 +4,22 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlSerializer;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Provider;
 
+import okhttp3.MediaType;
+import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import retrofit2.Converter;
 import retrofit2.Retrofit;
+import retrofit2.http.Headers;
 
 import static java.util.Objects.requireNonNull;
 
@@ -22,23 +28,47 @@ public class RetroSoapFactory extends Converter.Factory {
     static final String FAULT_TAG = "Fault";
     static final String FAULT_CODE_TAG = "faultcode";
     static final String FAULT_STRING_TAG = "faultstring";
+    static final String FAULT_DETAIL_TAG = "detail";
+    static final String FAULT_VALUE_12_TAG = "Value";
+    static final String FAULT_TEXT_12_TAG = "Text";
+    static final String FAULT_DETAIL_12_TAG = "Detail";
+    static final String XML_NAMESPACE = "http://www.w3.org/XML/1998/namespace";
+    static final String LANG_ATTRIBUTE = "lang";
     static final String ENVELOPE_TAG = "Envelope";
     static final String HEADER_TAG = "Header";
     static final String SOAP_ENVELOPE_PREFIX = "soapenv";
+    static final String SOAP_ACTION_HEADER = "SOAPAction";
+    static final String CONTENT_TYPE_HEADER = "Content-Type";
+    static final String ACTION_PARAMETER = "action";
 
-    private final Provider<XmlSerializer> serializerProvider;
-    private final Provider<XmlPullParser> pullParserProvider;
+    private final XmlPool<XmlSerializer> serializerPool;
+    private final XmlPool<XmlPullParser> pullParserPool;
     private final SoapSpec soapSpec;
+    private final boolean streamingResponses;
+    private final boolean faultStackTraces;
+    private final EnvelopeTemplate envelopeTemplate;
+    private final RetroSoapMetrics metrics;
 
     public static RetroSoapFactory create(@Nonnull Converter.Factory bodyFactory,
                                           @Nonnull Provider<XmlSerializer> serializerProvider,
                                           @Nonnull Provider<XmlPullParser> pullParserProvider,
                                           @Nonnull SoapSpec soapSpec) {
+        return builder(bodyFactory,
+                serializerProvider,
+                pullParserProvider,
+                soapSpec)
+                .build();
+    }
+
+    public static Builder builder(@Nonnull Converter.Factory bodyFactory,
+                                  @Nonnull Provider<XmlSerializer> serializerProvider,
+                                  @Nonnull Provider<XmlPullParser> pullParserProvider,
+                                  @Nonnull SoapSpec soapSpec) {
         requireNonNull(bodyFactory);
         requireNonNull(serializerProvider);
         requireNonNull(pullParserProvider);
         requireNonNull(soapSpec);
-        return new RetroSoapFactory(bodyFactory,
+        return new Builder(bodyFactory,
                 serializerProvider,
                 pullParserProvider,
                 soapSpec);
@@ -46,14 +76,20 @@ public class RetroSoapFactory extends Converter.Factory {
 
     private final Converter.Factory bodyFactory;
 
-    private RetroSoapFactory(Converter.Factory bodyFactory,
-                             Provider<XmlSerializer> serializerProvider,
-                             Provider<XmlPullParser> pullParserProvider,
-                             SoapSpec soapSpec) {
-        this.bodyFactory = bodyFactory;
-        this.serializerProvider = serializerProvider;
-        this.pullParserProvider = pullParserProvider;
-        this.soapSpec = soapSpec;
+    private RetroSoapFactory(Builder builder) {
+        this.bodyFactory = builder.bodyFactory;
+        this.serializerPool = XmlPool.serializers(builder.serializerProvider,
+                builder.poolSize);
+        this.pullParserPool = XmlPool.pullParsers(builder.pullParserProvider,
+                builder.poolSize);
+        this.soapSpec = builder.soapSpec;
+        this.streamingResponses = builder.streamingResponses;
+        this.faultStackTraces = builder.faultStackTraces;
+        this.envelopeTemplate = EnvelopeTemplate.create(serializerPool,
+                soapSpec,
+                SOAP_ENVELOPE_PREFIX,
+                builder.headerProviders);
+        this.metrics = builder.metrics;
     }
 
     @Override
@@ -62,30 +98,203 @@ public class RetroSoapFactory extends Converter.Factory {
                                                           Annotation[] parameterAnnotations,
                                                           Annotation[] methodAnnotations,
                                                           Retrofit retrofit) {
+        if (getRawType(type) == MtomBody.class && type instanceof ParameterizedType) {
+            Converter<?, RequestBody> envelopeConverter = requestBodyConverter(getParameterUpperBound(0, (ParameterizedType) type),
+                    parameterAnnotations,
+                    methodAnnotations,
+                    retrofit);
+            return envelopeConverter != null
+                    ? mtomRequestConverter(envelopeConverter)
+                    : null;
+        }
         Converter<?, RequestBody> converter = bodyFactory.requestBodyConverter(type,
                 parameterAnnotations,
                 methodAnnotations,
                 retrofit);
         return converter != null
-                ? new RequestConverter<>((Converter<Object, RequestBody>) converter,
-                serializerProvider,
-                soapSpec)
+                ? requestConverter(converter, getSoapAction(methodAnnotations))
                 : null;
     }
 
+    // Generic helpers capture the converted type, so the wrapping
+    // converters need no cast
+    private <T> Converter<MtomBody<T>, RequestBody> mtomRequestConverter(Converter<T, RequestBody> envelopeConverter) {
+        return new MtomRequestConverter<>(envelopeConverter, soapSpec);
+    }
+
+    private <T> Converter<T, RequestBody> requestConverter(Converter<T, RequestBody> converter,
+                                                           @Nullable String soapAction) {
+        return new RequestConverter<>(converter, envelopeTemplate, metrics, soapAction);
+    }
+
     @Override
     @Nullable
     public Converter<ResponseBody, ?> responseBodyConverter(Type type,
                                                             Annotation[] annotations,
                                                             Retrofit retrofit) {
+        if (getRawType(type) == MtomResponse.class && type instanceof ParameterizedType) {
+            Converter<ResponseBody, ?> envelopeConverter = responseBodyConverter(getParameterUpperBound(0, (ParameterizedType) type),
+                    annotations,
+                    retrofit);
+            return envelopeConverter != null
+                    ? mtomResponseConverter(envelopeConverter)
+                    : null;
+        }
         Converter<ResponseBody, ?> converter = bodyFactory.responseBodyConverter(type,
                 annotations,
                 retrofit);
         return converter != null
-                ? new ResponseConverter<>((Converter<ResponseBody, Object>) converter,
-                pullParserProvider,
-                serializerProvider,
-                soapSpec)
+                ? responseConverter(converter, type, annotations, retrofit)
+                : null;
+    }
+
+    private static <T> Converter<ResponseBody, MtomResponse<T>> mtomResponseConverter(Converter<ResponseBody, T> envelopeConverter) {
+        return new MtomResponseConverter<>(envelopeConverter);
+    }
+
+    private <T> Converter<ResponseBody, T> responseConverter(Converter<ResponseBody, T> converter,
+                                                             Type type,
+                                                             Annotation[] annotations,
+                                                             Retrofit retrofit) {
+        return new ResponseConverter<>(converter,
+                pullParserPool,
+                serializerPool,
+                soapSpec,
+                streamingResponses,
+                new FaultDetailConverter(bodyFactory, retrofit),
+                faultStackTraces,
+                metrics,
+                getSoapAction(annotations),
+                getCodec(type, converter));
+    }
+
+    // The body factory created the converter from this same codec, so
+    // both read the converted type. The converter only binds the type.
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private <T> XmlCodec<T> getCodec(Type type, Converter<ResponseBody, T> converter) {
+        return bodyFactory instanceof XmlCodecFactory
+                ? (XmlCodec<T>) ((XmlCodecFactory) bodyFactory).getCodec(type)
                 : null;
     }
+
+    // SOAPAction declared with @Headers, used to tag metrics. SOAP 1.2
+    // actions are taken from the content type, quoted like SOAPAction
+    // values so both versions are tagged alike.
+    @Nullable
+    static String getSoapAction(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Headers) {
+                for (String header : ((Headers) annotation).value()) {
+                    if (header.startsWith(SoapConstants.SOAP_ACTION_PREFIX)) {
+                        return header.substring(SoapConstants.SOAP_ACTION_PREFIX.length()).trim();
+                    }
+                    if (header.regionMatches(true, 0, CONTENT_TYPE_HEADER + ":", 0, CONTENT_TYPE_HEADER.length() + 1)) {
+                        String soapAction = getSoapAction(MediaType.parse(header.substring(CONTENT_TYPE_HEADER.length() + 1).trim()));
+                        if (soapAction != null) {
+                            return soapAction;
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    // Same as above, for the interceptors
+    @Nullable
+    static String getSoapAction(Request request) {
+        String soapAction = request.header(SOAP_ACTION_HEADER);
+        if (soapAction != null) {
+            return soapAction;
+        }
+        return request.body() != null
+                ? getSoapAction(request.body().contentType())
+                : null;
+    }
+
+    @Nullable
+    private static String getSoapAction(@Nullable MediaType contentType) {
+        String action = contentType != null
+                ? MultipartReader.parameter(contentType, ACTION_PARAMETER)
+                : null;
+        return action != null
+                ? "\"" + action + "\""
+                : null;
+    }
+
+    public PoolStatistics getPullParserPoolStatistics() {
+        return pullParserPool.getStatistics();
+    }
+
+    public PoolStatistics getSerializerPoolStatistics() {
+        return serializerPool.getStatistics();
+    }
+
+    public static class Builder {
+        private final Converter.Factory bodyFactory;
+        private final Provider<XmlSerializer> serializerProvider;
+        private final Provider<XmlPullParser> pullParserProvider;
+        private final SoapSpec soapSpec;
+        private boolean streamingResponses;
+        private int poolSize;
+        private boolean faultStackTraces = true;
+        private RetroSoapMetrics metrics = RetroSoapMetrics.NONE;
+        private final List<HeaderProvider> headerProviders = new ArrayList<>();
+
+        private Builder(Converter.Factory bodyFactory,
+                        Provider<XmlSerializer> serializerProvider,
+                        Provider<XmlPullParser> pullParserProvider,
+                        SoapSpec soapSpec) {
+            this.bodyFactory = bodyFactory;
+            this.serializerProvider = serializerProvider;
+            this.pullParserProvider = pullParserProvider;
+            this.soapSpec = soapSpec;
+        }
+
+        // Body contents are serialized while the body converter reads them,
+        // instead of buffering the whole response first.
+        public Builder streamingResponses(boolean streamingResponses) {
+            this.streamingResponses = streamingResponses;
+            return this;
+        }
+
+        // Maximum number of idle parsers and serializers kept for reuse.
+        // Zero, the default, gets a new instance from the providers on
+        // every conversion.
+        public Builder poolSize(int poolSize) {
+            if (poolSize < 0) {
+                throw new IllegalArgumentException("Pool size can not be negative: " + poolSize);
+            }
+            this.poolSize = poolSize;
+            return this;
+        }
+
+        // Filling in stack traces dominates the cost of a fault, and they
+        // only show where the response was parsed. Disable them when
+        // faults are frequent and handled as regular results.
+        public Builder faultStackTraces(boolean faultStackTraces) {
+            this.faultStackTraces = faultStackTraces;
+            return this;
+        }
+
+        // Add a MetricsInterceptor to the OkHttp client to also get
+        // transport timings
+        public Builder metrics(@Nonnull RetroSoapMetrics metrics) {
+            this.metrics = requireNonNull(metrics);
+            return this;
+        }
+
+        // Header elements are written in the order providers are added
+        public Builder headerProvider(@Nonnull HeaderProvider headerProvider) {
+            headerProviders.add(requireNonNull(headerProvider));
+            return this;
+        }
+
+        public RetroSoapFactory build() {
+            RetroSoapFactory factory = new RetroSoapFactory(this);
+            metrics.registered(factory);
+            return factory;
+        }
+    }
 }
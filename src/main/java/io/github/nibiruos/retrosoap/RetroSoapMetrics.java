@@ -0,0 +1,55 @@
+package io.github.nibiruos.retrosoap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+
+// Receives timings and sizes of each phase of a SOAP call. Calls are
+// tagged with the SOAPAction declared in the service method headers, or
+// null if there is none. Methods are called from the threads doing the
+// conversion, so implementations must be thread safe and fast.
+// Override only the events of interest; NONE ignores everything and
+// disables time measurement altogether.
+public abstract class RetroSoapMetrics {
+    public static final RetroSoapMetrics NONE = new RetroSoapMetrics() {
+    };
+
+    // Called once the factory is built. Pool statistics can be polled
+    // from it at any time.
+    public void registered(@Nonnull RetroSoapFactory factory) {
+    }
+
+    // Body serialization by the body converter and wrapping into the
+    // envelope, including streaming it to the connection. Reported when
+    // the request is first written, with the envelope size.
+    public void requestConverted(@Nullable String soapAction,
+                                 long bodyNanos,
+                                 long wrapNanos,
+                                 long bytes) {
+    }
+
+    // Envelope unwrapping and body conversion by the body converter. For
+    // streaming responses, body conversion includes unwrapping the body
+    // contents. Size is -1 if unknown.
+    public void responseConverted(@Nullable String soapAction,
+                                  long unwrapNanos,
+                                  long bodyNanos,
+                                  long bytes) {
+    }
+
+    public void faultReceived(@Nullable String soapAction,
+                              @Nonnull String faultCode) {
+    }
+
+    // Time from sending the request until response headers are received,
+    // measured by MetricsInterceptor
+    public void transportCompleted(@Nullable String soapAction,
+                                   int httpCode,
+                                   long nanos) {
+    }
+
+    public void transportFailed(@Nullable String soapAction,
+                                long nanos,
+                                @Nonnull IOException exception) {
+    }
+}
@@ -0,0 +1,274 @@
+package io.github.nibiruos.retrosoap;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import javax.annotation.Nullable;
+import javax.xml.namespace.QName;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Reads the schemas of a WSDL types section into a WsdlSchema. Imported
+// and included schema documents are not fetched.
+class SchemaParser {
+    static final String XSD_NAMESPACE = "http://www.w3.org/2001/XMLSchema";
+    private static final String QUALIFIED = "qualified";
+    private static final String UNBOUNDED = "unbounded";
+
+    private final XmlPullParser parser;
+    private final Map<QName, WsdlSchema.Element> elements = new LinkedHashMap<>();
+    private final Map<QName, WsdlSchema.ComplexType> complexTypes = new LinkedHashMap<>();
+    private final Map<QName, WsdlSchema.SimpleType> simpleTypes = new LinkedHashMap<>();
+    private String targetNamespace;
+    private boolean elementsQualified;
+    private String unsupported;
+
+    SchemaParser(XmlPullParser parser) {
+        this.parser = parser;
+    }
+
+    WsdlSchema parse() throws IOException, XmlPullParserException {
+        for (int event = parser.next(); event != XmlPullParser.END_DOCUMENT; event = parser.next()) {
+            if (event == XmlPullParser.START_TAG && isXsd("schema")) {
+                parseSchema();
+            }
+        }
+        return new WsdlSchema(elements, complexTypes, simpleTypes);
+    }
+
+    private void parseSchema() throws IOException, XmlPullParserException {
+        String namespace = attribute("targetNamespace");
+        targetNamespace = namespace != null
+                ? namespace
+                : "";
+        elementsQualified = QUALIFIED.equals(attribute("elementFormDefault"));
+        int depth = parser.getDepth();
+        while (nextChild(depth)) {
+            if (isXsd("element")) {
+                WsdlSchema.Element element = parseElement(true);
+                elements.put(element.getName(), element);
+            } else if (isXsd("complexType")) {
+                QName name = new QName(targetNamespace, attribute("name"));
+                complexTypes.put(name, parseComplexType(name));
+            } else if (isXsd("simpleType")) {
+                QName name = new QName(targetNamespace, attribute("name"));
+                simpleTypes.put(name, new WsdlSchema.SimpleType(name, parseSimpleType()));
+            } else {
+                skip();
+            }
+        }
+    }
+
+    private WsdlSchema.Element parseElement(boolean topLevel) throws IOException, XmlPullParserException {
+        String name = attribute("name");
+        QName type = qualifiedName(attribute("type"));
+        QName ref = qualifiedName(attribute("ref"));
+        String form = attribute("form");
+        boolean qualified = topLevel || (form != null
+                ? QUALIFIED.equals(form)
+                : elementsQualified);
+        boolean optional = "0".equals(attribute("minOccurs"))
+                || "true".equals(attribute("nillable"));
+        String maxOccurs = attribute("maxOccurs");
+        boolean repeated = maxOccurs != null && (UNBOUNDED.equals(maxOccurs) || Integer.parseInt(maxOccurs) > 1);
+
+        WsdlSchema.ComplexType complexType = null;
+        int depth = parser.getDepth();
+        while (nextChild(depth)) {
+            if (isXsd("complexType")) {
+                complexType = parseComplexType(null);
+            } else if (isXsd("simpleType")) {
+                type = parseSimpleType();
+            } else {
+                skip();
+            }
+        }
+        return new WsdlSchema.Element(name != null
+                ? new QName(qualified ? targetNamespace : "", name)
+                : null,
+                type,
+                complexType,
+                ref,
+                optional,
+                repeated);
+    }
+
+    private WsdlSchema.ComplexType parseComplexType(@Nullable QName name) throws IOException, XmlPullParserException {
+        String outerUnsupported = unsupported;
+        unsupported = null;
+        QName base = null;
+        QName simpleContent = null;
+        List<WsdlSchema.Element> typeElements = new ArrayList<>();
+        List<WsdlSchema.Attribute> attributes = new ArrayList<>();
+        int depth = parser.getDepth();
+        while (nextChild(depth)) {
+            if (isXsd("complexContent") || isXsd("simpleContent")) {
+                boolean simple = isXsd("simpleContent");
+                int contentDepth = parser.getDepth();
+                while (nextChild(contentDepth)) {
+                    if (isXsd("extension")) {
+                        QName extended = qualifiedName(attribute("base"));
+                        if (simple) {
+                            simpleContent = extended;
+                        } else {
+                            base = extended;
+                        }
+                        parseContent(typeElements, attributes);
+                    } else {
+                        unsupported(parser.getName() + " of " + (simple ? "simple" : "complex") + " content");
+                        skip();
+                    }
+                }
+            } else {
+                parseContentChild(typeElements, attributes);
+            }
+        }
+        WsdlSchema.ComplexType complexType = new WsdlSchema.ComplexType(name,
+                base,
+                simpleContent,
+                typeElements,
+                attributes,
+                unsupported);
+        unsupported = outerUnsupported;
+        return complexType;
+    }
+
+    private void parseContent(List<WsdlSchema.Element> typeElements,
+                              List<WsdlSchema.Attribute> attributes) throws IOException, XmlPullParserException {
+        int depth = parser.getDepth();
+        while (nextChild(depth)) {
+            parseContentChild(typeElements, attributes);
+        }
+    }
+
+    private void parseContentChild(List<WsdlSchema.Element> typeElements,
+                                   List<WsdlSchema.Attribute> attributes) throws IOException, XmlPullParserException {
+        if (isXsd("sequence") || isXsd("all")) {
+            parseParticles(typeElements, false);
+        } else if (isXsd("choice")) {
+            parseParticles(typeElements, true);
+        } else if (isXsd("attribute")) {
+            attributes.add(parseAttribute());
+        } else if (isXsd("group") || isXsd("attributeGroup")) {
+            unsupported(parser.getName());
+            skip();
+        } else {
+            // Annotations, wildcards
+            skip();
+        }
+    }
+
+    // Choices are read as sequences of optional elements
+    private void parseParticles(List<WsdlSchema.Element> typeElements,
+                                boolean choice) throws IOException, XmlPullParserException {
+        int depth = parser.getDepth();
+        while (nextChild(depth)) {
+            if (isXsd("element")) {
+                WsdlSchema.Element element = parseElement(false);
+                typeElements.add(choice && !element.isOptional()
+                        ? new WsdlSchema.Element(element.getName(),
+                        element.getType(),
+                        element.getComplexType(),
+                        element.getRef(),
+                        true,
+                        element.isRepeated())
+                        : element);
+            } else if (isXsd("sequence")) {
+                parseParticles(typeElements, choice);
+            } else if (isXsd("choice")) {
+                parseParticles(typeElements, true);
+            } else if (isXsd("group")) {
+                unsupported(parser.getName());
+                skip();
+            } else {
+                // Wildcards are skipped when read
+                skip();
+            }
+        }
+    }
+
+    private WsdlSchema.Attribute parseAttribute() throws IOException, XmlPullParserException {
+        String name = attribute("name");
+        if (name == null) {
+            unsupported("attribute reference");
+        }
+        QName type = qualifiedName(attribute("type"));
+        boolean required = "required".equals(attribute("use"));
+        int depth = parser.getDepth();
+        while (nextChild(depth)) {
+            if (isXsd("simpleType")) {
+                type = parseSimpleType();
+            } else {
+                skip();
+            }
+        }
+        return new WsdlSchema.Attribute(name != null ? name : "", type, required);
+    }
+
+    // Returns the restricted type, null for lists and unions
+    @Nullable
+    private QName parseSimpleType() throws IOException, XmlPullParserException {
+        QName base = null;
+        int depth = parser.getDepth();
+        while (nextChild(depth)) {
+            if (isXsd("restriction")) {
+                base = qualifiedName(attribute("base"));
+            }
+            skip();
+        }
+        return base;
+    }
+
+    private void unsupported(String construct) {
+        if (unsupported == null) {
+            unsupported = construct;
+        }
+    }
+
+    // Moves to the next child start tag, false at the end tag of the
+    // element at the given depth
+    private boolean nextChild(int depth) throws IOException, XmlPullParserException {
+        for (int event = parser.next(); event != XmlPullParser.END_DOCUMENT; event = parser.next()) {
+            if (event == XmlPullParser.START_TAG) {
+                return true;
+            }
+            if (event == XmlPullParser.END_TAG && parser.getDepth() == depth) {
+                return false;
+            }
+        }
+        throw new XmlPullParserException("Unexpected end of document", parser, null);
+    }
+
+    private void skip() throws IOException, XmlPullParserException {
+        int depth = parser.getDepth();
+        while (nextChild(depth)) {
+            skip();
+        }
+    }
+
+    private boolean isXsd(String name) {
+        return name.equals(parser.getName()) && XSD_NAMESPACE.equals(parser.getNamespace());
+    }
+
+    @Nullable
+    private String attribute(String name) {
+        return parser.getAttributeValue(null, name);
+    }
+
+    // Prefixes are resolved against the declarations in scope
+    @Nullable
+    private QName qualifiedName(@Nullable String value) {
+        if (value == null) {
+            return null;
+        }
+        int colon = value.indexOf(':');
+        String prefix = colon != -1
+                ? value.substring(0, colon)
+                : null;
+        String namespace = parser.getNamespace(prefix);
+        return new QName(namespace != null ? namespace : "", value.substring(colon + 1));
+    }
+}
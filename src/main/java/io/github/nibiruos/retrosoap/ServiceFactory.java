@@ -1,59 +1,340 @@
 package io.github.nibiruos.retrosoap;
 
+import okhttp3.OkHttpClient;
 import retrofit2.Retrofit;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import static java.util.Objects.requireNonNull;
 
 public class ServiceFactory {
     private final WsdlParser wsdlParser;
     private final Provider<Retrofit.Builder> retrofitBuilderProvider;
+    private final EndpointCache endpointCache;
+    private final ConcurrentMap<String, FutureTask<WsdlIndex>> pendingIndexes = new ConcurrentHashMap<>();
 
     @Inject
     public ServiceFactory(@Nonnull WsdlParser wsdlParser,
                           @Nonnull Provider<Retrofit.Builder> retrofitBuilderProvider) {
         this.wsdlParser = requireNonNull(wsdlParser);
         this.retrofitBuilderProvider = requireNonNull(retrofitBuilderProvider);
+        this.endpointCache = null;
+    }
+
+    public ServiceFactory(@Nonnull WsdlParser wsdlParser,
+                          @Nonnull Provider<Retrofit.Builder> retrofitBuilderProvider,
+                          @Nonnull EndpointCache endpointCache) {
+        this.wsdlParser = requireNonNull(wsdlParser);
+        this.retrofitBuilderProvider = requireNonNull(retrofitBuilderProvider);
+        this.endpointCache = requireNonNull(endpointCache);
     }
 
     public <T> T createService(Class<T> serviceClass,
-                               SoapSpec soapSpec,
-                               String wsdlUrl,
-                               String serviceName,
-                               String portName) {
-        String serviceUrl;
-        try (InputStream wsdl = new BufferedInputStream(new URL(wsdlUrl)
-                .openStream())) {
-            serviceUrl = wsdlParser.findServicePortUrl(wsdl,
-                    soapSpec,
-                    serviceName,
-                    portName);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+                               final SoapSpec soapSpec,
+                               final String wsdlUrl,
+                               final String serviceName,
+                               final String portName) {
+        return createService(serviceClass,
+                resolveServiceUrl(soapSpec,
+                        wsdlUrl,
+                        serviceName,
+                        portName,
+                        new Callable<String>() {
+                            @Override
+                            public String call() throws IOException {
+                                try (InputStream wsdl = openWsdl(wsdlUrl)) {
+                                    return wsdlParser.findServicePortUrl(wsdl,
+                                            soapSpec,
+                                            serviceName,
+                                            portName);
+                                }
+                            }
+                        }),
+                serviceName,
+                portName);
+    }
+
+    // Concurrent calls for the same WSDL share a single download and parse.
+    public <T> Future<T> createServiceAsync(@Nonnull ExecutorService executor,
+                                            final Class<T> serviceClass,
+                                            final SoapSpec soapSpec,
+                                            final String wsdlUrl,
+                                            final String serviceName,
+                                            final String portName) {
+        return executor.submit(new Callable<T>() {
+            @Override
+            public T call() {
+                return createService(serviceClass,
+                        resolveServiceUrl(soapSpec,
+                                wsdlUrl,
+                                serviceName,
+                                portName,
+                                new Callable<String>() {
+                                    @Override
+                                    public String call() {
+                                        return fetchIndex(soapSpec, wsdlUrl)
+                                                .findServicePortUrl(serviceName, portName);
+                                    }
+                                }),
+                        serviceName,
+                        portName);
+            }
+        });
+    }
+
+    // Each distinct WSDL not already cached is downloaded and parsed once,
+    // in parallel on the given executor, and the services using it are
+    // created right after on the same thread. Returns without blocking, with
+    // a future per request, in the same order as the requests.
+    public List<Future<?>> createServices(@Nonnull ExecutorService executor,
+                                          @Nonnull List<? extends ServiceRequest<?>> requests) {
+        requireNonNull(executor);
+        Map<String, FutureTask<WsdlIndex>> indexes = new LinkedHashMap<>();
+        Map<String, List<FutureTask<?>>> indexServices = new HashMap<>();
+        List<Future<?>> services = new ArrayList<>(requests.size());
+        for (final ServiceRequest<?> request : requests) {
+            if (endpointCache != null && endpointCache.get(request.getWsdlUrl(),
+                    request.getSoapSpec(),
+                    request.getServiceName(),
+                    request.getPortName()) != null) {
+                FutureTask<?> service = serviceTask(request, new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return fetchIndex(request.getSoapSpec(), request.getWsdlUrl())
+                                .findServicePortUrl(request.getServiceName(), request.getPortName());
+                    }
+                });
+                executor.execute(service);
+                services.add(service);
+                continue;
+            }
+            String key = indexKey(request.getSoapSpec(), request.getWsdlUrl());
+            if (!indexes.containsKey(key)) {
+                indexes.put(key, new FutureTask<>(new Callable<WsdlIndex>() {
+                    @Override
+                    public WsdlIndex call() {
+                        return fetchIndex(request.getSoapSpec(), request.getWsdlUrl());
+                    }
+                }));
+                indexServices.put(key, new ArrayList<FutureTask<?>>());
+            }
+            final Future<WsdlIndex> index = indexes.get(key);
+            FutureTask<?> service = serviceTask(request, new Callable<String>() {
+                @Override
+                public String call() {
+                    return getResult(index)
+                            .findServicePortUrl(request.getServiceName(), request.getPortName());
+                }
+            });
+            indexServices.get(key).add(service);
+            services.add(service);
         }
 
-        if (serviceUrl == null) {
+        for (Map.Entry<String, FutureTask<WsdlIndex>> index : indexes.entrySet()) {
+            final FutureTask<WsdlIndex> indexTask = index.getValue();
+            final List<FutureTask<?>> serviceTasks = indexServices.get(index.getKey());
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    indexTask.run();
+                    for (FutureTask<?> service : serviceTasks) {
+                        service.run();
+                    }
+                }
+            });
+        }
+        return services;
+    }
+
+    private <T> FutureTask<T> serviceTask(final ServiceRequest<T> request,
+                                          final Callable<String> fetcher) {
+        return new FutureTask<>(new Callable<T>() {
+            @Override
+            public T call() {
+                return createService(request.getServiceClass(),
+                        resolveServiceUrl(request.getSoapSpec(),
+                                request.getWsdlUrl(),
+                                request.getServiceName(),
+                                request.getPortName(),
+                                fetcher),
+                        request.getServiceName(),
+                        request.getPortName());
+            }
+        });
+    }
+
+    // Pool of every port sharing the binding of the matched one. Indexes
+    // are not kept in the EndpointCache, which holds a single URL per
+    // port.
+    public EndpointPool createEndpointPool(SoapSpec soapSpec,
+                                           String wsdlUrl,
+                                           String serviceName,
+                                           String portName,
+                                           @Nonnull EndpointPool.Strategy strategy) {
+        List<String> urls = fetchIndex(soapSpec, wsdlUrl)
+                .findEquivalentPortUrls(serviceName, portName);
+        if (urls.isEmpty()) {
             throw new IllegalStateException(String
                     .format("URL for service %s and port %s not found",
                             serviceName,
                             portName));
         }
+        return new EndpointPool(urls, strategy);
+    }
 
-        if (!serviceUrl.endsWith("/")) {
-            serviceUrl = serviceUrl + "/";
+    // Calls are spread among the pool endpoints by a LoadBalancingInterceptor
+    // added to the OkHttp client of the Retrofit builder.
+    public <T> T createService(Class<T> serviceClass,
+                               @Nonnull EndpointPool pool) {
+        requireNonNull(pool);
+        Retrofit retrofit = retrofitBuilderProvider.get()
+                .baseUrl(pool.getPrimaryUrl())
+                .build();
+        if (!(retrofit.callFactory() instanceof OkHttpClient)) {
+            throw new IllegalStateException("Load balancing requires an OkHttpClient call factory");
+        }
+        OkHttpClient client = ((OkHttpClient) retrofit.callFactory())
+                .newBuilder()
+                .addInterceptor(new LoadBalancingInterceptor(pool))
+                .build();
+        return retrofit.newBuilder()
+                .client(client)
+                .build()
+                .create(serviceClass);
+    }
+
+    private <T> T createService(Class<T> serviceClass,
+                                @Nullable String serviceUrl,
+                                String serviceName,
+                                String portName) {
+        if (serviceUrl == null) {
+            throw new IllegalStateException(String
+                    .format("URL for service %s and port %s not found",
+                            serviceName,
+                            portName));
         }
 
         return retrofitBuilderProvider.get()
-                .baseUrl(serviceUrl)
+                .baseUrl(EndpointPool.baseUrl(serviceUrl))
                 .build()
                 .create(serviceClass);
 
     }
+
+    @Nullable
+    private String resolveServiceUrl(SoapSpec soapSpec,
+                                     String wsdlUrl,
+                                     String serviceName,
+                                     String portName,
+                                     Callable<String> fetcher) {
+        if (endpointCache == null) {
+            return fetch(fetcher);
+        }
+
+        String serviceUrl = endpointCache.get(wsdlUrl,
+                soapSpec,
+                serviceName,
+                portName);
+        if (serviceUrl != null) {
+            return serviceUrl;
+        }
+
+        try {
+            serviceUrl = fetch(fetcher);
+        } catch (RuntimeException e) {
+            // Keep using the last known endpoint if the WSDL can not be refreshed
+            serviceUrl = endpointCache.getStale(wsdlUrl,
+                    soapSpec,
+                    serviceName,
+                    portName);
+            if (serviceUrl == null) {
+                throw e;
+            }
+            return serviceUrl;
+        }
+        if (serviceUrl != null) {
+            endpointCache.put(wsdlUrl,
+                    soapSpec,
+                    serviceName,
+                    portName,
+                    serviceUrl);
+        }
+        return serviceUrl;
+    }
+
+    private WsdlIndex fetchIndex(final SoapSpec soapSpec,
+                                 final String wsdlUrl) {
+        String key = indexKey(soapSpec, wsdlUrl);
+        FutureTask<WsdlIndex> task = new FutureTask<>(new Callable<WsdlIndex>() {
+            @Override
+            public WsdlIndex call() throws IOException {
+                try (InputStream wsdl = openWsdl(wsdlUrl)) {
+                    return wsdlParser.parseIndex(wsdl, soapSpec);
+                }
+            }
+        });
+        FutureTask<WsdlIndex> pending = pendingIndexes.putIfAbsent(key, task);
+        if (pending != null) {
+            return getResult(pending);
+        }
+        try {
+            task.run();
+        } finally {
+            pendingIndexes.remove(key, task);
+        }
+        return getResult(task);
+    }
+
+    private static InputStream openWsdl(String wsdlUrl) throws IOException {
+        return new BufferedInputStream(new URL(wsdlUrl)
+                .openStream());
+    }
+
+    private static String indexKey(SoapSpec soapSpec, String wsdlUrl) {
+        return soapSpec.name() + " " + wsdlUrl;
+    }
+
+    @Nullable
+    private static String fetch(Callable<String> fetcher) {
+        try {
+            return fetcher.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static <T> T getResult(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
 }
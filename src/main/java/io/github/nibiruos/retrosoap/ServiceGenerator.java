@@ -0,0 +1,227 @@
+package io.github.nibiruos.retrosoap;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Provider;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+// Generates Retrofit service interfaces from a WSDL index, one per
+// binding, with a method per operation. Request and response types are
+// named after the message elements, as the classes CodecGenerator writes.
+// Can be run at build time, for instance from a Gradle JavaExec task, to
+// write both the interfaces and the codecs:
+// ServiceGenerator <wsdl file> <V_1_1|V_1_2> <package> <output directory>
+public class ServiceGenerator {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+            "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+            "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+            "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
+            "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void",
+            "volatile", "while", "true", "false", "null"));
+
+    private final String packageName;
+
+    public ServiceGenerator(@Nonnull String packageName) {
+        this.packageName = requireNonNull(packageName);
+    }
+
+    public static void main(String[] args) throws IOException, XmlPullParserException {
+        if (args.length != 4) {
+            System.err.println("Usage: ServiceGenerator <wsdl file> <V_1_1|V_1_2> <package> <output directory>");
+            System.exit(1);
+        }
+        final XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        WsdlParser wsdlParser = new WsdlParser(new Provider<XmlPullParser>() {
+            @Override
+            public XmlPullParser get() {
+                try {
+                    return factory.newPullParser();
+                } catch (XmlPullParserException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        SoapSpec soapSpec = SoapSpec.valueOf(args[1]);
+        WsdlIndex index;
+        try (InputStream wsdl = new FileInputStream(args[0])) {
+            index = wsdlParser.parseIndex(wsdl, soapSpec);
+        }
+        WsdlSchema schema;
+        try (InputStream wsdl = new FileInputStream(args[0])) {
+            schema = wsdlParser.parseSchema(wsdl);
+        }
+        File outputDirectory = new File(args[3]);
+        List<File> files = new ArrayList<>(new ServiceGenerator(args[2]).generate(index, soapSpec, outputDirectory));
+        files.addAll(new CodecGenerator(args[2]).generate(schema, outputDirectory));
+        for (File file : files) {
+            System.out.println(file);
+        }
+    }
+
+    // Writes an interface per binding of the given SOAP version, named
+    // after it, and returns the files written
+    public List<File> generate(@Nonnull WsdlIndex index,
+                               @Nonnull SoapSpec soapSpec,
+                               @Nonnull File outputDirectory) throws IOException {
+        requireNonNull(index);
+        requireNonNull(soapSpec);
+        requireNonNull(outputDirectory);
+        File packageDirectory = new File(outputDirectory, packageName.replace('.', File.separatorChar));
+        if (!packageDirectory.isDirectory() && !packageDirectory.mkdirs()) {
+            throw new IOException("Can not create directory " + packageDirectory);
+        }
+        List<File> files = new ArrayList<>();
+        for (WsdlIndex.Binding binding : index.getBindings()) {
+            // WSDLs usually describe the same port type with a binding per
+            // SOAP version
+            if (binding.getSoapSpec() != soapSpec) {
+                continue;
+            }
+            String interfaceName = typeName(binding.getName());
+            File file = new File(packageDirectory, interfaceName + ".java");
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), UTF_8)) {
+                writer.write(generate(index, soapSpec, binding.getName(), interfaceName));
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    // Headers follow the SOAP version of the binding. The given one is
+    // only used for bindings without a known version.
+    public String generate(@Nonnull WsdlIndex index,
+                           @Nonnull SoapSpec soapSpec,
+                           @Nonnull String bindingName,
+                           @Nonnull String interfaceName) {
+        requireNonNull(index);
+        requireNonNull(soapSpec);
+        requireNonNull(interfaceName);
+        WsdlIndex.Binding binding = index.getBinding(bindingName);
+        if (binding == null) {
+            throw new IllegalArgumentException("Binding not found: " + bindingName);
+        }
+        if (binding.getSoapSpec() != null) {
+            soapSpec = binding.getSoapSpec();
+        }
+        WsdlIndex.PortType portType = binding.getPortType() != null
+                ? index.getPortType(binding.getPortType())
+                : null;
+
+        StringBuilder source = new StringBuilder();
+        source.append("// Generated by ServiceGenerator from binding ")
+                .append(bindingName)
+                .append(". Do not edit.\n");
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("import io.github.nibiruos.retrosoap.SoapConstants;\n")
+                .append("import retrofit2.Call;\n")
+                .append("import retrofit2.http.Body;\n")
+                .append("import retrofit2.http.Headers;\n")
+                .append("import retrofit2.http.POST;\n\n")
+                .append("public interface ").append(interfaceName).append(" {\n");
+        boolean first = true;
+        for (WsdlIndex.Operation operation : binding.getOperations()) {
+            WsdlIndex.PortTypeOperation signature = portType != null
+                    ? portType.getOperation(operation.getName())
+                    : null;
+            String input = signature != null
+                    ? elementType(index, signature.getInput())
+                    : null;
+            String output = signature != null
+                    ? elementType(index, signature.getOutput())
+                    : null;
+            String soapAction = operation.getSoapAction() != null
+                    ? operation.getSoapAction()
+                    : "";
+
+            if (!first) {
+                source.append('\n');
+            }
+            first = false;
+            if (soapSpec == SoapSpec.V_1_2) {
+                source.append("    @Headers({SoapConstants.SOAP_12_CONTENT_TYPE_ACTION_PREFIX + \"");
+            } else {
+                source.append("    @Headers({SoapConstants.CONTENT_TYPE_HEADER, SoapConstants.SOAP_ACTION_PREFIX + \"");
+            }
+            source.append(escape("\"" + soapAction + "\""))
+                    .append("\"})\n")
+                    .append("    @POST(\".\")\n")
+                    .append("    Call<").append(output != null ? output : "Void").append("> ")
+                    .append(methodName(operation.getName()))
+                    .append('(');
+            if (input != null) {
+                source.append("@Body ").append(input).append(" request");
+            }
+            source.append(");\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    @Nullable
+    private static String elementType(WsdlIndex index, @Nullable String messageName) {
+        if (messageName == null) {
+            return null;
+        }
+        WsdlIndex.Message message = index.getMessage(messageName);
+        return message != null && message.getElement() != null
+                ? CodecGenerator.className(message.getElement())
+                : null;
+    }
+
+    static String typeName(String name) {
+        String identifier = identifier(name);
+        return Character.toUpperCase(identifier.charAt(0)) + identifier.substring(1);
+    }
+
+    static String methodName(String name) {
+        String identifier = identifier(name);
+        identifier = Character.toLowerCase(identifier.charAt(0)) + identifier.substring(1);
+        return KEYWORDS.contains(identifier)
+                ? identifier + "_"
+                : identifier;
+    }
+
+    private static String identifier(String name) {
+        StringBuilder identifier = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (identifier.length() == 0
+                    ? Character.isJavaIdentifierStart(c)
+                    : Character.isJavaIdentifierPart(c)) {
+                identifier.append(c);
+            } else if (identifier.length() > 0) {
+                identifier.append('_');
+            }
+        }
+        return identifier.length() > 0
+                ? identifier.toString()
+                : "_";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,48 @@
+package io.github.nibiruos.retrosoap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import static java.util.Objects.requireNonNull;
+
+public class ServiceRequest<T> {
+    private final Class<T> serviceClass;
+    private final SoapSpec soapSpec;
+    private final String wsdlUrl;
+    private final String serviceName;
+    private final String portName;
+
+    public ServiceRequest(@Nonnull Class<T> serviceClass,
+                          @Nonnull SoapSpec soapSpec,
+                          @Nonnull String wsdlUrl,
+                          @Nullable String serviceName,
+                          @Nullable String portName) {
+        this.serviceClass = requireNonNull(serviceClass);
+        this.soapSpec = requireNonNull(soapSpec);
+        this.wsdlUrl = requireNonNull(wsdlUrl);
+        this.serviceName = serviceName;
+        this.portName = portName;
+    }
+
+    public Class<T> getServiceClass() {
+        return serviceClass;
+    }
+
+    public SoapSpec getSoapSpec() {
+        return soapSpec;
+    }
+
+    public String getWsdlUrl() {
+        return wsdlUrl;
+    }
+
+    @Nullable
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    @Nullable
+    public String getPortName() {
+        return portName;
+    }
+}
@@ -3,4 +3,8 @@ package io.github.nibiruos.retrosoap;
 public interface SoapConstants {
     String CONTENT_TYPE_HEADER = "Content-Type: text/xml;charset=UTF-8";
     String SOAP_ACTION_PREFIX = "SOAPAction: ";
+    // SOAP 1.2 carries the action as a content type parameter instead
+    String SOAP_12_CONTENT_TYPE_ACTION_PREFIX = "Content-Type: application/soap+xml;charset=UTF-8;action=";
+    // Marks an operation as safe to hedge with HedgingInterceptor
+    String IDEMPOTENT_HEADER = HedgingInterceptor.IDEMPOTENT_HEADER_NAME + ": true";
 }
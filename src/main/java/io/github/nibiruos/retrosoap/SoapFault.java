@@ -1,18 +1,46 @@
 package io.github.nibiruos.retrosoap;
 
+import okio.ByteString;
+
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import static java.util.Objects.requireNonNull;
 
 public class SoapFault extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
     private final String code;
     private final String string;
+    private final List<String> subcodes;
+    private final String lang;
+    private final FaultDetail detail;
+    private final transient FaultDetailConverter detailConverter;
 
     public SoapFault(@Nonnull String code,
                      @Nonnull String string) {
-        super(code + " - " + string);
+        this(code, string, Collections.<String>emptyList(), null, null, null, true);
+    }
+
+    SoapFault(@Nonnull String code,
+              @Nonnull String string,
+              @Nonnull List<String> subcodes,
+              @Nullable String lang,
+              @Nullable FaultDetail detail,
+              @Nullable FaultDetailConverter detailConverter,
+              boolean writableStackTrace) {
+        super(code + " - " + string, null, true, writableStackTrace);
         this.code = requireNonNull(code);
         this.string = requireNonNull(string);
+        this.subcodes = Collections.unmodifiableList(new ArrayList<>(subcodes));
+        this.lang = lang;
+        this.detail = detail;
+        this.detailConverter = detailConverter;
     }
 
     public String getCode() {
@@ -22,4 +50,43 @@ public class SoapFault extends RuntimeException {
     public String getString() {
         return string;
     }
+
+    // SOAP 1.2 Subcode values, outermost first. Empty for SOAP 1.1 faults.
+    public List<String> getSubcodes() {
+        return subcodes;
+    }
+
+    // xml:lang of the SOAP 1.2 Reason Text, if present
+    @Nullable
+    public String getLang() {
+        return lang;
+    }
+
+    // Contents of the detail element, as XML. Null if the fault has no
+    // detail.
+    @Nullable
+    public ByteString getDetail() {
+        return detail != null
+                ? detail.contents()
+                : null;
+    }
+
+    // Decodes the detail contents with the body converter factory
+    // configured in RetroSoapFactory. Decoding only happens when called.
+    @Nullable
+    public <T> T getDetail(@Nonnull Class<T> detailClass) throws IOException {
+        return detailClass.cast(getDetail((Type) detailClass));
+    }
+
+    @Nullable
+    public Object getDetail(@Nonnull Type detailType) throws IOException {
+        requireNonNull(detailType);
+        if (detail == null) {
+            return null;
+        }
+        if (detailConverter == null) {
+            throw new IllegalStateException("No converter available for fault detail");
+        }
+        return detailConverter.convert(detailType, detail.contents());
+    }
 }
@@ -0,0 +1,63 @@
+package io.github.nibiruos.retrosoap;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static io.github.nibiruos.retrosoap.RetroSoapFactory.*;
+
+class SoapTags {
+    private static final Map<SoapSpec, SoapTags> TAGS = new EnumMap<>(SoapSpec.class);
+
+    static {
+        for (SoapSpec soapSpec : SoapSpec.values()) {
+            TAGS.put(soapSpec, new SoapTags(soapSpec));
+        }
+    }
+
+    private final TagMatcher body;
+    private final TagMatcher fault;
+    private final TagMatcher faultCode;
+    private final TagMatcher faultString;
+    private final TagMatcher faultDetail;
+
+    private SoapTags(SoapSpec soapSpec) {
+        body = new TagMatcher(soapSpec.getEnvelopeNamespace(), BODY_TAG);
+        fault = new TagMatcher(soapSpec.getEnvelopeNamespace(), FAULT_TAG);
+        // SOAP 1.1 fault children are unqualified. SOAP 1.2 nests the code
+        // in Code/Value (and Subcode/Value) and the reason in Reason/Text,
+        // all in the envelope namespace.
+        if (soapSpec == SoapSpec.V_1_2) {
+            faultCode = new TagMatcher(soapSpec.getEnvelopeNamespace(), FAULT_VALUE_12_TAG);
+            faultString = new TagMatcher(soapSpec.getEnvelopeNamespace(), FAULT_TEXT_12_TAG);
+            faultDetail = new TagMatcher(soapSpec.getEnvelopeNamespace(), FAULT_DETAIL_12_TAG);
+        } else {
+            faultCode = new TagMatcher("", FAULT_CODE_TAG);
+            faultString = new TagMatcher("", FAULT_STRING_TAG);
+            faultDetail = new TagMatcher("", FAULT_DETAIL_TAG);
+        }
+    }
+
+    static SoapTags of(SoapSpec soapSpec) {
+        return TAGS.get(soapSpec);
+    }
+
+    TagMatcher getBody() {
+        return body;
+    }
+
+    TagMatcher getFault() {
+        return fault;
+    }
+
+    TagMatcher getFaultCode() {
+        return faultCode;
+    }
+
+    TagMatcher getFaultString() {
+        return faultString;
+    }
+
+    TagMatcher getFaultDetail() {
+        return faultDetail;
+    }
+}
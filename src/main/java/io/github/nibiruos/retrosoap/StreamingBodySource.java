@@ -0,0 +1,87 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.Source;
+import okio.Timeout;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlSerializer;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+
+// Serializes Body contents on demand, as the delegate converter reads
+// them, so only the parser buffer and a small chunk are kept in memory.
+class StreamingBodySource implements Source {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ResponseBody responseBody;
+    private final ParserAdapter parser;
+    private final XmlPullParser pullParser;
+    private final XmlPool<XmlPullParser> pullParserPool;
+    private final XmlPool<XmlSerializer> serializerPool;
+    private final XmlSerializer serializer;
+    private final BodyCopier copier;
+    private final TagMatcher body;
+    private final Buffer buffer;
+    private boolean exhausted;
+    private boolean closed;
+
+    StreamingBodySource(ResponseBody responseBody,
+                        ParserAdapter parser,
+                        XmlPullParser pullParser,
+                        XmlPool<XmlPullParser> pullParserPool,
+                        XmlPool<XmlSerializer> serializerPool,
+                        TagMatcher body,
+                        int bodyDepth) throws IOException {
+        this.responseBody = responseBody;
+        this.parser = parser;
+        this.pullParser = pullParser;
+        this.pullParserPool = pullParserPool;
+        this.serializerPool = serializerPool;
+        this.serializer = serializerPool.acquire();
+        this.body = body;
+        this.buffer = new Buffer();
+        serializer.setOutput(new OutputStreamWriter(buffer.outputStream(), UTF_8));
+        this.copier = new BodyCopier(parser, serializer, bodyDepth);
+    }
+
+    @Override
+    public long read(Buffer sink, long byteCount) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("closed");
+        }
+        while (buffer.size() < byteCount && !exhausted) {
+            if (parser.isTagEnd(body)) {
+                serializer.endDocument();
+                exhausted = true;
+            } else {
+                if (parser.isDocumentEnd()) {
+                    throw new IOException("Body end tag not found.");
+                }
+                copier.copyEvent();
+                serializer.flush();
+                parser.next();
+            }
+        }
+        return buffer.size() > 0
+                ? buffer.read(sink, Math.min(byteCount, buffer.size()))
+                : -1;
+    }
+
+    @Override
+    public Timeout timeout() {
+        return responseBody.source().timeout();
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            responseBody.close();
+            pullParserPool.release(pullParser);
+            serializerPool.release(serializer);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package io.github.nibiruos.retrosoap;
+
+// Namespace and local name of a tag, interned so they can be compared by
+// reference against parsers that intern names.
+class TagMatcher {
+    private final String namespace;
+    private final String name;
+
+    TagMatcher(String namespace, String name) {
+        this.namespace = namespace.intern();
+        this.name = name.intern();
+    }
+
+    boolean matches(String namespace,
+                    String name,
+                    boolean interned) {
+        return interned
+                ? this.name == name && this.namespace == namespace
+                : this.name.equals(name) && this.namespace.equals(namespace);
+    }
+
+    String getNamespace() {
+        return namespace;
+    }
+
+    String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,321 @@
+package io.github.nibiruos.retrosoap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import static java.util.Objects.requireNonNull;
+
+public class WsdlIndex {
+    private final Map<String, Service> services;
+    private final Map<String, Binding> bindings;
+    private final Map<String, Message> messages;
+    private final Map<String, PortType> portTypes;
+
+    WsdlIndex(Map<String, Service> services,
+              Map<String, Binding> bindings,
+              Map<String, Message> messages,
+              Map<String, PortType> portTypes) {
+        this.services = Collections.unmodifiableMap(services);
+        this.bindings = Collections.unmodifiableMap(bindings);
+        this.messages = Collections.unmodifiableMap(messages);
+        this.portTypes = Collections.unmodifiableMap(portTypes);
+    }
+
+    public Collection<Service> getServices() {
+        return services.values();
+    }
+
+    @Nullable
+    public Service getService(@Nonnull String name) {
+        return services.get(requireNonNull(name));
+    }
+
+    public Collection<Binding> getBindings() {
+        return bindings.values();
+    }
+
+    @Nullable
+    public Binding getBinding(@Nonnull String name) {
+        return bindings.get(requireNonNull(name));
+    }
+
+    public Collection<Message> getMessages() {
+        return messages.values();
+    }
+
+    @Nullable
+    public Message getMessage(@Nonnull String name) {
+        return messages.get(requireNonNull(name));
+    }
+
+    public Collection<PortType> getPortTypes() {
+        return portTypes.values();
+    }
+
+    @Nullable
+    public PortType getPortType(@Nonnull String name) {
+        return portTypes.get(requireNonNull(name));
+    }
+
+    // Same semantics as WsdlParser.findServicePortUrl(): null names match
+    // any service or port, and the first match in document order wins.
+    @Nullable
+    public String findServicePortUrl(@Nullable String serviceName,
+                                     @Nullable String portName) {
+        Port port = findPort(serviceName, portName);
+        return port != null
+                ? port.getAddress()
+                : null;
+    }
+
+    // Addresses of every port with the same binding as the one found by
+    // findServicePortUrl(), which comes first. Empty if none is found.
+    public List<String> findEquivalentPortUrls(@Nullable String serviceName,
+                                               @Nullable String portName) {
+        List<String> urls = new ArrayList<>();
+        Port port = findPort(serviceName, portName);
+        if (port == null || port.getAddress() == null) {
+            return urls;
+        }
+        urls.add(port.getAddress());
+        if (port.getBinding() == null) {
+            return urls;
+        }
+        for (Service service : services.values()) {
+            for (Port other : service.getPorts()) {
+                if (other != port
+                        && other.getAddress() != null
+                        && port.getBinding().equals(other.getBinding())
+                        && !urls.contains(other.getAddress())) {
+                    urls.add(other.getAddress());
+                }
+            }
+        }
+        return urls;
+    }
+
+    @Nullable
+    private Port findPort(@Nullable String serviceName,
+                          @Nullable String portName) {
+        if (serviceName != null) {
+            Service service = services.get(serviceName);
+            return service != null
+                    ? service.findPort(portName)
+                    : null;
+        }
+        for (Service service : services.values()) {
+            Port port = service.findPort(portName);
+            if (port != null && port.getAddress() != null) {
+                return port;
+            }
+        }
+        return null;
+    }
+
+    public static class Service {
+        private final String name;
+        private final Map<String, Port> ports;
+
+        Service(String name, Map<String, Port> ports) {
+            this.name = name;
+            this.ports = Collections.unmodifiableMap(ports);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Collection<Port> getPorts() {
+            return ports.values();
+        }
+
+        @Nullable
+        public Port getPort(@Nonnull String name) {
+            return ports.get(requireNonNull(name));
+        }
+
+        @Nullable
+        Port findPort(@Nullable String portName) {
+            if (portName != null) {
+                return ports.get(portName);
+            }
+            for (Port port : ports.values()) {
+                if (port.getAddress() != null) {
+                    return port;
+                }
+            }
+            return null;
+        }
+    }
+
+    public static class Port {
+        private final String name;
+        private final String binding;
+        private final String address;
+
+        Port(String name,
+             @Nullable String binding,
+             @Nullable String address) {
+            this.name = name;
+            this.binding = binding;
+            this.address = address;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // Local name of the binding
+        @Nullable
+        public String getBinding() {
+            return binding;
+        }
+
+        // Null if the port has no address for the parsed SoapSpec
+        @Nullable
+        public String getAddress() {
+            return address;
+        }
+    }
+
+    public static class Binding {
+        private final String name;
+        private final String portType;
+        private final SoapSpec soapSpec;
+        private final Map<String, Operation> operations;
+
+        Binding(String name,
+                @Nullable String portType,
+                @Nullable SoapSpec soapSpec,
+                Map<String, Operation> operations) {
+            this.name = name;
+            this.portType = portType;
+            this.soapSpec = soapSpec;
+            this.operations = Collections.unmodifiableMap(operations);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // Local name of the port type
+        @Nullable
+        public String getPortType() {
+            return portType;
+        }
+
+        // SOAP version of the binding, whatever the version the WSDL was
+        // parsed for. Null for bindings other than SOAP, such as HTTP.
+        @Nullable
+        public SoapSpec getSoapSpec() {
+            return soapSpec;
+        }
+
+        public Collection<Operation> getOperations() {
+            return operations.values();
+        }
+
+        @Nullable
+        public Operation getOperation(@Nonnull String name) {
+            return operations.get(requireNonNull(name));
+        }
+    }
+
+    public static class Operation {
+        private final String name;
+        private final String soapAction;
+
+        Operation(String name, @Nullable String soapAction) {
+            this.name = name;
+            this.soapAction = soapAction;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Nullable
+        public String getSoapAction() {
+            return soapAction;
+        }
+    }
+
+    public static class Message {
+        private final String name;
+        private final String element;
+
+        Message(String name, @Nullable String element) {
+            this.name = name;
+            this.element = element;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // Local name of the element (or type) of the first part
+        @Nullable
+        public String getElement() {
+            return element;
+        }
+    }
+
+    public static class PortType {
+        private final String name;
+        private final Map<String, PortTypeOperation> operations;
+
+        PortType(String name, Map<String, PortTypeOperation> operations) {
+            this.name = name;
+            this.operations = Collections.unmodifiableMap(operations);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Collection<PortTypeOperation> getOperations() {
+            return operations.values();
+        }
+
+        @Nullable
+        public PortTypeOperation getOperation(@Nonnull String name) {
+            return operations.get(requireNonNull(name));
+        }
+    }
+
+    public static class PortTypeOperation {
+        private final String name;
+        private final String input;
+        private final String output;
+
+        PortTypeOperation(String name,
+                          @Nullable String input,
+                          @Nullable String output) {
+            this.name = name;
+            this.input = input;
+            this.output = output;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // Local name of the input message, null for notifications
+        @Nullable
+        public String getInput() {
+            return input;
+        }
+
+        // Local name of the output message, null for one way operations
+        @Nullable
+        public String getOutput() {
+            return output;
+        }
+    }
+}
@@ -3,19 +3,28 @@ package io.github.nibiruos.retrosoap;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Provider;
-import javax.xml.namespace.QName;
 
 import static java.util.Objects.requireNonNull;
 
 public class WsdlParser {
+    private static final int SERVICE_DEPTH = 2;
+    private static final int PORT_DEPTH = 3;
     private static final String NAME_ATTRIBUTE = "name";
     private static final String LOCATION_ATTRIBUTE = "location";
+    private static final String BINDING_ATTRIBUTE = "binding";
+    private static final String TYPE_ATTRIBUTE = "type";
+    private static final String SOAP_ACTION_ATTRIBUTE = "soapAction";
+    private static final String ELEMENT_ATTRIBUTE = "element";
+    private static final String MESSAGE_ATTRIBUTE = "message";
     private final Provider<XmlPullParser> pullParserProvider;
 
     @Inject
@@ -29,12 +38,10 @@ public class WsdlParser {
                                      @Nullable String serviceName,
                                      @Nullable String portName) {
         requireNonNull(soapSpec);
-        QName serviceTag = new QName(soapSpec.getWsdlNamespace(),
-                "service");
-        QName portTag = new QName(soapSpec.getWsdlNamespace(),
-                "port");
-        QName addressTag = new QName(soapSpec.getWsdlSoapNamespace(),
-                "address");
+        WsdlTags tags = WsdlTags.of(soapSpec);
+        TagMatcher serviceTag = tags.getService();
+        TagMatcher portTag = tags.getPort();
+        TagMatcher addressTag = tags.getAddress();
         try {
             XmlPullParser pullParser = pullParserProvider.get();
             pullParser.setInput(wsdl, null);
@@ -42,30 +49,36 @@ public class WsdlParser {
 
             boolean serviceOk = false;
             boolean portOk = false;
-            boolean addressOk = false;
             parser.next();
             while (!parser.isDocumentEnd()) {
-                if (isTagStart(parser, serviceTag, serviceName)) {
-                    serviceOk = true;
-                } else if (parser.isTagEnd(serviceTag)) {
-                    serviceOk = false;
-                }
-                if (serviceOk) {
-                    if (isTagStart(parser, portTag, portName)) {
-                        portOk = true;
-                    } else if (parser.isTagEnd(portTag)) {
-                        portOk = false;
-                    }
-                    if (portOk) {
-                        if (parser.isTagStart(addressTag)) {
-                            addressOk = true;
-                        } else if (parser.isTagEnd(addressTag)) {
-                            addressOk = false;
+                if (parser.isTagStart()) {
+                    // Only services and their ports can lead to the address,
+                    // so any other subtree (types, messages, port types,
+                    // bindings, imports) is skipped without looking at it.
+                    int depth = parser.getDepth();
+                    if (depth == SERVICE_DEPTH) {
+                        if (isTagStart(parser, serviceTag, serviceName)) {
+                            serviceOk = true;
+                        } else {
+                            parser.skipSubtree();
+                        }
+                    } else if (serviceOk && depth == PORT_DEPTH) {
+                        if (isTagStart(parser, portTag, portName)) {
+                            portOk = true;
+                        } else {
+                            parser.skipSubtree();
                         }
+                    } else if (portOk && parser.isTagStart(addressTag)) {
+                        return parser.getAttribute(LOCATION_ATTRIBUTE);
                     }
-                }
-                if (serviceOk && portOk && addressOk) {
-                    return parser.getAttribute(LOCATION_ATTRIBUTE);
+                } else if (parser.isTagEnd(serviceTag)) {
+                    if (serviceName != null) {
+                        // Service names are unique, no need to look further
+                        return null;
+                    }
+                    serviceOk = false;
+                } else if (parser.isTagEnd(portTag)) {
+                    portOk = false;
                 }
                 parser.next();
             }
@@ -76,17 +89,189 @@ public class WsdlParser {
         }
     }
 
+    public WsdlIndex parseIndex(@Nonnull InputStream wsdl,
+                                @Nonnull SoapSpec soapSpec) {
+        requireNonNull(soapSpec);
+        WsdlTags tags = WsdlTags.of(soapSpec);
+        TagMatcher serviceTag = tags.getService();
+        TagMatcher portTag = tags.getPort();
+        TagMatcher addressTag = tags.getAddress();
+        TagMatcher bindingTag = tags.getBinding();
+        TagMatcher operationTag = tags.getOperation();
+        TagMatcher soapOperationTag = tags.getSoapOperation();
+        TagMatcher messageTag = tags.getMessage();
+        TagMatcher partTag = tags.getPart();
+        TagMatcher portTypeTag = tags.getPortType();
+        TagMatcher inputTag = tags.getInput();
+        TagMatcher outputTag = tags.getOutput();
+        try {
+            XmlPullParser pullParser = pullParserProvider.get();
+            pullParser.setInput(wsdl, null);
+            ParserAdapter parser = new ParserAdapter(pullParser);
+
+            Map<String, WsdlIndex.Service> services = new LinkedHashMap<>();
+            Map<String, WsdlIndex.Binding> bindings = new LinkedHashMap<>();
+            Map<String, WsdlIndex.Message> messages = new LinkedHashMap<>();
+            Map<String, WsdlIndex.PortType> portTypes = new LinkedHashMap<>();
+
+            String serviceName = null;
+            Map<String, WsdlIndex.Port> ports = null;
+            String portName = null;
+            String portBinding = null;
+            String portAddress = null;
+            String bindingName = null;
+            String bindingType = null;
+            SoapSpec bindingSpec = null;
+            Map<String, WsdlIndex.Operation> operations = null;
+            String operationName = null;
+            String soapAction = null;
+            String messageName = null;
+            String messageElement = null;
+            boolean inMessage = false;
+            String portTypeName = null;
+            Map<String, WsdlIndex.PortTypeOperation> portTypeOperations = null;
+            String input = null;
+            String output = null;
+
+            parser.next();
+            while (!parser.isDocumentEnd()) {
+                if (parser.isTagStart()
+                        && parser.getDepth() == SERVICE_DEPTH
+                        && !parser.isTagStart(serviceTag)
+                        && !parser.isTagStart(bindingTag)
+                        && !parser.isTagStart(messageTag)
+                        && !parser.isTagStart(portTypeTag)) {
+                    // Types and imports are not indexed
+                    parser.skipSubtree();
+                } else if (parser.isTagStart(serviceTag)) {
+                    serviceName = getName(parser);
+                    ports = new LinkedHashMap<>();
+                } else if (parser.isTagEnd(serviceTag)) {
+                    services.put(serviceName,
+                            new WsdlIndex.Service(serviceName, ports));
+                    ports = null;
+                } else if (ports != null && parser.isTagStart(portTag)) {
+                    portName = getName(parser);
+                    portBinding = localName(parser.getAttribute(BINDING_ATTRIBUTE));
+                    portAddress = null;
+                } else if (ports != null && parser.isTagEnd(portTag)) {
+                    ports.put(portName,
+                            new WsdlIndex.Port(portName, portBinding, portAddress));
+                } else if (ports != null && parser.isTagStart(addressTag)) {
+                    portAddress = parser.getAttribute(LOCATION_ATTRIBUTE);
+                } else if (parser.isTagStart(bindingTag)) {
+                    bindingName = getName(parser);
+                    bindingType = localName(parser.getAttribute(TYPE_ATTRIBUTE));
+                    bindingSpec = null;
+                    operations = new LinkedHashMap<>();
+                } else if (parser.isTagEnd(bindingTag)) {
+                    bindings.put(bindingName,
+                            new WsdlIndex.Binding(bindingName, bindingType, bindingSpec, operations));
+                    operations = null;
+                } else if (operations != null && bindingSpec == null && getBindingSpec(parser) != null) {
+                    // Bindings of either SOAP version are indexed, each
+                    // with its own version
+                    bindingSpec = getBindingSpec(parser);
+                } else if (operations != null && parser.isTagStart(operationTag)) {
+                    operationName = getName(parser);
+                    soapAction = null;
+                } else if (operations != null && parser.isTagEnd(operationTag)) {
+                    operations.put(operationName,
+                            new WsdlIndex.Operation(operationName, soapAction));
+                } else if (operations != null
+                        && parser.isTagStart(bindingSpec != null
+                        ? WsdlTags.of(bindingSpec).getSoapOperation()
+                        : soapOperationTag)) {
+                    soapAction = parser.getAttribute(SOAP_ACTION_ATTRIBUTE);
+                } else if (parser.isTagStart(messageTag)) {
+                    messageName = getName(parser);
+                    messageElement = null;
+                    inMessage = true;
+                } else if (parser.isTagEnd(messageTag)) {
+                    messages.put(messageName,
+                            new WsdlIndex.Message(messageName, messageElement));
+                    inMessage = false;
+                } else if (inMessage && messageElement == null && parser.isTagStart(partTag)) {
+                    // Document style messages have a single part
+                    String element = parser.getAttribute(ELEMENT_ATTRIBUTE);
+                    messageElement = localName(element != null
+                            ? element
+                            : parser.getAttribute(TYPE_ATTRIBUTE));
+                } else if (parser.isTagStart(portTypeTag)) {
+                    portTypeName = getName(parser);
+                    portTypeOperations = new LinkedHashMap<>();
+                } else if (parser.isTagEnd(portTypeTag)) {
+                    portTypes.put(portTypeName,
+                            new WsdlIndex.PortType(portTypeName, portTypeOperations));
+                    portTypeOperations = null;
+                } else if (portTypeOperations != null && parser.isTagStart(operationTag)) {
+                    operationName = getName(parser);
+                    input = null;
+                    output = null;
+                } else if (portTypeOperations != null && parser.isTagEnd(operationTag)) {
+                    portTypeOperations.put(operationName,
+                            new WsdlIndex.PortTypeOperation(operationName, input, output));
+                } else if (portTypeOperations != null && parser.isTagStart(inputTag)) {
+                    input = localName(parser.getAttribute(MESSAGE_ATTRIBUTE));
+                } else if (portTypeOperations != null && parser.isTagStart(outputTag)) {
+                    output = localName(parser.getAttribute(MESSAGE_ATTRIBUTE));
+                }
+                parser.next();
+            }
+
+            return new WsdlIndex(services, bindings, messages, portTypes);
+        } catch (XmlPullParserException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Schemas in the types section, used to generate codecs
+    public WsdlSchema parseSchema(@Nonnull InputStream wsdl) {
+        requireNonNull(wsdl);
+        try {
+            XmlPullParser pullParser = pullParserProvider.get();
+            pullParser.setInput(wsdl, null);
+            return new SchemaParser(pullParser).parse();
+        } catch (IOException | XmlPullParserException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private static boolean isDocumentEnd(XmlPullParser parser)
             throws XmlPullParserException {
         return parser.getEventType() == XmlPullParser.END_DOCUMENT;
     }
 
+    @Nullable
+    private static SoapSpec getBindingSpec(ParserAdapter parser) {
+        for (SoapSpec soapSpec : SoapSpec.values()) {
+            if (parser.isTagStart(WsdlTags.of(soapSpec).getSoapBinding())) {
+                return soapSpec;
+            }
+        }
+        return null;
+    }
+
     private static boolean isTagStart(ParserAdapter parser,
-                                      QName tag,
+                                      TagMatcher tag,
                                       String name)
             throws XmlPullParserException {
         return parser.isTagStart(tag)
                 && (name == null
                 || name.equals(parser.getAttribute(NAME_ATTRIBUTE)));
     }
+
+    private static String getName(ParserAdapter parser) {
+        String name = parser.getAttribute(NAME_ATTRIBUTE);
+        return name != null
+                ? name
+                : "";
+    }
+
+    @Nullable
+    private static String localName(@Nullable String qualifiedName) {
+        return qualifiedName != null
+                ? qualifiedName.substring(qualifiedName.indexOf(':') + 1)
+                : null;
+    }
 }
@@ -0,0 +1,214 @@
+package io.github.nibiruos.retrosoap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.xml.namespace.QName;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+// Subset of the XML schemas in the types section of a WSDL, enough to
+// generate codecs for document/literal messages: elements, complex types
+// with sequence, all or choice content, attributes, simple content and
+// complex content extensions, and named simple types.
+public class WsdlSchema {
+    private final Map<QName, Element> elements;
+    private final Map<QName, ComplexType> complexTypes;
+    private final Map<QName, SimpleType> simpleTypes;
+
+    WsdlSchema(Map<QName, Element> elements,
+               Map<QName, ComplexType> complexTypes,
+               Map<QName, SimpleType> simpleTypes) {
+        this.elements = Collections.unmodifiableMap(elements);
+        this.complexTypes = Collections.unmodifiableMap(complexTypes);
+        this.simpleTypes = Collections.unmodifiableMap(simpleTypes);
+    }
+
+    // Top level elements
+    public Collection<Element> getElements() {
+        return elements.values();
+    }
+
+    @Nullable
+    public Element getElement(@Nonnull QName name) {
+        return elements.get(requireNonNull(name));
+    }
+
+    // Named complex types
+    public Collection<ComplexType> getComplexTypes() {
+        return complexTypes.values();
+    }
+
+    @Nullable
+    public ComplexType getComplexType(@Nonnull QName name) {
+        return complexTypes.get(requireNonNull(name));
+    }
+
+    @Nullable
+    public SimpleType getSimpleType(@Nonnull QName name) {
+        return simpleTypes.get(requireNonNull(name));
+    }
+
+    public static class Element {
+        private final QName name;
+        private final QName type;
+        private final ComplexType complexType;
+        private final QName ref;
+        private final boolean optional;
+        private final boolean repeated;
+
+        Element(QName name,
+                @Nullable QName type,
+                @Nullable ComplexType complexType,
+                @Nullable QName ref,
+                boolean optional,
+                boolean repeated) {
+            this.name = name;
+            this.type = type;
+            this.complexType = complexType;
+            this.ref = ref;
+            this.optional = optional;
+            this.repeated = repeated;
+        }
+
+        // Namespace is empty for unqualified local elements. Null name for
+        // references.
+        @Nullable
+        public QName getName() {
+            return name;
+        }
+
+        // Named type, or null if the type is anonymous
+        @Nullable
+        public QName getType() {
+            return type;
+        }
+
+        // Anonymous complex type
+        @Nullable
+        public ComplexType getComplexType() {
+            return complexType;
+        }
+
+        // Top level element this one refers to
+        @Nullable
+        public QName getRef() {
+            return ref;
+        }
+
+        public boolean isOptional() {
+            return optional;
+        }
+
+        // maxOccurs above one
+        public boolean isRepeated() {
+            return repeated;
+        }
+    }
+
+    public static class ComplexType {
+        private final QName name;
+        private final QName base;
+        private final QName simpleContent;
+        private final List<Element> elements;
+        private final List<Attribute> attributes;
+        private final String unsupported;
+
+        ComplexType(@Nullable QName name,
+                    @Nullable QName base,
+                    @Nullable QName simpleContent,
+                    List<Element> elements,
+                    List<Attribute> attributes,
+                    @Nullable String unsupported) {
+            this.name = name;
+            this.base = base;
+            this.simpleContent = simpleContent;
+            this.elements = Collections.unmodifiableList(elements);
+            this.attributes = Collections.unmodifiableList(attributes);
+            this.unsupported = unsupported;
+        }
+
+        // Null for anonymous types
+        @Nullable
+        public QName getName() {
+            return name;
+        }
+
+        // Complex type extended by this one
+        @Nullable
+        public QName getBase() {
+            return base;
+        }
+
+        // Simple type of the text content, for simple content types
+        @Nullable
+        public QName getSimpleContent() {
+            return simpleContent;
+        }
+
+        // Own child elements, in document order
+        public List<Element> getElements() {
+            return elements;
+        }
+
+        public List<Attribute> getAttributes() {
+            return attributes;
+        }
+
+        // First construct outside the supported subset, such as groups
+        // or restrictions of complex types
+        @Nullable
+        public String getUnsupported() {
+            return unsupported;
+        }
+    }
+
+    public static class Attribute {
+        private final String name;
+        private final QName type;
+        private final boolean required;
+
+        Attribute(String name, @Nullable QName type, boolean required) {
+            this.name = name;
+            this.type = type;
+            this.required = required;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // Null for anonymous simple types
+        @Nullable
+        public QName getType() {
+            return type;
+        }
+
+        public boolean isRequired() {
+            return required;
+        }
+    }
+
+    public static class SimpleType {
+        private final QName name;
+        private final QName base;
+
+        SimpleType(QName name, @Nullable QName base) {
+            this.name = name;
+            this.base = base;
+        }
+
+        public QName getName() {
+            return name;
+        }
+
+        // Restricted type, null for lists and unions
+        @Nullable
+        public QName getBase() {
+            return base;
+        }
+    }
+}
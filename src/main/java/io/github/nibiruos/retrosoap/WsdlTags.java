@@ -0,0 +1,94 @@
+package io.github.nibiruos.retrosoap;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+class WsdlTags {
+    private static final Map<SoapSpec, WsdlTags> TAGS = new EnumMap<>(SoapSpec.class);
+
+    static {
+        for (SoapSpec soapSpec : SoapSpec.values()) {
+            TAGS.put(soapSpec, new WsdlTags(soapSpec));
+        }
+    }
+
+    private final TagMatcher service;
+    private final TagMatcher port;
+    private final TagMatcher address;
+    private final TagMatcher binding;
+    private final TagMatcher soapBinding;
+    private final TagMatcher operation;
+    private final TagMatcher soapOperation;
+    private final TagMatcher message;
+    private final TagMatcher part;
+    private final TagMatcher portType;
+    private final TagMatcher input;
+    private final TagMatcher output;
+
+    private WsdlTags(SoapSpec soapSpec) {
+        service = new TagMatcher(soapSpec.getWsdlNamespace(), "service");
+        port = new TagMatcher(soapSpec.getWsdlNamespace(), "port");
+        address = new TagMatcher(soapSpec.getWsdlSoapNamespace(), "address");
+        binding = new TagMatcher(soapSpec.getWsdlNamespace(), "binding");
+        soapBinding = new TagMatcher(soapSpec.getWsdlSoapNamespace(), "binding");
+        operation = new TagMatcher(soapSpec.getWsdlNamespace(), "operation");
+        soapOperation = new TagMatcher(soapSpec.getWsdlSoapNamespace(), "operation");
+        message = new TagMatcher(soapSpec.getWsdlNamespace(), "message");
+        part = new TagMatcher(soapSpec.getWsdlNamespace(), "part");
+        portType = new TagMatcher(soapSpec.getWsdlNamespace(), "portType");
+        input = new TagMatcher(soapSpec.getWsdlNamespace(), "input");
+        output = new TagMatcher(soapSpec.getWsdlNamespace(), "output");
+    }
+
+    static WsdlTags of(SoapSpec soapSpec) {
+        return TAGS.get(soapSpec);
+    }
+
+    TagMatcher getService() {
+        return service;
+    }
+
+    TagMatcher getPort() {
+        return port;
+    }
+
+    TagMatcher getAddress() {
+        return address;
+    }
+
+    TagMatcher getBinding() {
+        return binding;
+    }
+
+    TagMatcher getSoapBinding() {
+        return soapBinding;
+    }
+
+    TagMatcher getOperation() {
+        return operation;
+    }
+
+    TagMatcher getSoapOperation() {
+        return soapOperation;
+    }
+
+    TagMatcher getMessage() {
+        return message;
+    }
+
+    TagMatcher getPart() {
+        return part;
+    }
+
+    TagMatcher getPortType() {
+        return portType;
+    }
+
+    TagMatcher getInput() {
+        return input;
+    }
+
+    TagMatcher getOutput() {
+        return output;
+    }
+}
@@ -0,0 +1,20 @@
+package io.github.nibiruos.retrosoap;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlSerializer;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+
+// Binds a model class to XML without reflection. Codecs are registered
+// in an XmlCodecFactory, and must be stateless, since they are shared by
+// all calls.
+public interface XmlCodec<T> {
+    // The parser is at the START_TAG of the element to read, and must be
+    // left at its END_TAG
+    T read(@Nonnull XmlPullParser parser) throws IOException, XmlPullParserException;
+
+    // Writes the value as a complete element
+    void write(@Nonnull T value, @Nonnull XmlSerializer serializer) throws IOException;
+}
@@ -0,0 +1,157 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlSerializer;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Provider;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+// Body converter factory backed by XmlCodecs. Used as the body factory
+// of RetroSoapFactory, responses are read by the codec from the same
+// parser that unwraps the envelope, in a single pass. Model classes
+// annotated for Simple XML need no codec of their own.
+public class XmlCodecFactory extends Converter.Factory {
+    private static final MediaType XML_MEDIA_TYPE = MediaType.parse("text/xml; charset=UTF-8");
+    private static final String UTF_8 = "UTF-8";
+
+    private final Map<Type, XmlCodec<?>> codecs;
+    private final XmlPool<XmlSerializer> serializerPool;
+    private final XmlPool<XmlPullParser> pullParserPool;
+
+    private XmlCodecFactory(Builder builder) {
+        this.codecs = Collections.unmodifiableMap(new HashMap<>(builder.codecs));
+        this.serializerPool = XmlPool.serializers(builder.serializerProvider, builder.poolSize);
+        this.pullParserPool = XmlPool.pullParsers(builder.pullParserProvider, builder.poolSize);
+    }
+
+    public static Builder builder(@Nonnull Provider<XmlSerializer> serializerProvider,
+                                  @Nonnull Provider<XmlPullParser> pullParserProvider) {
+        requireNonNull(serializerProvider);
+        requireNonNull(pullParserProvider);
+        return new Builder(serializerProvider, pullParserProvider);
+    }
+
+    // Registered codecs come first. Classes annotated with Simple XML
+    // @Root get an AnnotatedCodec.
+    @Nullable
+    XmlCodec<?> getCodec(Type type) {
+        XmlCodec<?> codec = codecs.get(type);
+        if (codec == null && AnnotatedCodec.isAnnotated(type)) {
+            codec = AnnotatedCodec.of((Class<?>) type);
+        }
+        return codec;
+    }
+
+    @Override
+    @Nullable
+    public Converter<?, RequestBody> requestBodyConverter(Type type,
+                                                          Annotation[] parameterAnnotations,
+                                                          Annotation[] methodAnnotations,
+                                                          Retrofit retrofit) {
+        XmlCodec<?> codec = getCodec(type);
+        return codec != null
+                ? requestBodyConverter(codec)
+                : null;
+    }
+
+    private <T> Converter<T, RequestBody> requestBodyConverter(final XmlCodec<T> codec) {
+        return new Converter<T, RequestBody>() {
+            @Override
+            public RequestBody convert(@Nonnull T value) throws IOException {
+                Buffer output = new Buffer();
+                XmlSerializer serializer = serializerPool.acquire();
+                try {
+                    serializer.setOutput(output.outputStream(), UTF_8);
+                    codec.write(value, serializer);
+                    serializer.flush();
+                } finally {
+                    serializerPool.release(serializer);
+                }
+                return RequestBody.create(XML_MEDIA_TYPE, output.readByteString());
+            }
+        };
+    }
+
+    // Used when the body is not unwrapped by RetroSoapFactory, such as
+    // fault details: the codec reads the first element of the document.
+    @Override
+    @Nullable
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type,
+                                                            Annotation[] annotations,
+                                                            Retrofit retrofit) {
+        final XmlCodec<?> codec = getCodec(type);
+        if (codec == null) {
+            return null;
+        }
+        return new Converter<ResponseBody, Object>() {
+            @Override
+            public Object convert(@Nonnull ResponseBody value) throws IOException {
+                XmlPullParser pullParser = pullParserPool.acquire();
+                try {
+                    pullParser.setInput(value.byteStream(), null);
+                    ParserAdapter parser = new ParserAdapter(pullParser);
+                    while (!parser.isTagStart()) {
+                        if (parser.isDocumentEnd()) {
+                            return null;
+                        }
+                        parser.next();
+                    }
+                    return codec.read(pullParser);
+                } catch (XmlPullParserException e) {
+                    throw new IOException(e);
+                } finally {
+                    pullParserPool.release(pullParser);
+                    value.close();
+                }
+            }
+        };
+    }
+
+    public static class Builder {
+        private final Provider<XmlSerializer> serializerProvider;
+        private final Provider<XmlPullParser> pullParserProvider;
+        private final Map<Type, XmlCodec<?>> codecs = new HashMap<>();
+        private int poolSize;
+
+        private Builder(Provider<XmlSerializer> serializerProvider,
+                        Provider<XmlPullParser> pullParserProvider) {
+            this.serializerProvider = serializerProvider;
+            this.pullParserProvider = pullParserProvider;
+        }
+
+        public <T> Builder add(@Nonnull Class<T> type, @Nonnull XmlCodec<T> codec) {
+            codecs.put(requireNonNull(type), requireNonNull(codec));
+            return this;
+        }
+
+        // Same as RetroSoapFactory.Builder.poolSize(). Only used for
+        // requests and for documents not unwrapped by RetroSoapFactory.
+        public Builder poolSize(int poolSize) {
+            if (poolSize < 0) {
+                throw new IllegalArgumentException("Pool size can not be negative: " + poolSize);
+            }
+            this.poolSize = poolSize;
+            return this;
+        }
+
+        public XmlCodecFactory build() {
+            return new XmlCodecFactory(this);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package io.github.nibiruos.retrosoap;
+
+import okio.ByteString;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlSerializer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.Locale;
+
+// Parser and serializer helpers shared by the codecs CodecGenerator
+// writes, so the generated code stays small.
+public final class XmlCodecSupport {
+    private static final String XSI_NAMESPACE = "http://www.w3.org/2001/XMLSchema-instance";
+    private static final String NIL_ATTRIBUTE = "nil";
+
+    private XmlCodecSupport() {
+    }
+
+    // Moves to the next child start tag of the element at the given
+    // depth. False once its end tag is reached.
+    public static boolean nextElement(@Nonnull XmlPullParser parser, int depth)
+            throws IOException, XmlPullParserException {
+        for (int event = parser.next(); event != XmlPullParser.END_DOCUMENT; event = parser.next()) {
+            if (event == XmlPullParser.START_TAG) {
+                return true;
+            }
+            if (event == XmlPullParser.END_TAG && parser.getDepth() == depth) {
+                return false;
+            }
+        }
+        throw new IOException("Unexpected end of document");
+    }
+
+    public static boolean isElement(@Nonnull XmlPullParser parser,
+                                    @Nonnull String namespace,
+                                    @Nonnull String name) {
+        return name.equals(parser.getName()) && namespace.equals(parser.getNamespace());
+    }
+
+    // Leaves the parser at the end tag of the current element
+    public static void skip(@Nonnull XmlPullParser parser) throws IOException, XmlPullParserException {
+        int depth = parser.getDepth();
+        while (nextElement(parser, depth)) {
+            skip(parser);
+        }
+    }
+
+    public static boolean isNil(@Nonnull XmlPullParser parser) {
+        String nil = parser.getAttributeValue(XSI_NAMESPACE, NIL_ATTRIBUTE);
+        return nil != null && parseBoolean(nil);
+    }
+
+    // Text of the current element, null if it is nil. Leaves the parser at
+    // its end tag.
+    @Nullable
+    public static String readText(@Nonnull XmlPullParser parser) throws IOException, XmlPullParserException {
+        if (isNil(parser)) {
+            skip(parser);
+            return null;
+        }
+        return parser.nextText();
+    }
+
+    @Nullable
+    public static String attribute(@Nonnull XmlPullParser parser, @Nonnull String name) {
+        return parser.getAttributeValue("", name);
+    }
+
+    public static void writeText(@Nonnull XmlSerializer serializer,
+                                 @Nonnull String namespace,
+                                 @Nonnull String name,
+                                 @Nonnull String text) throws IOException {
+        serializer.startTag(namespace, name);
+        serializer.text(text);
+        serializer.endTag(namespace, name);
+    }
+
+    // XML schema booleans also take 1 and 0
+    public static boolean parseBoolean(@Nonnull String text) {
+        String value = text.trim();
+        if ("true".equals(value) || "1".equals(value)) {
+            return true;
+        }
+        if ("false".equals(value) || "0".equals(value)) {
+            return false;
+        }
+        throw new IllegalArgumentException("Invalid boolean: " + text);
+    }
+
+    // XML schema writes infinities as INF and -INF
+    public static Double parseDouble(@Nonnull String text) {
+        String value = text.trim();
+        if ("INF".equals(value)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if ("-INF".equals(value)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return Double.valueOf(value);
+    }
+
+    public static String formatDouble(@Nonnull Double value) {
+        if (value.isInfinite()) {
+            return value > 0 ? "INF" : "-INF";
+        }
+        return value.toString();
+    }
+
+    public static Float parseFloat(@Nonnull String text) {
+        return parseDouble(text).floatValue();
+    }
+
+    public static String formatFloat(@Nonnull Float value) {
+        if (value.isInfinite()) {
+            return value > 0 ? "INF" : "-INF";
+        }
+        return value.toString();
+    }
+
+    public static byte[] parseBase64(@Nonnull String text) {
+        ByteString bytes = ByteString.decodeBase64(text.trim());
+        if (bytes == null) {
+            throw new IllegalArgumentException("Invalid base64 value");
+        }
+        return bytes.toByteArray();
+    }
+
+    public static String formatBase64(@Nonnull byte[] bytes) {
+        return ByteString.of(bytes).base64();
+    }
+
+    public static byte[] parseHex(@Nonnull String text) {
+        return ByteString.decodeHex(text.trim()).toByteArray();
+    }
+
+    public static String formatHex(@Nonnull byte[] bytes) {
+        return ByteString.of(bytes).hex().toUpperCase(Locale.ROOT);
+    }
+}
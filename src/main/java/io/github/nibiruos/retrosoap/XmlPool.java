@@ -0,0 +1,98 @@
+package io.github.nibiruos.retrosoap;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlSerializer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.inject.Provider;
+
+import static java.util.Objects.requireNonNull;
+
+abstract class XmlPool<T> {
+    private final Provider<T> provider;
+    private final BlockingQueue<T> idle;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong discards;
+
+    private XmlPool(Provider<T> provider, int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Pool size can not be negative: " + size);
+        }
+        this.provider = provider;
+        this.idle = size > 0
+                ? new ArrayBlockingQueue<T>(size)
+                : null;
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.discards = new AtomicLong();
+    }
+
+    static XmlPool<XmlPullParser> pullParsers(@Nonnull Provider<XmlPullParser> provider,
+                                              int size) {
+        return new XmlPool<XmlPullParser>(requireNonNull(provider), size) {
+            @Override
+            void reset(XmlPullParser parser) throws IOException, XmlPullParserException {
+                parser.setInput((Reader) null);
+            }
+        };
+    }
+
+    static XmlPool<XmlSerializer> serializers(@Nonnull Provider<XmlSerializer> provider,
+                                              int size) {
+        return new XmlPool<XmlSerializer>(requireNonNull(provider), size) {
+            @Override
+            void reset(XmlSerializer serializer) throws IOException {
+                serializer.setOutput((Writer) null);
+            }
+        };
+    }
+
+    T acquire() {
+        T instance = idle != null
+                ? idle.poll()
+                : null;
+        if (instance != null) {
+            hits.incrementAndGet();
+            return instance;
+        }
+        misses.incrementAndGet();
+        return provider.get();
+    }
+
+    void release(T instance) {
+        if (idle == null) {
+            return;
+        }
+        try {
+            // Drop references to the previous input/output, so they can be
+            // collected while the instance sits in the pool.
+            reset(instance);
+        } catch (IOException | XmlPullParserException | RuntimeException e) {
+            discards.incrementAndGet();
+            return;
+        }
+        if (!idle.offer(instance)) {
+            discards.incrementAndGet();
+        }
+    }
+
+    PoolStatistics getStatistics() {
+        return new PoolStatistics(hits.get(),
+                misses.get(),
+                discards.get(),
+                idle != null
+                        ? idle.size()
+                        : 0);
+    }
+
+    abstract void reset(T instance) throws IOException, XmlPullParserException;
+}
@@ -0,0 +1,324 @@
+package io.github.nibiruos.retrosoap;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserFactory;
+import org.xmlpull.v1.XmlSerializer;
+
+import javax.inject.Provider;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static io.github.nibiruos.retrosoap.Utils.buildXmlPullParser;
+import static io.github.nibiruos.retrosoap.WsdlParserTest.WSDL;
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeNotNull;
+
+public class CodecGeneratorTest {
+    static String SCHEMA_WSDL = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<wsdl:definitions targetNamespace=\"urn:orders\" xmlns:tns=\"urn:orders\" xmlns:wsdl=\"http://schemas.xmlsoap.org/wsdl/\" xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\">\n" +
+            " <wsdl:types>\n" +
+            "  <xsd:schema elementFormDefault=\"qualified\" targetNamespace=\"urn:orders\">\n" +
+            "   <xsd:simpleType name=\"Quantity\">\n" +
+            "    <xsd:restriction base=\"xsd:int\"/>\n" +
+            "   </xsd:simpleType>\n" +
+            "   <xsd:complexType name=\"Amount\">\n" +
+            "    <xsd:simpleContent>\n" +
+            "     <xsd:extension base=\"xsd:decimal\">\n" +
+            "      <xsd:attribute name=\"currency\" type=\"xsd:string\"/>\n" +
+            "     </xsd:extension>\n" +
+            "    </xsd:simpleContent>\n" +
+            "   </xsd:complexType>\n" +
+            "   <xsd:complexType name=\"Item\">\n" +
+            "    <xsd:sequence>\n" +
+            "     <xsd:element name=\"code\" type=\"xsd:string\"/>\n" +
+            "     <xsd:element name=\"quantity\" type=\"tns:Quantity\"/>\n" +
+            "     <xsd:element name=\"price\" type=\"tns:Amount\" minOccurs=\"0\"/>\n" +
+            "    </xsd:sequence>\n" +
+            "    <xsd:attribute name=\"id\" type=\"xsd:long\"/>\n" +
+            "   </xsd:complexType>\n" +
+            "   <xsd:complexType name=\"GiftItem\">\n" +
+            "    <xsd:complexContent>\n" +
+            "     <xsd:extension base=\"tns:Item\">\n" +
+            "      <xsd:sequence>\n" +
+            "       <xsd:element name=\"message\" type=\"xsd:string\" nillable=\"true\"/>\n" +
+            "      </xsd:sequence>\n" +
+            "     </xsd:extension>\n" +
+            "    </xsd:complexContent>\n" +
+            "   </xsd:complexType>\n" +
+            "   <xsd:element name=\"note\" type=\"xsd:string\"/>\n" +
+            "   <xsd:element name=\"placeOrder\">\n" +
+            "    <xsd:complexType>\n" +
+            "     <xsd:sequence>\n" +
+            "      <xsd:element name=\"item\" type=\"tns:Item\" maxOccurs=\"unbounded\"/>\n" +
+            "      <xsd:element name=\"gift\" type=\"tns:GiftItem\" minOccurs=\"0\"/>\n" +
+            "      <xsd:element name=\"express\" type=\"xsd:boolean\"/>\n" +
+            "      <xsd:element name=\"signature\" type=\"xsd:base64Binary\" minOccurs=\"0\"/>\n" +
+            "      <xsd:element ref=\"tns:note\" minOccurs=\"0\"/>\n" +
+            "      <xsd:element name=\"delivery\">\n" +
+            "       <xsd:complexType>\n" +
+            "        <xsd:choice>\n" +
+            "         <xsd:element name=\"address\" type=\"xsd:string\"/>\n" +
+            "         <xsd:element name=\"store\" type=\"xsd:int\"/>\n" +
+            "        </xsd:choice>\n" +
+            "       </xsd:complexType>\n" +
+            "      </xsd:element>\n" +
+            "     </xsd:sequence>\n" +
+            "    </xsd:complexType>\n" +
+            "   </xsd:element>\n" +
+            "   <xsd:element name=\"item\" type=\"tns:Item\"/>\n" +
+            "  </xsd:schema>\n" +
+            " </wsdl:types>\n" +
+            "</wsdl:definitions>\n";
+    static String ORDER = "<placeOrder xmlns=\"urn:orders\">" +
+            "<item id=\"7\"><code>A-1</code><quantity>2</quantity><price currency=\"ARS\">10.50</price></item>" +
+            "<item><code>B-2</code><quantity>1</quantity></item>" +
+            "<gift><code>C-3</code><quantity>1</quantity>" +
+            "<message xsi:nil=\"true\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"/></gift>" +
+            "<express>1</express>" +
+            "<signature>AQID</signature>" +
+            "<unknown><nested/></unknown>" +
+            "<note>Fragile</note>" +
+            "<delivery><store>12</store></delivery>" +
+            "</placeOrder>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Provider<XmlPullParser> pullParserProvider;
+
+    @Before
+    public void setup() {
+        pullParserProvider = createMock(Provider.class);
+    }
+
+    @Test
+    public void testGenerate() {
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+
+        replay(pullParserProvider);
+
+        // Test execution
+        WsdlSchema schema = new WsdlParser(pullParserProvider)
+                .parseSchema(new ByteArrayInputStream(WSDL.getBytes()));
+        Map<String, String> sources = new CodecGenerator("ar.gov.afip.wsaa").generate(schema);
+
+        // Assertions
+        assertEquals(Arrays.asList("LoginCms", "LoginCmsCodec", "LoginCmsResponse", "LoginCmsResponseCodec",
+                "Fault", "FaultCodec", "LoginFault", "LoginFaultCodec", "Codecs"),
+                new ArrayList<>(sources.keySet()));
+        assertEquals("// Generated by CodecGenerator from element {http://wsaa.view.sua.dvadac.desein.afip.gov}loginCms. Do not edit.\n" +
+                        "package ar.gov.afip.wsaa;\n" +
+                        "\n" +
+                        "public class LoginCms {\n" +
+                        "    private String in0;\n" +
+                        "\n" +
+                        "    public String getIn0() {\n" +
+                        "        return in0;\n" +
+                        "    }\n" +
+                        "\n" +
+                        "    public void setIn0(String in0) {\n" +
+                        "        this.in0 = in0;\n" +
+                        "    }\n" +
+                        "}\n",
+                sources.get("LoginCms"));
+        assertEquals("// Generated by CodecGenerator from element {https://wsaahomo.afip.gov.ar/ws/services/LoginCms}fault. Do not edit.\n" +
+                        "package ar.gov.afip.wsaa;\n" +
+                        "\n" +
+                        "public class Fault extends LoginFault {\n" +
+                        "}\n",
+                sources.get("Fault"));
+        assertTrue(sources.get("LoginCmsCodec").contains("    static void readContent(XmlPullParser parser, LoginCms value) throws IOException, XmlPullParserException {\n" +
+                "        try {\n" +
+                "            String text;\n" +
+                "            int depth = parser.getDepth();\n" +
+                "            while (XmlCodecSupport.nextElement(parser, depth)) {\n" +
+                "                if (XmlCodecSupport.isElement(parser, \"http://wsaa.view.sua.dvadac.desein.afip.gov\", \"in0\")) {\n" +
+                "                    text = XmlCodecSupport.readText(parser);\n" +
+                "                    value.setIn0(text);\n" +
+                "                } else {\n" +
+                "                    XmlCodecSupport.skip(parser);\n" +
+                "                }\n" +
+                "            }\n" +
+                "        } catch (IllegalArgumentException e) {\n" +
+                "            throw new IOException(\"Invalid LoginCms content\", e);\n" +
+                "        }\n" +
+                "    }\n"));
+        assertTrue(sources.get("Codecs").contains("        return builder\n" +
+                "                .add(LoginCms.class, new LoginCmsCodec())\n" +
+                "                .add(LoginCmsResponse.class, new LoginCmsResponseCodec())\n" +
+                "                .add(Fault.class, new FaultCodec());\n"));
+
+        // Mock verification
+        verify(pullParserProvider);
+    }
+
+    @Test
+    public void testGeneratedSourcesCompile() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeNotNull(compiler);
+
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser())
+                .times(2);
+
+        replay(pullParserProvider);
+
+        // Test execution
+        WsdlParser wsdlParser = new WsdlParser(pullParserProvider);
+        WsdlIndex index = wsdlParser.parseIndex(new ByteArrayInputStream(WSDL.getBytes()), SoapSpec.V_1_1);
+        WsdlSchema schema = wsdlParser.parseSchema(new ByteArrayInputStream(WSDL.getBytes()));
+        File sources = folder.newFolder("sources");
+        List<String> arguments = new ArrayList<>(Arrays.asList(
+                "-classpath", System.getProperty("java.class.path"),
+                "-d", folder.newFolder("classes").getPath()));
+        for (File file : new ServiceGenerator("ar.gov.afip.wsaa").generate(index, SoapSpec.V_1_1, sources)) {
+            arguments.add(file.getPath());
+        }
+        for (File file : new CodecGenerator("ar.gov.afip.wsaa").generate(schema, sources)) {
+            arguments.add(file.getPath());
+        }
+        int result = compiler.run(null, null, null, arguments.toArray(new String[0]));
+
+        // Assertions
+        assertEquals(0, result);
+        assertTrue(new File(folder.getRoot(), "classes/ar/gov/afip/wsaa/LoginCmsSoapBinding.class").isFile());
+        assertTrue(new File(folder.getRoot(), "classes/ar/gov/afip/wsaa/Codecs.class").isFile());
+
+        // Mock verification
+        verify(pullParserProvider);
+    }
+
+    @Test
+    public void testGeneratedCodecRoundTrip() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeNotNull(compiler);
+
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+
+        replay(pullParserProvider);
+
+        // Test execution
+        WsdlSchema schema = new WsdlParser(pullParserProvider)
+                .parseSchema(new ByteArrayInputStream(SCHEMA_WSDL.getBytes()));
+        File sources = folder.newFolder("sources");
+        File classes = folder.newFolder("classes");
+        List<String> arguments = new ArrayList<>(Arrays.asList(
+                "-classpath", System.getProperty("java.class.path"),
+                "-d", classes.getPath()));
+        for (File file : new CodecGenerator("com.example.orders").generate(schema, sources)) {
+            arguments.add(file.getPath());
+        }
+        assertEquals(0, compiler.run(null, null, null, arguments.toArray(new String[0])));
+
+        Object order;
+        String written;
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classes.toURI().toURL()},
+                getClass().getClassLoader())) {
+            @SuppressWarnings("unchecked")
+            XmlCodec<Object> codec = (XmlCodec<Object>) classLoader.loadClass("com.example.orders.PlaceOrderCodec")
+                    .getDeclaredConstructor()
+                    .newInstance();
+            XmlPullParser parser = buildXmlPullParser();
+            parser.setInput(new StringReader(ORDER));
+            parser.nextTag();
+            order = codec.read(parser);
+
+            XmlSerializer serializer = XmlPullParserFactory.newInstance().newSerializer();
+            StringWriter writer = new StringWriter();
+            serializer.setOutput(writer);
+            serializer.setPrefix("", "urn:orders");
+            codec.write(order, serializer);
+            serializer.flush();
+            written = writer.toString();
+        }
+
+        // Assertions
+        List<?> items = (List<?>) get(order, "getItem");
+        assertEquals(2, items.size());
+        assertEquals(7L, get(items.get(0), "getId"));
+        assertEquals(2, get(items.get(0), "getQuantity"));
+        assertEquals("10.50", get(get(items.get(0), "getPrice"), "getValue").toString());
+        assertEquals("ARS", get(get(items.get(0), "getPrice"), "getCurrency"));
+        assertNull(get(items.get(1), "getId"));
+        assertEquals("C-3", get(get(order, "getGift"), "getCode"));
+        assertNull(get(get(order, "getGift"), "getMessage"));
+        assertEquals(Boolean.TRUE, get(order, "getExpress"));
+        assertTrue(Arrays.equals(new byte[]{1, 2, 3}, (byte[]) get(order, "getSignature")));
+        assertEquals("Fragile", get(get(order, "getNote"), "getValue"));
+        assertNull(get(get(order, "getDelivery"), "getAddress"));
+        assertEquals(12, get(get(order, "getDelivery"), "getStore"));
+        assertEquals("<placeOrder xmlns=\"urn:orders\">" +
+                        "<item id=\"7\"><code>A-1</code><quantity>2</quantity><price currency=\"ARS\">10.50</price></item>" +
+                        "<item><code>B-2</code><quantity>1</quantity></item>" +
+                        "<gift><code>C-3</code><quantity>1</quantity></gift>" +
+                        "<express>true</express>" +
+                        "<signature>AQID</signature>" +
+                        "<note>Fragile</note>" +
+                        "<delivery><store>12</store></delivery>" +
+                        "</placeOrder>",
+                written);
+
+        // Mock verification
+        verify(pullParserProvider);
+    }
+
+    @Test
+    public void testGenerateUnsupported() {
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+
+        replay(pullParserProvider);
+
+        // Test execution
+        WsdlSchema schema = new WsdlParser(pullParserProvider)
+                .parseSchema(new ByteArrayInputStream(SCHEMA_WSDL
+                        .replace("<xsd:attribute name=\"id\" type=\"xsd:long\"/>",
+                                "<xsd:attributeGroup ref=\"tns:audit\"/>")
+                        .getBytes()));
+        try {
+            new CodecGenerator("com.example.orders").generate(schema);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Assertions
+            assertEquals("Unsupported attributeGroup in Item", e.getMessage());
+        }
+
+        // Mock verification
+        verify(pullParserProvider);
+    }
+
+    @Test
+    public void testClassNames() {
+        assertEquals("LoginCms", CodecGenerator.className("loginCms"));
+        assertEquals("String_", CodecGenerator.className("string"));
+        assertEquals("Codecs_", CodecGenerator.className("codecs"));
+    }
+
+    private static Object get(Object bean, String getter) throws Exception {
+        return bean.getClass().getMethod(getter).invoke(bean);
+    }
+}
@@ -0,0 +1,116 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.Interceptor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.GzipSource;
+import okio.Okio;
+import org.easymock.Capture;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static io.github.nibiruos.retrosoap.Utils.XML_MEDIA_TYPE;
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class CompressionInterceptorTest {
+    private static final String ENVELOPE = "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+            "<soapenv:Header /><soapenv:Body><name>PATORUZU</name></soapenv:Body>" +
+            "</soapenv:Envelope>";
+
+    private Interceptor.Chain chain;
+
+    @Before
+    public void setup() {
+        chain = createMock(Interceptor.Chain.class);
+    }
+
+    @Test
+    public void testInterceptCompresses() throws IOException {
+        // Expectations setup
+        Request request = buildRequest();
+        Capture<Request> sent = newCapture();
+        Buffer compressed = new Buffer();
+        BufferedSink gzipSink = Okio.buffer(new GzipSink(compressed));
+        gzipSink.writeUtf8(ENVELOPE);
+        gzipSink.close();
+        expect(chain.request())
+                .andReturn(request);
+        expect(chain.proceed(capture(sent)))
+                .andReturn(new Response.Builder()
+                        .request(request)
+                        .protocol(Protocol.HTTP_1_1)
+                        .message("OK")
+                        .code(200)
+                        .header(CompressionInterceptor.CONTENT_ENCODING_HEADER, CompressionInterceptor.GZIP)
+                        .body(ResponseBody.create(XML_MEDIA_TYPE, compressed.size(), compressed))
+                        .build());
+
+        replay(chain);
+
+        // Test execution
+        Response response = new CompressionInterceptor(16).intercept(chain);
+
+        // Assertions
+        Request sentRequest = sent.getValue();
+        assertEquals(CompressionInterceptor.GZIP,
+                sentRequest.header(CompressionInterceptor.CONTENT_ENCODING_HEADER));
+        assertEquals(-1, sentRequest.body().contentLength());
+        Buffer requestBody = new Buffer();
+        sentRequest.body().writeTo(requestBody);
+        assertEquals(ENVELOPE, Okio.buffer(new GzipSource(requestBody)).readUtf8());
+
+        assertNull(response.header(CompressionInterceptor.CONTENT_ENCODING_HEADER));
+        assertEquals(ENVELOPE, response.body().string());
+
+        // Mock verification
+        verify(chain);
+    }
+
+    @Test
+    public void testInterceptBelowThreshold() throws IOException {
+        // Expectations setup
+        Request request = buildRequest();
+        Capture<Request> sent = newCapture();
+        expect(chain.request())
+                .andReturn(request);
+        expect(chain.proceed(capture(sent)))
+                .andReturn(new Response.Builder()
+                        .request(request)
+                        .protocol(Protocol.HTTP_1_1)
+                        .message("OK")
+                        .code(200)
+                        .body(ResponseBody.create(XML_MEDIA_TYPE, ENVELOPE))
+                        .build());
+
+        replay(chain);
+
+        // Test execution
+        Response response = new CompressionInterceptor(4096).intercept(chain);
+
+        // Assertions
+        assertNull(sent.getValue().header(CompressionInterceptor.CONTENT_ENCODING_HEADER));
+        assertSame(request.body(), sent.getValue().body());
+        assertEquals(ENVELOPE, response.body().string());
+
+        // Mock verification
+        verify(chain);
+    }
+
+    private static Request buildRequest() {
+        return new Request.Builder()
+                .url("http://localhost/service")
+                .post(RequestBody.create(XML_MEDIA_TYPE, ENVELOPE))
+                .build();
+    }
+}
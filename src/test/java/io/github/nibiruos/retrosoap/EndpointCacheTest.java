@@ -0,0 +1,102 @@
+package io.github.nibiruos.retrosoap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class EndpointCacheTest {
+    private static String WSDL_URL = "http://localhost/service?wsdl";
+    private static String LOCATION = "http://localhost/service";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testGet() {
+        // Test execution
+        EndpointCache cache = new EndpointCache(1, TimeUnit.HOURS);
+        cache.put(WSDL_URL, SoapSpec.V_1_1, "Service", null, LOCATION);
+
+        // Assertions
+        assertEquals(LOCATION, cache.get(WSDL_URL, SoapSpec.V_1_1, "Service", null));
+        assertNull(cache.get(WSDL_URL, SoapSpec.V_1_2, "Service", null));
+        assertNull(cache.get(WSDL_URL, SoapSpec.V_1_1, "Service", "Port"));
+        assertNull(cache.get(WSDL_URL, SoapSpec.V_1_1, null, null));
+    }
+
+    @Test
+    public void testExpiration() {
+        // Test execution
+        EndpointCache cache = new EndpointCache(0, TimeUnit.SECONDS);
+        cache.put(WSDL_URL, SoapSpec.V_1_1, "Service", "Port", LOCATION);
+
+        // Assertions
+        assertNull(cache.get(WSDL_URL, SoapSpec.V_1_1, "Service", "Port"));
+        assertEquals(LOCATION, cache.getStale(WSDL_URL, SoapSpec.V_1_1, "Service", "Port"));
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        // Test execution
+        File snapshot = new File(folder.getRoot(), "endpoints.properties");
+        new EndpointCache(1, TimeUnit.HOURS, snapshot)
+                .put(WSDL_URL, SoapSpec.V_1_1, "Service", "Port", LOCATION);
+        EndpointCache cache = new EndpointCache(1, TimeUnit.HOURS, snapshot);
+
+        // Assertions
+        assertEquals(LOCATION, cache.get(WSDL_URL, SoapSpec.V_1_1, "Service", "Port"));
+    }
+
+    @Test
+    public void testSnapshotConcurrentPuts() throws Exception {
+        // Test execution
+        File snapshot = new File(folder.getRoot(), "endpoints.properties");
+        final EndpointCache cache = new EndpointCache(1, TimeUnit.HOURS, snapshot);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final String serviceName = "Service" + i;
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    cache.put(WSDL_URL, SoapSpec.V_1_1, serviceName, null, LOCATION + "/" + serviceName);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        EndpointCache loaded = new EndpointCache(1, TimeUnit.HOURS, snapshot);
+
+        // Assertions
+        for (int i = 0; i < 20; i++) {
+            assertEquals(LOCATION + "/Service" + i, loaded.get(WSDL_URL, SoapSpec.V_1_1, "Service" + i, null));
+        }
+    }
+
+    @Test
+    public void testSnapshotWriteFailure() throws IOException {
+        // Test execution
+        File snapshot = new File(folder.newFile("endpoints"), "snapshot.properties");
+        EndpointCache cache = new EndpointCache(1, TimeUnit.HOURS, snapshot);
+        cache.put(WSDL_URL, SoapSpec.V_1_1, "Service", null, LOCATION);
+
+        // Assertions
+        assertEquals(LOCATION, cache.get(WSDL_URL, SoapSpec.V_1_1, "Service", null));
+        assertFalse(snapshot.exists());
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.nibiruos.retrosoap;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EndpointPoolTest {
+    @Test
+    public void testLeastOutstanding() {
+        // Test execution
+        EndpointPool pool = new EndpointPool(Arrays.asList("http://one", "http://two"),
+                EndpointPool.Strategy.LEAST_OUTSTANDING);
+        EndpointPool.Endpoint first = pool.acquire();
+        EndpointPool.Endpoint second = pool.acquire();
+        pool.release(first, 1000, false);
+        EndpointPool.Endpoint third = pool.acquire();
+
+        // Assertions
+        assertNotSame(first, second);
+        assertSame(first, third);
+        assertEquals("http://one/", pool.getPrimaryUrl());
+        assertEquals(1, second.getOutstanding());
+    }
+
+    @Test
+    public void testEjection() {
+        // Test execution
+        EndpointPool pool = new EndpointPool(Arrays.asList("http://one", "http://two"),
+                EndpointPool.Strategy.EWMA,
+                2,
+                1,
+                TimeUnit.HOURS);
+        EndpointPool.Endpoint failing = pool.getEndpoints().get(0);
+        EndpointPool.Endpoint healthy = pool.getEndpoints().get(1);
+        failing.record(1000, true, 2, TimeUnit.HOURS.toNanos(1));
+        failing.record(1000, true, 2, TimeUnit.HOURS.toNanos(1));
+
+        // Assertions
+        assertTrue(failing.isEjected());
+        assertFalse(healthy.isEjected());
+        for (int i = 0; i < 4; i++) {
+            EndpointPool.Endpoint endpoint = pool.acquire();
+            assertSame(healthy, endpoint);
+            pool.release(endpoint, 1000, false);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class FaultCodeInterceptorTest {
+    private static final Request REQUEST = new Request.Builder()
+            .url("http://localhost/service")
+            .build();
+    private static final String FAULT = "\n<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+            "<soapenv:Body><soapenv:Fault><faultcode>soapenv:Server</faultcode></soapenv:Fault></soapenv:Body>" +
+            "</soapenv:Envelope>";
+
+    private Interceptor.Chain chain;
+
+    @Before
+    public void setup() {
+        chain = createMock(Interceptor.Chain.class);
+    }
+
+    @Test
+    public void testInterceptFault() throws IOException {
+        // Expectations setup
+        expect(chain.request())
+                .andReturn(REQUEST);
+        expect(chain.proceed(REQUEST))
+                .andReturn(buildResponse(500, "text/xml;charset=UTF-8", FAULT));
+
+        replay(chain);
+
+        // Test execution
+        Response response = new FaultCodeInterceptor().intercept(chain);
+
+        // Assertions
+        assertEquals(200, response.code());
+        assertEquals(FAULT, response.body().string());
+
+        // Mock verification
+        verify(chain);
+    }
+
+    @Test
+    public void testInterceptHtmlError() throws IOException {
+        // Expectations setup
+        Response original = buildResponse(502, "text/html", "<html><body>Bad Gateway</body></html>");
+        expect(chain.request())
+                .andReturn(REQUEST);
+        expect(chain.proceed(REQUEST))
+                .andReturn(original);
+
+        replay(chain);
+
+        // Test execution
+        Response response = new FaultCodeInterceptor().intercept(chain);
+
+        // Assertions
+        assertSame(original, response);
+
+        // Mock verification
+        verify(chain);
+    }
+
+    @Test
+    public void testInterceptNonXmlBody() throws IOException {
+        // Expectations setup
+        Response original = buildResponse(500, "text/xml", "Internal Server Error");
+        expect(chain.request())
+                .andReturn(REQUEST);
+        expect(chain.proceed(REQUEST))
+                .andReturn(original);
+
+        replay(chain);
+
+        // Test execution
+        Response response = new FaultCodeInterceptor().intercept(chain);
+
+        // Assertions
+        assertSame(original, response);
+        assertEquals("Internal Server Error", response.body().string());
+
+        // Mock verification
+        verify(chain);
+    }
+
+    private static Response buildResponse(int code, String contentType, String body) {
+        return new Response.Builder()
+                .request(REQUEST)
+                .protocol(Protocol.HTTP_1_1)
+                .message("Error")
+                .code(code)
+                .body(ResponseBody.create(MediaType.parse(contentType), body))
+                .build();
+    }
+}
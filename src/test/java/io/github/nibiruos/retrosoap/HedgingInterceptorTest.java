@@ -0,0 +1,361 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class HedgingInterceptorTest {
+    private static final String SOAP_ACTION = "\"http://test.com/Operation\"";
+
+    private Interceptor.Chain chain;
+    private ExecutorService executor;
+    private CountDownLatch primaryStarted;
+    private CountDownLatch primaryFinish;
+
+    @Before
+    public void setup() {
+        chain = createMock(Interceptor.Chain.class);
+        executor = Executors.newCachedThreadPool();
+        primaryStarted = new CountDownLatch(1);
+        primaryFinish = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() {
+        primaryFinish.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testInterceptNotIdempotent() throws IOException {
+        // Expectations setup
+        Request request = buildRequest(false);
+        Response original = buildResponse(request, "primary");
+        expect(chain.request())
+                .andReturn(request);
+        expect(chain.proceed(request))
+                .andReturn(original);
+
+        replay(chain);
+
+        // Test execution
+        Response response = new HedgingInterceptor(buildHedgeClient(), executor).intercept(chain);
+
+        // Assertions
+        assertSame(original, response);
+
+        // Mock verification
+        verify(chain);
+    }
+
+    @Test
+    public void testInterceptHedged() throws IOException {
+        // Expectations setup
+        final Request request = buildRequest(true);
+        expect(chain.request())
+                .andReturn(request);
+        expect(chain.readTimeoutMillis())
+                .andReturn(10000)
+                .anyTimes();
+        expect(chain.withReadTimeout(1000, TimeUnit.MILLISECONDS))
+                .andReturn(chain);
+        expect(chain.proceed(anyObject(Request.class)))
+                .andAnswer(new IAnswer<Response>() {
+                    @Override
+                    public Response answer() throws Throwable {
+                        Request sent = (Request) getCurrentArguments()[0];
+                        assertNull(sent.header(HedgingInterceptor.IDEMPOTENT_HEADER_NAME));
+                        primaryStarted.countDown();
+                        primaryFinish.await(5, TimeUnit.SECONDS);
+                        return buildResponse(sent, "primary");
+                    }
+                });
+
+        replay(chain);
+
+        // Test execution
+        HedgingInterceptor interceptor = new HedgingInterceptor(buildHedgeClient(),
+                executor,
+                0.95,
+                3,
+                1000,
+                5);
+        LatencyWindow window = interceptor.getWindow(SOAP_ACTION);
+        for (int i = 0; i < 5; i++) {
+            window.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        Response response = interceptor.intercept(chain);
+
+        // Assertions
+        assertEquals("hedge", response.body().string());
+
+        // Mock verification
+        verify(chain);
+    }
+
+    @Test
+    public void testInterceptHedgedOverConnection() throws Exception {
+        // Expectations setup
+        final ServerSocket server = new ServerSocket(0);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                serveSlowBody(server, "hedge");
+            }
+        });
+        Request request = new Request.Builder()
+                .url("http://localhost:" + server.getLocalPort() + "/service")
+                .header(RetroSoapFactory.SOAP_ACTION_HEADER, SOAP_ACTION)
+                .header(HedgingInterceptor.IDEMPOTENT_HEADER_NAME, "true")
+                .build();
+        expect(chain.request())
+                .andReturn(request);
+        expect(chain.readTimeoutMillis())
+                .andReturn(10000)
+                .anyTimes();
+        expect(chain.withReadTimeout(1000, TimeUnit.MILLISECONDS))
+                .andReturn(chain);
+        expect(chain.proceed(anyObject(Request.class)))
+                .andAnswer(new IAnswer<Response>() {
+                    @Override
+                    public Response answer() throws Throwable {
+                        Request sent = (Request) getCurrentArguments()[0];
+                        primaryFinish.await(5, TimeUnit.SECONDS);
+                        return buildResponse(sent, "primary");
+                    }
+                });
+
+        replay(chain);
+
+        // Test execution
+        HedgingInterceptor interceptor = new HedgingInterceptor(new OkHttpClient(),
+                executor,
+                0.95,
+                3,
+                1000,
+                5);
+        LatencyWindow window = interceptor.getWindow(SOAP_ACTION);
+        for (int i = 0; i < 5; i++) {
+            window.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        String body;
+        try (Response response = interceptor.intercept(chain)) {
+            body = response.body().string();
+        } finally {
+            server.close();
+        }
+
+        // Assertions
+        assertEquals("hedge", body);
+
+        // Mock verification
+        verify(chain);
+    }
+
+    @Test
+    public void testInterceptTimeoutRecorded() throws IOException {
+        // Expectations setup
+        Request request = buildRequest(true);
+        expect(chain.request())
+                .andReturn(request);
+        expect(chain.readTimeoutMillis())
+                .andReturn(10000)
+                .anyTimes();
+        expect(chain.proceed(anyObject(Request.class)))
+                .andThrow(new SocketTimeoutException("timeout"));
+
+        replay(chain);
+
+        // Test execution
+        HedgingInterceptor interceptor = new HedgingInterceptor(buildHedgeClient(),
+                executor,
+                0.95,
+                3,
+                1000,
+                1);
+        try {
+            interceptor.intercept(chain);
+            fail("Timeout expected");
+        } catch (SocketTimeoutException e) {
+            // Expected
+        }
+
+        // Assertions
+        assertEquals(TimeUnit.SECONDS.toNanos(10),
+                interceptor.getWindow(SOAP_ACTION).percentile(0.99));
+
+        // Mock verification
+        verify(chain);
+    }
+
+    @Test
+    public void testInterceptNoReadTimeout() throws IOException {
+        // Expectations setup
+        Request request = buildRequest(true);
+        expect(chain.request())
+                .andReturn(request);
+        expect(chain.readTimeoutMillis())
+                .andReturn(0)
+                .anyTimes();
+        expect(chain.withReadTimeout(6000, TimeUnit.MILLISECONDS))
+                .andReturn(chain);
+        expect(chain.proceed(anyObject(Request.class)))
+                .andReturn(buildResponse(request, "primary"));
+
+        replay(chain);
+
+        // Test execution
+        HedgingInterceptor interceptor = new HedgingInterceptor(buildHedgeClient(),
+                executor,
+                0.95,
+                3,
+                1000,
+                1);
+        interceptor.getWindow(SOAP_ACTION).record(TimeUnit.SECONDS.toNanos(2));
+        Response response = interceptor.intercept(chain);
+
+        // Assertions
+        assertEquals("primary", response.body().string());
+
+        // Mock verification
+        verify(chain);
+    }
+
+    @Test
+    public void testInterceptReadTimeoutCapped() throws IOException {
+        // Expectations setup
+        Request request = buildRequest(true);
+        expect(chain.request())
+                .andReturn(request);
+        expect(chain.readTimeoutMillis())
+                .andReturn(500)
+                .anyTimes();
+        expect(chain.withReadTimeout(500, TimeUnit.MILLISECONDS))
+                .andReturn(chain);
+        expect(chain.proceed(anyObject(Request.class)))
+                .andReturn(buildResponse(request, "primary"));
+
+        replay(chain);
+
+        // Test execution
+        HedgingInterceptor interceptor = new HedgingInterceptor(buildHedgeClient(),
+                executor,
+                0.95,
+                3,
+                1000,
+                1);
+        interceptor.getWindow(SOAP_ACTION).record(TimeUnit.MILLISECONDS.toNanos(1));
+        Response response = interceptor.intercept(chain);
+
+        // Assertions
+        assertEquals("primary", response.body().string());
+
+        // Mock verification
+        verify(chain);
+    }
+
+    @Test
+    public void testLatencyWindowPercentile() {
+        // Test execution
+        LatencyWindow window = new LatencyWindow(10, 5);
+        for (int i = 1; i <= 4; i++) {
+            window.record(i);
+        }
+        long early = window.percentile(0.95);
+        for (int i = 5; i <= 30; i++) {
+            window.record(i);
+        }
+
+        // Assertions
+        assertEquals(-1, early);
+        assertEquals(30, window.percentile(0.95));
+        assertEquals(25, window.percentile(0.5));
+    }
+
+    private OkHttpClient buildHedgeClient() {
+        return new OkHttpClient.Builder()
+                .addInterceptor(new Interceptor() {
+                    @Override
+                    public Response intercept(Chain hedgeChain) throws IOException {
+                        try {
+                            primaryStarted.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            throw new IOException(e);
+                        }
+                        return buildResponse(hedgeChain.request(), "hedge");
+                    }
+                })
+                .build();
+    }
+
+    // Sends the headers first and the body a bit later, so the body is
+    // still being read when the interceptor returns
+    private static void serveSlowBody(ServerSocket server, String body) {
+        try (Socket socket = server.accept()) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.US_ASCII));
+            String line;
+            while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                // Request headers are ignored
+            }
+            OutputStream output = socket.getOutputStream();
+            output.write(("HTTP/1.1 200 OK\r\n"
+                    + "Content-Type: text/xml\r\n"
+                    + "Content-Length: " + body.length() + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+            Thread.sleep(300);
+            output.write(body.getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Request buildRequest(boolean idempotent) {
+        Request.Builder builder = new Request.Builder()
+                .url("http://localhost/service")
+                .header(RetroSoapFactory.SOAP_ACTION_HEADER, SOAP_ACTION);
+        if (idempotent) {
+            builder.header(HedgingInterceptor.IDEMPOTENT_HEADER_NAME, "true");
+        }
+        return builder.build();
+    }
+
+    private static Response buildResponse(Request request, String body) {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(ResponseBody.create(MediaType.parse("text/xml"), body))
+                .build();
+    }
+}
@@ -0,0 +1,108 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class MetricsInterceptorTest {
+    private static final Request REQUEST = new Request.Builder()
+            .url("http://localhost/service")
+            .header(RetroSoapFactory.SOAP_ACTION_HEADER, "\"urn:patoruzu\"")
+            .post(RequestBody.create(MediaType.parse("text/xml"), "<soapenv:Envelope/>"))
+            .build();
+
+    private Interceptor.Chain chain;
+    private List<Object> events;
+    private RetroSoapMetrics metrics;
+
+    @Before
+    public void setup() {
+        chain = createMock(Interceptor.Chain.class);
+        events = new ArrayList<>();
+        metrics = new RetroSoapMetrics() {
+            @Override
+            public void transportCompleted(String soapAction, int httpCode, long nanos) {
+                events.add(soapAction);
+                events.add(httpCode);
+                events.add(nanos >= 0);
+            }
+
+            @Override
+            public void transportFailed(String soapAction, long nanos, IOException exception) {
+                events.add(soapAction);
+                events.add(exception);
+                events.add(nanos >= 0);
+            }
+        };
+    }
+
+    @Test
+    public void testInterceptCompleted() throws IOException {
+        // Expectations setup
+        Response original = new Response.Builder()
+                .request(REQUEST)
+                .protocol(Protocol.HTTP_1_1)
+                .code(500)
+                .message("Internal Server Error")
+                .body(ResponseBody.create(MediaType.parse("text/xml"), "<soapenv:Envelope/>"))
+                .build();
+        expect(chain.request())
+                .andReturn(REQUEST);
+        expect(chain.proceed(REQUEST))
+                .andReturn(original);
+
+        replay(chain);
+
+        // Test execution
+        Response response = new MetricsInterceptor(metrics).intercept(chain);
+
+        // Assertions
+        assertSame(original, response);
+        assertEquals(Arrays.<Object>asList("\"urn:patoruzu\"", 500, true), events);
+
+        // Mock verification
+        verify(chain);
+    }
+
+    @Test
+    public void testInterceptFailed() throws IOException {
+        // Expectations setup
+        SocketTimeoutException exception = new SocketTimeoutException("timeout");
+        expect(chain.request())
+                .andReturn(REQUEST);
+        expect(chain.proceed(REQUEST))
+                .andThrow(exception);
+
+        replay(chain);
+
+        // Test execution
+        try {
+            new MetricsInterceptor(metrics).intercept(chain);
+            fail("Exception expected");
+        } catch (SocketTimeoutException e) {
+            // Assertions
+            assertSame(exception, e);
+            assertEquals(Arrays.<Object>asList("\"urn:patoruzu\"", exception, true), events);
+        }
+
+        // Mock verification
+        verify(chain);
+    }
+}
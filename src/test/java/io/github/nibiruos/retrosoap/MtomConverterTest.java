@@ -0,0 +1,207 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+import org.easymock.Capture;
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static io.github.nibiruos.retrosoap.Utils.XML_MEDIA_TYPE;
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MtomConverterTest {
+    private static final MediaType PDF = MediaType.parse("application/pdf");
+    private static final String ENVELOPE = "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+            "<soapenv:Header /><soapenv:Body><document>" +
+            "<xop:Include xmlns:xop=\"http://www.w3.org/2004/08/xop/include\" href=\"cid:scan\"/>" +
+            "</document></soapenv:Body>" +
+            "</soapenv:Envelope>";
+
+    private Converter<String, RequestBody> requestConverter;
+    private Converter<ResponseBody, String> responseConverter;
+
+    @Before
+    public void setup() {
+        requestConverter = createMock(Converter.class);
+        responseConverter = createMock(Converter.class);
+    }
+
+    @Test
+    public void testConvertRequest() throws IOException {
+        // Expectations setup
+        expect(requestConverter.convert("Patoruzu"))
+                .andReturn(RequestBody.create(XML_MEDIA_TYPE, ENVELOPE));
+
+        replay(requestConverter);
+
+        // Test execution
+        RequestBody body = new MtomRequestConverter<>(requestConverter, SoapSpec.V_1_1)
+                .convert(new MtomBody<>("Patoruzu",
+                        Collections.singletonList(Attachment.create("scan",
+                                PDF,
+                                new ByteArrayInputStream(new byte[]{1, 2, 3})))));
+
+        // Assertions
+        assertEquals("multipart", body.contentType().type());
+        assertEquals("related", body.contentType().subtype());
+        assertEquals(-1, body.contentLength());
+
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        String message = buffer.readUtf8();
+        assertTrue(message.contains("Content-ID: <root>\r\n" +
+                "Content-Type: application/xop+xml; charset=UTF-8; type=\"text/xml\"\r\n"));
+        assertTrue(message.contains(ENVELOPE));
+        assertTrue(message.contains("Content-ID: <scan>\r\n" +
+                "Content-Transfer-Encoding: binary\r\n" +
+                "Content-Type: application/pdf\r\n" +
+                "\r\n" +
+                "\u0001\u0002\u0003\r\n"));
+
+        // Mock verification
+        verify(requestConverter);
+    }
+
+    @Test
+    public void testConvertResponse() throws IOException {
+        // Expectations setup
+        Capture<ResponseBody> root = newCapture();
+        expect(responseConverter.convert(capture(root)))
+                .andReturn("PATORUZU");
+
+        replay(responseConverter);
+
+        // Test execution
+        Buffer message = new Buffer()
+                .writeUtf8("--MIME_boundary\r\n" +
+                        "Content-Type: application/xop+xml; charset=UTF-8; type=\"text/xml\"\r\n" +
+                        "Content-ID: <root.message@example.org>\r\n" +
+                        "\r\n" +
+                        ENVELOPE + "\r\n" +
+                        "--MIME_boundary\r\n" +
+                        "Content-Type: application/pdf\r\n" +
+                        "Content-ID: <scan>\r\n" +
+                        "\r\n")
+                .write(new byte[]{1, 2, 3})
+                .writeUtf8("\r\n--MIME_boundary--\r\n");
+        MtomResponse<String> response = new MtomResponseConverter<>(responseConverter)
+                .convert(ResponseBody.create(MediaType.parse("multipart/related; type=\"application/xop+xml\"; " +
+                                "boundary=MIME_boundary; start=\"<root.message@example.org>\""),
+                        message.size(),
+                        message));
+
+        // Assertions
+        assertEquals("PATORUZU", response.getBody());
+        assertEquals(ENVELOPE, root.getValue().string());
+        Attachment attachment = response.getAttachment("cid:scan");
+        assertEquals(PDF, attachment.getContentType());
+        assertEquals(-1, attachment.contentLength());
+        assertEquals(new Buffer().write(new byte[]{1, 2, 3}).readByteString(),
+                Okio.buffer(attachment.source()).readByteString());
+
+        // Mock verification
+        verify(responseConverter);
+    }
+
+    @Test
+    public void testConvertResponseStreamsAttachments() throws IOException {
+        // Expectations setup
+        expect(responseConverter.convert(anyObject(ResponseBody.class)))
+                .andAnswer(new IAnswer<String>() {
+                    @Override
+                    public String answer() throws Throwable {
+                        return ((ResponseBody) getCurrentArguments()[0]).string()
+                                .equals(ENVELOPE)
+                                ? "PATORUZU"
+                                : null;
+                    }
+                });
+
+        replay(responseConverter);
+
+        // Test execution
+        byte[] scan = new byte[100000];
+        for (int i = 0; i < scan.length; i++) {
+            scan[i] = (byte) i;
+        }
+        Buffer message = new Buffer()
+                .writeUtf8("--MIME_boundary\r\n" +
+                        "Content-Type: application/xop+xml; charset=UTF-8; type=\"text/xml\"\r\n" +
+                        "\r\n" +
+                        ENVELOPE + "\r\n" +
+                        "--MIME_boundary\r\n" +
+                        "Content-Type: text/plain\r\n" +
+                        "Content-ID: <note>\r\n" +
+                        "\r\n" +
+                        "skipped\r\n" +
+                        "--MIME_boundary\r\n" +
+                        "Content-Type: application/pdf\r\n" +
+                        "Content-ID: <scan>\r\n" +
+                        "\r\n")
+                .write(scan)
+                .writeUtf8("\r\n--MIME_boundary--\r\n");
+        long size = message.size();
+        CountingSource source = new CountingSource(message);
+        MtomResponse<String> response = new MtomResponseConverter<>(responseConverter)
+                .convert(ResponseBody.create(MediaType.parse("multipart/related; boundary=MIME_boundary"),
+                        size,
+                        Okio.buffer(source)));
+        long readBeforeAttachments = source.read;
+        Attachment attachment = response.getAttachment("scan");
+        byte[] content = Okio.buffer(attachment.source()).readByteArray();
+        Map<String, Attachment> attachments = response.getAttachments();
+
+        // Assertions
+        assertEquals("PATORUZU", response.getBody());
+        assertTrue(readBeforeAttachments < scan.length);
+        assertArrayEquals(scan, content);
+        assertEquals(Arrays.asList("note", "scan"), new ArrayList<>(attachments.keySet()));
+        assertEquals("skipped", Okio.buffer(attachments.get("note").source()).readUtf8());
+        assertTrue(source.closed);
+
+        // Mock verification
+        verify(responseConverter);
+    }
+
+    // Hands out a few bytes at a time, like a slow connection
+    private static class CountingSource extends ForwardingSource {
+        private long read;
+        private boolean closed;
+
+        CountingSource(Source delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            long count = super.read(sink, Math.min(byteCount, 64));
+            if (count > 0) {
+                read += count;
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+}
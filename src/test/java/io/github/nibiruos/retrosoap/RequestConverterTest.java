@@ -10,10 +10,14 @@ import retrofit2.Converter;
 
 import javax.inject.Provider;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static io.github.nibiruos.retrosoap.Utils.XML_MEDIA_TYPE;
 import static org.easymock.EasyMock.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class RequestConverterTest {
     private Converter<String, RequestBody> requestConverter;
@@ -39,8 +43,9 @@ public class RequestConverterTest {
 
         // Test execution
         RequestBody body = new RequestConverter<>(requestConverter,
-                serializerProvider,
-                SoapSpec.V_1_2)
+                EnvelopeTemplate.create(serializerProvider,
+                        SoapSpec.V_1_2,
+                        RetroSoapFactory.SOAP_ENVELOPE_PREFIX))
                 .convert("Patoruzu");
 
         // Assertions
@@ -75,8 +80,9 @@ public class RequestConverterTest {
 
         // Test execution
         RequestBody body = new RequestConverter<>(requestConverter,
-                serializerProvider,
-                SoapSpec.V_1_1)
+                EnvelopeTemplate.create(serializerProvider,
+                        SoapSpec.V_1_1,
+                        RetroSoapFactory.SOAP_ENVELOPE_PREFIX))
                 .convert("Patoruzu");
 
         // Assertions
@@ -85,6 +91,7 @@ public class RequestConverterTest {
 
         Buffer buffer = new Buffer();
         body.writeTo(buffer);
+        assertEquals(buffer.size(), body.contentLength());
         assertEquals("<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
                         "<soapenv:Header />" +
                         "<soapenv:Body>" +
@@ -97,4 +104,112 @@ public class RequestConverterTest {
         verify(requestConverter);
         verify(serializerProvider);
     }
+
+    @Test
+    public void testConversionWithHeaders() throws IOException {
+        // Expectations setup
+        expect(requestConverter.convert("Patoruzu"))
+                .andReturn(RequestBody.create(XML_MEDIA_TYPE,
+                        "<name>PATORUZU</name>"));
+        expect(serializerProvider.get())
+                .andReturn(new MXSerializer());
+        expect(serializerProvider.get())
+                .andReturn(new MXSerializer());
+
+        replay(requestConverter);
+        replay(serializerProvider);
+
+        // Test execution
+        HeaderProvider staticHeader = new HeaderProvider() {
+            @Override
+            public void writeStatic(XmlSerializer serializer) throws IOException {
+                serializer.setPrefix("h", "urn:headers");
+                serializer.startTag("urn:headers", "Client");
+                serializer.text("retrosoap");
+                serializer.endTag("urn:headers", "Client");
+            }
+        };
+        HeaderProvider dynamicHeader = new HeaderProvider() {
+            @Override
+            public boolean isDynamic() {
+                return true;
+            }
+
+            @Override
+            public void writeDynamic(XmlSerializer serializer) throws IOException {
+                serializer.setPrefix("h", "urn:headers");
+                serializer.startTag("urn:headers", "MessageID");
+                serializer.text("42");
+                serializer.endTag("urn:headers", "MessageID");
+            }
+        };
+        RequestBody body = new RequestConverter<>(requestConverter,
+                EnvelopeTemplate.create(XmlPool.serializers(serializerProvider, 0),
+                        SoapSpec.V_1_1,
+                        RetroSoapFactory.SOAP_ENVELOPE_PREFIX,
+                        Arrays.asList(staticHeader, dynamicHeader)))
+                .convert("Patoruzu");
+
+        // Assertions
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        assertEquals(buffer.size(), body.contentLength());
+        assertEquals("<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+                        "<soapenv:Header>" +
+                        "<h:Client xmlns:h=\"urn:headers\">retrosoap</h:Client>" +
+                        "<h:MessageID xmlns:h=\"urn:headers\">42</h:MessageID>" +
+                        "</soapenv:Header>" +
+                        "<soapenv:Body>" +
+                        "<name>PATORUZU</name>" +
+                        "</soapenv:Body>" +
+                        "</soapenv:Envelope>",
+                buffer.readUtf8());
+
+        // Mock verification
+        verify(requestConverter);
+        verify(serializerProvider);
+    }
+
+    @Test
+    public void testConversionMetrics() throws IOException {
+        // Expectations setup
+        expect(requestConverter.convert("Patoruzu"))
+                .andReturn(RequestBody.create(XML_MEDIA_TYPE,
+                        "<name>PATORUZU</name>"));
+        expect(serializerProvider.get())
+                .andReturn(new MXSerializer());
+
+        replay(requestConverter);
+        replay(serializerProvider);
+
+        // Test execution
+        final List<Object> converted = new ArrayList<>();
+        RetroSoapMetrics metrics = new RetroSoapMetrics() {
+            @Override
+            public void requestConverted(String soapAction, long bodyNanos, long wrapNanos, long bytes) {
+                converted.add(soapAction);
+                converted.add(bodyNanos >= 0 && wrapNanos >= 0);
+                converted.add(bytes);
+            }
+        };
+        RequestBody body = new RequestConverter<>(requestConverter,
+                EnvelopeTemplate.create(serializerProvider,
+                        SoapSpec.V_1_1,
+                        RetroSoapFactory.SOAP_ENVELOPE_PREFIX),
+                metrics,
+                "\"urn:patoruzu\"")
+                .convert("Patoruzu");
+
+        // Assertions
+        assertTrue(converted.isEmpty());
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        body.writeTo(new Buffer());
+        assertEquals(Arrays.<Object>asList("\"urn:patoruzu\"", true, buffer.size()), converted);
+        assertEquals(body.contentLength(), buffer.size());
+
+        // Mock verification
+        verify(requestConverter);
+        verify(serializerProvider);
+    }
 }
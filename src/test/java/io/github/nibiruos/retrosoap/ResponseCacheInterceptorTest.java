@@ -0,0 +1,264 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.easymock.Capture;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertEquals;
+
+public class ResponseCacheInterceptorTest {
+    private static final String SOAP_ACTION = "\"http://test.com/GetRates\"";
+    private static final MediaType XML = MediaType.parse("text/xml;charset=UTF-8");
+    private static final String RESPONSE = "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+            "<soapenv:Body><rates/></soapenv:Body></soapenv:Envelope>";
+    // As left by FaultCodeInterceptor, with a 200 code
+    private static final String FAULT = "<?xml version=\"1.0\"?>\n" +
+            "<env:Envelope xmlns:env=\"http://www.w3.org/2003/05/soap-envelope\"><env:Header/>" +
+            "<env:Body>\n  <!-- error -->\n  <env:Fault><env:Code><env:Value>env:Receiver</env:Value></env:Code>" +
+            "</env:Fault></env:Body></env:Envelope>";
+    private static final String ADDRESSED_FAULT = "<env:Envelope xmlns:env=\"http://www.w3.org/2003/05/soap-envelope\"" +
+            " xmlns:a=\"http://www.w3.org/2005/08/addressing\">" +
+            "<env:Header><a:Action>http://www.w3.org/2005/08/addressing/soap/fault</a:Action></env:Header>" +
+            "<env:Body><env:Fault><env:Code><env:Value>env:Receiver</env:Value></env:Code>" +
+            "</env:Fault></env:Body></env:Envelope>";
+
+    private Interceptor.Chain chain;
+
+    @Before
+    public void setup() {
+        chain = createMock(Interceptor.Chain.class);
+    }
+
+    @Test
+    public void testInterceptCached() throws IOException {
+        // Expectations setup
+        Request first = buildRequest(SOAP_ACTION, "<rates/>");
+        Request second = buildRequest(SOAP_ACTION, "<rates/>");
+        expect(chain.request())
+                .andReturn(first);
+        expect(chain.proceed(anyObject(Request.class)))
+                .andReturn(buildResponse(first, 200));
+        expect(chain.request())
+                .andReturn(second);
+
+        replay(chain);
+
+        // Test execution
+        ResponseCacheInterceptor interceptor = ResponseCacheInterceptor.builder()
+                .ttl(SOAP_ACTION, 1, TimeUnit.MINUTES)
+                .directBuffers(true)
+                .build();
+        Response firstResponse = interceptor.intercept(chain);
+        Response secondResponse = interceptor.intercept(chain);
+
+        // Assertions
+        assertEquals(RESPONSE, firstResponse.body().string());
+        assertEquals(RESPONSE, secondResponse.body().string());
+        assertEquals(second, secondResponse.request());
+        assertEquals(RESPONSE.length(), interceptor.size());
+
+        // Mock verification
+        verify(chain);
+    }
+
+    @Test
+    public void testInterceptNotCached() throws IOException {
+        // Expectations setup
+        Request other = buildRequest("\"http://test.com/Other\"", "<rates/>");
+        Request fault = buildRequest(SOAP_ACTION, "<rates/>");
+        Request differentBody = buildRequest(SOAP_ACTION, "<rates currency=\"EUR\"/>");
+        expect(chain.request())
+                .andReturn(other)
+                .times(2);
+        expect(chain.proceed(other))
+                .andReturn(buildResponse(other, 200))
+                .times(2);
+        expect(chain.request())
+                .andReturn(fault);
+        expect(chain.proceed(anyObject(Request.class)))
+                .andReturn(buildResponse(fault, 500));
+        expect(chain.request())
+                .andReturn(differentBody);
+        expect(chain.proceed(anyObject(Request.class)))
+                .andReturn(buildResponse(differentBody, 200));
+
+        replay(chain);
+
+        // Test execution
+        ResponseCacheInterceptor interceptor = ResponseCacheInterceptor.builder()
+                .ttl(SOAP_ACTION, 1, TimeUnit.MINUTES)
+                .build();
+        interceptor.intercept(chain);
+        interceptor.intercept(chain);
+        interceptor.intercept(chain);
+        interceptor.intercept(chain);
+
+        // Assertions
+        assertEquals(RESPONSE.length(), interceptor.size());
+
+        // Mock verification
+        verify(chain);
+    }
+
+    @Test
+    public void testInterceptEvicted() throws IOException {
+        // Expectations setup
+        Request first = buildRequest(SOAP_ACTION, "<rates currency=\"EUR\"/>");
+        Request second = buildRequest(SOAP_ACTION, "<rates currency=\"USD\"/>");
+        expect(chain.request())
+                .andReturn(first);
+        expect(chain.proceed(anyObject(Request.class)))
+                .andReturn(buildResponse(first, 200));
+        expect(chain.request())
+                .andReturn(second);
+        expect(chain.proceed(anyObject(Request.class)))
+                .andReturn(buildResponse(second, 200));
+        expect(chain.request())
+                .andReturn(first);
+        expect(chain.proceed(anyObject(Request.class)))
+                .andReturn(buildResponse(first, 200));
+
+        replay(chain);
+
+        // Test execution
+        ResponseCacheInterceptor interceptor = ResponseCacheInterceptor.builder()
+                .ttl(SOAP_ACTION, 1, TimeUnit.MINUTES)
+                .maxBytes(RESPONSE.length())
+                .build();
+        interceptor.intercept(chain);
+        interceptor.intercept(chain);
+        interceptor.intercept(chain);
+
+        // Assertions
+        assertEquals(RESPONSE.length(), interceptor.size());
+
+        // Mock verification
+        verify(chain);
+    }
+
+    @Test
+    public void testInterceptFaultNotCached() throws IOException {
+        // Expectations setup
+        Request request = buildRequest(SOAP_ACTION, "<rates/>");
+        expect(chain.request())
+                .andReturn(request)
+                .times(2);
+        expect(chain.proceed(anyObject(Request.class)))
+                .andReturn(buildResponse(request, 200, FAULT))
+                .andReturn(buildResponse(request, 200, FAULT));
+
+        replay(chain);
+
+        // Test execution
+        ResponseCacheInterceptor interceptor = ResponseCacheInterceptor.builder()
+                .ttl(SOAP_ACTION, 1, TimeUnit.MINUTES)
+                .build();
+        interceptor.intercept(chain);
+        Response response = interceptor.intercept(chain);
+
+        // Assertions
+        assertEquals(FAULT, response.body().string());
+        assertEquals(0, interceptor.size());
+
+        // Mock verification
+        verify(chain);
+    }
+
+    @Test
+    public void testInterceptFaultWithHeaderNotCached() throws IOException {
+        // Expectations setup
+        Request request = buildRequest(SOAP_ACTION, "<rates/>");
+        expect(chain.request())
+                .andReturn(request)
+                .times(2);
+        expect(chain.proceed(anyObject(Request.class)))
+                .andReturn(buildResponse(request, 200, ADDRESSED_FAULT))
+                .andReturn(buildResponse(request, 200, ADDRESSED_FAULT));
+
+        replay(chain);
+
+        // Test execution
+        ResponseCacheInterceptor interceptor = ResponseCacheInterceptor.builder()
+                .ttl(SOAP_ACTION, 1, TimeUnit.MINUTES)
+                .build();
+        interceptor.intercept(chain);
+        Response response = interceptor.intercept(chain);
+
+        // Assertions
+        assertEquals(ADDRESSED_FAULT, response.body().string());
+        assertEquals(0, interceptor.size());
+
+        // Mock verification
+        verify(chain);
+    }
+
+    @Test
+    public void testInterceptSingleUseBody() throws IOException {
+        // Expectations setup
+        Attachment attachment = Attachment.create("image",
+                MediaType.parse("image/png"),
+                new ByteArrayInputStream(new byte[]{1, 2, 3}));
+        Request request = new Request.Builder()
+                .url("http://localhost/service")
+                .header(RetroSoapFactory.SOAP_ACTION_HEADER, SOAP_ACTION)
+                .post(attachment.toRequestBody())
+                .build();
+        Capture<Request> sent = newCapture();
+        expect(chain.request())
+                .andReturn(request);
+        expect(chain.proceed(capture(sent)))
+                .andReturn(buildResponse(request, 200));
+
+        replay(chain);
+
+        // Test execution
+        ResponseCacheInterceptor.builder()
+                .ttl(SOAP_ACTION, 1, TimeUnit.MINUTES)
+                .build()
+                .intercept(chain);
+
+        // Assertions
+        Buffer body = new Buffer();
+        sent.getValue().body().writeTo(body);
+        assertEquals(3, body.size());
+        assertEquals("image/png", sent.getValue().body().contentType().toString());
+
+        // Mock verification
+        verify(chain);
+    }
+
+    private static Request buildRequest(String soapAction, String body) {
+        return new Request.Builder()
+                .url("http://localhost/service")
+                .header(RetroSoapFactory.SOAP_ACTION_HEADER, soapAction)
+                .post(RequestBody.create(XML, body))
+                .build();
+    }
+
+    private static Response buildResponse(Request request, int code) {
+        return buildResponse(request, code, RESPONSE);
+    }
+
+    private static Response buildResponse(Request request, int code, String body) {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("OK")
+                .body(ResponseBody.create(XML, body))
+                .build();
+    }
+}
@@ -1,15 +1,26 @@
 package io.github.nibiruos.retrosoap;
 
+import okhttp3.MediaType;
 import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ByteString;
+import org.easymock.Capture;
 import org.junit.Before;
 import org.junit.Test;
 import org.xmlpull.mxp1_serializer.MXSerializer;
 import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlSerializer;
 import retrofit2.Converter;
+import retrofit2.Retrofit;
 
 import javax.inject.Provider;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Arrays;
 
 import static io.github.nibiruos.retrosoap.Utils.XML_MEDIA_TYPE;
 import static io.github.nibiruos.retrosoap.Utils.buildXmlPullParser;
@@ -32,8 +43,6 @@ public class ResponseConverterTest {
     @Test
     public void testConvertSoap11() throws IOException {
         // Expectations setup
-        expect(serializerProvider.get())
-                .andReturn(new MXSerializer());
         expect(pullParserProvider.get())
                 .andReturn(buildXmlPullParser());
         expect(responseConverter.convert(isA(ResponseBody.class))) // Using "isA" because ResponseBody does not implement equals()
@@ -44,10 +53,7 @@ public class ResponseConverterTest {
         replay(serializerProvider);
 
         // Test execution
-        String body = new ResponseConverter<>(responseConverter,
-                pullParserProvider,
-                serializerProvider,
-                SoapSpec.V_1_1)
+        String body = converter(SoapSpec.V_1_1, false, null)
                 .convert(ResponseBody.create(XML_MEDIA_TYPE,
                         "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
                                 "<SOAP-ENV:Body>" +
@@ -64,10 +70,13 @@ public class ResponseConverterTest {
     }
 
     @Test
-    public void testConvertSoap12() throws IOException {
+    public void testConvertReportsMetrics() throws IOException {
         // Expectations setup
-        expect(serializerProvider.get())
-                .andReturn(new MXSerializer());
+        String document = "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+                "<SOAP-ENV:Body>" +
+                "<data>Patoruzu</data>" +
+                "</SOAP-ENV:Body></SOAP-ENV:Envelope>";
+        RecordingMetrics metrics = new RecordingMetrics();
         expect(pullParserProvider.get())
                 .andReturn(buildXmlPullParser());
         expect(responseConverter.convert(isA(ResponseBody.class))) // Using "isA" because ResponseBody does not implement equals()
@@ -79,9 +88,77 @@ public class ResponseConverterTest {
 
         // Test execution
         String body = new ResponseConverter<>(responseConverter,
-                pullParserProvider,
-                serializerProvider,
-                SoapSpec.V_1_2)
+                XmlPool.pullParsers(pullParserProvider, 0),
+                XmlPool.serializers(serializerProvider, 0),
+                SoapSpec.V_1_1,
+                false,
+                null,
+                true,
+                metrics,
+                "urn:getData")
+                .convert(ResponseBody.create(XML_MEDIA_TYPE, document));
+
+        // Assertions
+        assertEquals("PATORUZU", body);
+        assertEquals("urn:getData", metrics.soapAction);
+        assertEquals(document.length(), metrics.bytes);
+
+        // Mock verification
+        verify(pullParserProvider);
+        verify(responseConverter);
+        verify(serializerProvider);
+    }
+
+    @Test
+    public void testConvertWithCodec() throws IOException {
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+
+        replay(pullParserProvider);
+        replay(responseConverter);
+        replay(serializerProvider);
+
+        // Test execution
+        String body = new ResponseConverter<>(responseConverter,
+                XmlPool.pullParsers(pullParserProvider, 0),
+                XmlPool.serializers(serializerProvider, 0),
+                SoapSpec.V_1_1,
+                false,
+                null,
+                true,
+                RetroSoapMetrics.NONE,
+                null,
+                new DataCodec())
+                .convert(ResponseBody.create(XML_MEDIA_TYPE,
+                        "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+                                "<SOAP-ENV:Body>" +
+                                "<data>Patoruzu</data>" +
+                                "</SOAP-ENV:Body></SOAP-ENV:Envelope>"));
+
+        // Assertions
+        assertEquals("Patoruzu", body);
+
+        // Mock verification
+        verify(pullParserProvider);
+        verify(responseConverter);
+        verify(serializerProvider);
+    }
+
+    @Test
+    public void testConvertSoap12() throws IOException {
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+        expect(responseConverter.convert(isA(ResponseBody.class))) // Using "isA" because ResponseBody does not implement equals()
+                .andReturn("PATORUZU");
+
+        replay(pullParserProvider);
+        replay(responseConverter);
+        replay(serializerProvider);
+
+        // Test execution
+        String body = converter(SoapSpec.V_1_2, false, null)
                 .convert(ResponseBody.create(XML_MEDIA_TYPE,
                         "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope\">" +
                                 "<SOAP-ENV:Body>" +
@@ -101,8 +178,6 @@ public class ResponseConverterTest {
     @Test
     public void testConvertFault() throws IOException {
         // Expectations setup
-        expect(serializerProvider.get())
-                .andReturn(new MXSerializer());
         expect(pullParserProvider.get())
                 .andReturn(buildXmlPullParser());
 
@@ -112,10 +187,7 @@ public class ResponseConverterTest {
 
         // Test execution
         try {
-            new ResponseConverter<>(responseConverter,
-                    pullParserProvider,
-                    serializerProvider,
-                    SoapSpec.V_1_1)
+            converter(SoapSpec.V_1_1, false, null)
                     .convert(ResponseBody.create(XML_MEDIA_TYPE,
                             "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">\n" +
                                     "   <soapenv:Body>\n" +
@@ -142,4 +214,382 @@ public class ResponseConverterTest {
         verify(serializerProvider);
     }
 
+    @Test
+    public void testConvertFaultDetail() throws IOException {
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+
+        replay(pullParserProvider);
+        replay(responseConverter);
+        replay(serializerProvider);
+
+        // Test execution
+        try {
+            converter(SoapSpec.V_1_1, false, new FaultDetailConverter(new StringConverterFactory(), null))
+                    .convert(ResponseBody.create(XML_MEDIA_TYPE,
+                            "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">\n" +
+                                    "   <soapenv:Body>\n" +
+                                    "      <soapenv:Fault>\n" +
+                                    "         <faultcode>soapenv:Server</faultcode>\n" +
+                                    "         <faultstring>Failed</faultstring>\n" +
+                                    "         <detail xmlns:ns1=\"urn:one\">\n" +
+                                    "            <!-- <ignored/> -->\n" +
+                                    "            <ns1:error code=\"a&gt;b\"><ns1:info/></ns1:error>\n" +
+                                    "            <ns2:host xmlns:ns2=\"urn:two\" xmlns:ns1=\"urn:other\">localhost</ns2:host>\n" +
+                                    "         </detail>\n" +
+                                    "      </soapenv:Fault>\n" +
+                                    "   </soapenv:Body>\n" +
+                                    "</soapenv:Envelope>"));
+            fail("SoapFault expected");
+        } catch (SoapFault expected) {
+            // Assertions
+            String detail = "\n" +
+                    "            <!-- <ignored/> -->\n" +
+                    "            <ns1:error xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns:ns1=\"urn:one\" code=\"a&gt;b\"><ns1:info/></ns1:error>\n" +
+                    "            <ns2:host xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns:ns2=\"urn:two\" xmlns:ns1=\"urn:other\">localhost</ns2:host>\n" +
+                    "         ";
+            assertEquals(detail, expected.getDetail().utf8());
+            assertEquals(detail, expected.getDetail(String.class));
+            assertEquals(0, expected.getStackTrace().length);
+            assertEquals(detail, serializeAndRead(expected).getDetail().utf8());
+        }
+
+        // Mock verification
+        verify(pullParserProvider);
+        verify(responseConverter);
+        verify(serializerProvider);
+    }
+
+    @Test
+    public void testConvertSoap12Fault() throws IOException {
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+
+        replay(pullParserProvider);
+        replay(responseConverter);
+        replay(serializerProvider);
+
+        // Test execution
+        try {
+            converter(SoapSpec.V_1_2, false, null)
+                    .convert(ResponseBody.create(XML_MEDIA_TYPE,
+                            "<env:Envelope xmlns:env=\"http://schemas.xmlsoap.org/soap/envelope\" xmlns:m=\"http://www.example.org/timeouts\">\n" +
+                                    "   <env:Body>\n" +
+                                    "      <env:Fault>\n" +
+                                    "         <env:Code>\n" +
+                                    "            <env:Value>env:Sender</env:Value>\n" +
+                                    "            <env:Subcode>\n" +
+                                    "               <env:Value>m:MessageTimeout</env:Value>\n" +
+                                    "               <env:Subcode>\n" +
+                                    "                  <env:Value>m:Retry</env:Value>\n" +
+                                    "               </env:Subcode>\n" +
+                                    "            </env:Subcode>\n" +
+                                    "         </env:Code>\n" +
+                                    "         <env:Reason>\n" +
+                                    "            <env:Text xml:lang=\"en\">Sender Timeout</env:Text>\n" +
+                                    "            <env:Text xml:lang=\"es\">Tiempo agotado</env:Text>\n" +
+                                    "         </env:Reason>\n" +
+                                    "         <env:Detail><m:MaxTime>P5M</m:MaxTime></env:Detail>\n" +
+                                    "      </env:Fault>\n" +
+                                    "   </env:Body>\n" +
+                                    "</env:Envelope>"));
+            fail("SoapFault expected");
+        } catch (SoapFault expected) {
+            // Assertions
+            assertEquals("env:Sender", expected.getCode());
+            assertEquals(Arrays.asList("m:MessageTimeout", "m:Retry"), expected.getSubcodes());
+            assertEquals("Sender Timeout", expected.getString());
+            assertEquals("en", expected.getLang());
+            assertEquals("<m:MaxTime xmlns:env=\"http://schemas.xmlsoap.org/soap/envelope\" xmlns:m=\"http://www.example.org/timeouts\">P5M</m:MaxTime>",
+                    expected.getDetail().utf8());
+        }
+
+        // Mock verification
+        verify(pullParserProvider);
+        verify(responseConverter);
+        verify(serializerProvider);
+    }
+
+    @Test
+    public void testConvertKeepsInheritedNamespaces() throws IOException {
+        // Expectations setup
+        Capture<ResponseBody> content = newCapture();
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+        expect(responseConverter.convert(capture(content)))
+                .andReturn("PATORUZU");
+
+        replay(pullParserProvider);
+        replay(responseConverter);
+        replay(serializerProvider);
+
+        // Test execution
+        String body = converter(SoapSpec.V_1_1, false, null)
+                .convert(ResponseBody.create(XML_MEDIA_TYPE,
+                        "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns:ns1=\"urn:one\">" +
+                                "<SOAP-ENV:Body xmlns:ns2=\"urn:two\">\n" +
+                                "<ns1:data ns2:kind=\"name\">Patoruzu</ns1:data>\n" +
+                                "</SOAP-ENV:Body>" +
+                                "</SOAP-ENV:Envelope>"));
+
+        // Assertions
+        assertEquals("PATORUZU", body);
+        assertEquals("<ns1:data xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns:ns1=\"urn:one\" xmlns:ns2=\"urn:two\" ns2:kind=\"name\">Patoruzu</ns1:data>\n",
+                content.getValue().string());
+
+        // Mock verification
+        verify(pullParserProvider);
+        verify(responseConverter);
+        verify(serializerProvider);
+    }
+
+    @Test
+    public void testConvertNonUtf8Document() throws IOException {
+        // Expectations setup
+        Capture<ResponseBody> content = newCapture();
+        expect(serializerProvider.get())
+                .andReturn(new MXSerializer());
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+        expect(responseConverter.convert(capture(content)))
+                .andReturn("PATORUZU");
+
+        replay(pullParserProvider);
+        replay(responseConverter);
+        replay(serializerProvider);
+
+        // Test execution
+        String body = converter(SoapSpec.V_1_1, false, null)
+                .convert(ResponseBody.create(null,
+                        "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>" +
+                                "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+                                "<SOAP-ENV:Body>" +
+                                "<data>Patoruzu</data>" +
+                                "</SOAP-ENV:Body>" +
+                                "</SOAP-ENV:Envelope>"));
+
+        // Assertions
+        assertEquals("PATORUZU", body);
+        assertEquals("<data>Patoruzu</data>",
+                content.getValue().string());
+
+        // Mock verification
+        verify(pullParserProvider);
+        verify(responseConverter);
+        verify(serializerProvider);
+    }
+
+    @Test
+    public void testConvertStreaming() throws IOException {
+        // Expectations setup
+        Capture<ResponseBody> content = newCapture();
+        expect(serializerProvider.get())
+                .andReturn(new MXSerializer());
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+        expect(responseConverter.convert(capture(content)))
+                .andReturn("PATORUZU");
+
+        replay(pullParserProvider);
+        replay(responseConverter);
+        replay(serializerProvider);
+
+        // Test execution
+        String body = converter(SoapSpec.V_1_1, true, null)
+                .convert(ResponseBody.create(XML_MEDIA_TYPE,
+                        "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+                                "<SOAP-ENV:Body>" +
+                                "<ns1:data xmlns:ns1=\"urn:one\" kind=\"name\">Patoruzu</ns1:data>" +
+                                "</SOAP-ENV:Body>" +
+                                "</SOAP-ENV:Envelope>"));
+
+        // Assertions
+        assertEquals("PATORUZU", body);
+        assertEquals("<ns1:data kind=\"name\" xmlns:ns1=\"urn:one\">Patoruzu</ns1:data>",
+                content.getValue().string());
+
+        // Mock verification
+        verify(pullParserProvider);
+        verify(responseConverter);
+        verify(serializerProvider);
+    }
+
+    @Test
+    public void testConvertStreamingCharset() throws IOException {
+        // Expectations setup
+        Capture<ResponseBody> content = newCapture();
+        expect(serializerProvider.get())
+                .andReturn(new MXSerializer());
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+        expect(responseConverter.convert(capture(content)))
+                .andReturn("PATORUZ\u00da");
+
+        replay(pullParserProvider);
+        replay(responseConverter);
+        replay(serializerProvider);
+
+        // Test execution
+        String body = converter(SoapSpec.V_1_1, true, null)
+                .convert(ResponseBody.create(MediaType.parse("text/xml; charset=ISO-8859-1"),
+                        ByteString.encodeUtf8("<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+                                "<SOAP-ENV:Body>" +
+                                "<data>Patoruz\u00fa</data>" +
+                                "</SOAP-ENV:Body>" +
+                                "</SOAP-ENV:Envelope>").toByteArray()));
+
+        // Assertions
+        assertEquals("PATORUZ\u00da", body);
+        assertEquals(MediaType.parse("text/xml; charset=UTF-8"), content.getValue().contentType());
+        assertEquals("<data>Patoruz\u00fa</data>", content.getValue().string());
+
+        // Mock verification
+        verify(pullParserProvider);
+        verify(responseConverter);
+        verify(serializerProvider);
+    }
+
+    @Test
+    public void testConvertStreamingAttributeNamespace() throws IOException {
+        // Expectations setup
+        Capture<ResponseBody> content = newCapture();
+        expect(serializerProvider.get())
+                .andReturn(new MXSerializer());
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+        expect(responseConverter.convert(capture(content)))
+                .andReturn("PATORUZU");
+
+        replay(pullParserProvider);
+        replay(responseConverter);
+        replay(serializerProvider);
+
+        // Test execution
+        String body = converter(SoapSpec.V_1_1, true, null)
+                .convert(ResponseBody.create(XML_MEDIA_TYPE,
+                        "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+                                "<SOAP-ENV:Body xmlns:ns2=\"urn:two\">" +
+                                "<ns1:data xmlns:ns1=\"urn:one\" ns2:kind=\"name\">Patoruzu</ns1:data>" +
+                                "</SOAP-ENV:Body>" +
+                                "</SOAP-ENV:Envelope>"));
+
+        // Assertions
+        assertEquals("PATORUZU", body);
+        assertEquals("<ns1:data ns2:kind=\"name\" xmlns:ns1=\"urn:one\" xmlns:ns2=\"urn:two\">Patoruzu</ns1:data>",
+                content.getValue().string());
+
+        // Mock verification
+        verify(pullParserProvider);
+        verify(responseConverter);
+        verify(serializerProvider);
+    }
+
+    @Test
+    public void testConvertStreamingInheritedNamespaces() throws IOException {
+        // Expectations setup
+        Capture<ResponseBody> content = newCapture();
+        expect(serializerProvider.get())
+                .andReturn(new MXSerializer());
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+        expect(responseConverter.convert(capture(content)))
+                .andReturn("PATORUZU");
+
+        replay(pullParserProvider);
+        replay(responseConverter);
+        replay(serializerProvider);
+
+        // Test execution
+        String body = converter(SoapSpec.V_1_1, true, null)
+                .convert(ResponseBody.create(XML_MEDIA_TYPE,
+                        "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns:ns1=\"urn:one\" xmlns=\"urn:default\">" +
+                                "<SOAP-ENV:Body>" +
+                                "<ns1:data><ns1:name ns1:kind=\"first\">Patoruzu</ns1:name><id>1</id></ns1:data>" +
+                                "</SOAP-ENV:Body>" +
+                                "</SOAP-ENV:Envelope>"));
+
+        // Assertions
+        assertEquals("PATORUZU", body);
+        // Inherited prefixes are declared once, where they are first used
+        assertEquals("<ns1:data xmlns:ns1=\"urn:one\">" +
+                        "<ns1:name ns1:kind=\"first\">Patoruzu</ns1:name>" +
+                        "<id xmlns=\"urn:default\">1</id>" +
+                        "</ns1:data>",
+                content.getValue().string());
+
+        // Mock verification
+        verify(pullParserProvider);
+        verify(responseConverter);
+        verify(serializerProvider);
+    }
+
+    private ResponseConverter<String> converter(SoapSpec soapSpec,
+                                                boolean streaming,
+                                                FaultDetailConverter detailConverter) {
+        return new ResponseConverter<>(responseConverter,
+                XmlPool.pullParsers(pullParserProvider, 0),
+                XmlPool.serializers(serializerProvider, 0),
+                soapSpec,
+                streaming,
+                detailConverter,
+                false,
+                RetroSoapMetrics.NONE,
+                null);
+    }
+
+    private static SoapFault serializeAndRead(SoapFault fault) throws IOException {
+        Buffer buffer = new Buffer();
+        try (ObjectOutputStream output = new ObjectOutputStream(buffer.outputStream())) {
+            output.writeObject(fault);
+        }
+        try (ObjectInputStream input = new ObjectInputStream(buffer.inputStream())) {
+            return (SoapFault) input.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static class StringConverterFactory extends Converter.Factory {
+        @Override
+        public Converter<ResponseBody, ?> responseBodyConverter(Type type,
+                                                                Annotation[] annotations,
+                                                                Retrofit retrofit) {
+            return new Converter<ResponseBody, String>() {
+                @Override
+                public String convert(ResponseBody value) throws IOException {
+                    return value.string();
+                }
+            };
+        }
+    }
+
+    static class DataCodec implements XmlCodec<String> {
+        @Override
+        public String read(XmlPullParser parser) throws IOException, XmlPullParserException {
+            return parser.nextText();
+        }
+
+        @Override
+        public void write(String value, XmlSerializer serializer) throws IOException {
+            serializer.startTag("", "data");
+            serializer.text(value);
+            serializer.endTag("", "data");
+        }
+    }
+
+    private static class RecordingMetrics extends RetroSoapMetrics {
+        private String soapAction;
+        private long bytes;
+
+        @Override
+        public void responseConverted(String soapAction,
+                                      long unwrapNanos,
+                                      long bodyNanos,
+                                      long bytes) {
+            this.soapAction = soapAction;
+            this.bytes = bytes;
+        }
+    }
 }
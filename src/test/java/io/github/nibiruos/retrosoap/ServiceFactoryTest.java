@@ -0,0 +1,179 @@
+package io.github.nibiruos.retrosoap;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xmlpull.v1.XmlPullParser;
+import retrofit2.Retrofit;
+
+import javax.inject.Provider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.nibiruos.retrosoap.Utils.buildXmlPullParser;
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ServiceFactoryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Provider<XmlPullParser> pullParserProvider;
+    private Provider<Retrofit.Builder> retrofitBuilderProvider;
+    private File wsdl;
+
+    @Before
+    public void setup() throws IOException {
+        pullParserProvider = createMock(Provider.class);
+        retrofitBuilderProvider = createMock(Provider.class);
+        wsdl = folder.newFile("service.wsdl");
+        try (OutputStream output = new FileOutputStream(wsdl)) {
+            output.write(WsdlParserTest.WSDL.getBytes("UTF-8"));
+        }
+    }
+
+    @Test
+    public void testCreateServiceCached() throws IOException {
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+        expect(retrofitBuilderProvider.get())
+                .andReturn(new Retrofit.Builder())
+                .times(2);
+
+        replay(pullParserProvider);
+        replay(retrofitBuilderProvider);
+
+        // Test execution
+        EndpointCache cache = new EndpointCache(1, TimeUnit.HOURS);
+        ServiceFactory serviceFactory = new ServiceFactory(new WsdlParser(pullParserProvider),
+                retrofitBuilderProvider,
+                cache);
+        String wsdlUrl = wsdl.toURI().toString();
+        assertNotNull(serviceFactory.createService(TestService.class,
+                SoapSpec.V_1_1,
+                wsdlUrl,
+                "LoginCMSService",
+                "LoginCms"));
+        // Second call must not read the WSDL again
+        assertNotNull(serviceFactory.createService(TestService.class,
+                SoapSpec.V_1_1,
+                wsdlUrl,
+                "LoginCMSService",
+                "LoginCms"));
+
+        // Assertions
+        assertEquals(WsdlParserTest.LOCATION,
+                cache.get(wsdlUrl, SoapSpec.V_1_1, "LoginCMSService", "LoginCms"));
+
+        // Mock verification
+        verify(pullParserProvider);
+        verify(retrofitBuilderProvider);
+    }
+
+    @Test
+    public void testCreateServices() throws Exception {
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+        expect(retrofitBuilderProvider.get())
+                .andReturn(new Retrofit.Builder())
+                .times(2);
+
+        replay(pullParserProvider);
+        replay(retrofitBuilderProvider);
+
+        // Test execution
+        ServiceFactory serviceFactory = new ServiceFactory(new WsdlParser(pullParserProvider),
+                retrofitBuilderProvider,
+                new EndpointCache(1, TimeUnit.HOURS));
+        String wsdlUrl = wsdl.toURI().toString();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<Future<?>> services;
+        try {
+            services = serviceFactory.createServices(executor, Arrays.asList(
+                    new ServiceRequest<>(TestService.class,
+                            SoapSpec.V_1_1,
+                            wsdlUrl,
+                            "LoginCMSService",
+                            "LoginCms"),
+                    new ServiceRequest<>(OtherTestService.class,
+                            SoapSpec.V_1_1,
+                            wsdlUrl,
+                            null,
+                            "LoginCms")));
+        } finally {
+            executor.shutdown();
+        }
+
+        // Assertions
+        assertEquals(2, services.size());
+        assertTrue(services.get(0).get() instanceof TestService);
+        assertTrue(services.get(1).get() instanceof OtherTestService);
+
+        // Mock verification
+        verify(pullParserProvider);
+        verify(retrofitBuilderProvider);
+    }
+
+    @Test
+    public void testCreateBalancedService() throws IOException {
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+        expect(retrofitBuilderProvider.get())
+                .andReturn(new Retrofit.Builder());
+
+        replay(pullParserProvider);
+        replay(retrofitBuilderProvider);
+
+        // Test execution
+        try (OutputStream output = new FileOutputStream(wsdl)) {
+            output.write(WsdlParserTest.WSDL
+                    .replace("   </wsdl:service>\n",
+                            "   </wsdl:service>\n" +
+                                    "   <wsdl:service name=\"LoginCMSBackupService\">\n" +
+                                    "      <wsdl:port binding=\"impl:LoginCmsSoapBinding\" name=\"LoginCmsBackup\">\n" +
+                                    "         <wsdlsoap:address location=\"https://backup.afip.gov.ar/ws/services/LoginCms\"/>\n" +
+                                    "      </wsdl:port>\n" +
+                                    "   </wsdl:service>\n")
+                    .getBytes("UTF-8"));
+        }
+        ServiceFactory serviceFactory = new ServiceFactory(new WsdlParser(pullParserProvider),
+                retrofitBuilderProvider);
+        EndpointPool pool = serviceFactory.createEndpointPool(SoapSpec.V_1_1,
+                wsdl.toURI().toString(),
+                "LoginCMSService",
+                "LoginCms",
+                EndpointPool.Strategy.LEAST_OUTSTANDING);
+        TestService service = serviceFactory.createService(TestService.class, pool);
+
+        // Assertions
+        assertNotNull(service);
+        assertEquals(2, pool.getEndpoints().size());
+        assertEquals(WsdlParserTest.LOCATION + "/", pool.getPrimaryUrl());
+        assertEquals("https://backup.afip.gov.ar/ws/services/LoginCms/",
+                pool.getEndpoints().get(1).getUrl());
+
+        // Mock verification
+        verify(pullParserProvider);
+        verify(retrofitBuilderProvider);
+    }
+
+    interface OtherTestService {
+    }
+
+    interface TestService {
+    }
+}
@@ -0,0 +1,161 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xmlpull.v1.XmlPullParser;
+import retrofit2.Call;
+import retrofit2.http.Headers;
+import retrofit2.http.POST;
+
+import javax.inject.Provider;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import static io.github.nibiruos.retrosoap.Utils.buildXmlPullParser;
+import static io.github.nibiruos.retrosoap.WsdlParserTest.WSDL;
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ServiceGeneratorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Provider<XmlPullParser> pullParserProvider;
+
+    @Before
+    public void setup() {
+        pullParserProvider = createMock(Provider.class);
+    }
+
+    @Test
+    public void testGenerate() {
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+
+        replay(pullParserProvider);
+
+        // Test execution
+        WsdlIndex index = new WsdlParser(pullParserProvider)
+                .parseIndex(new ByteArrayInputStream(WSDL.getBytes()), SoapSpec.V_1_1);
+        String source = new ServiceGenerator("ar.gov.afip.wsaa")
+                .generate(index, SoapSpec.V_1_1, "LoginCmsSoapBinding", "LoginCmsService");
+
+        // Assertions
+        assertEquals("// Generated by ServiceGenerator from binding LoginCmsSoapBinding. Do not edit.\n" +
+                        "package ar.gov.afip.wsaa;\n" +
+                        "\n" +
+                        "import io.github.nibiruos.retrosoap.SoapConstants;\n" +
+                        "import retrofit2.Call;\n" +
+                        "import retrofit2.http.Body;\n" +
+                        "import retrofit2.http.Headers;\n" +
+                        "import retrofit2.http.POST;\n" +
+                        "\n" +
+                        "public interface LoginCmsService {\n" +
+                        "    @Headers({SoapConstants.CONTENT_TYPE_HEADER, SoapConstants.SOAP_ACTION_PREFIX + \"\\\"\\\"\"})\n" +
+                        "    @POST(\".\")\n" +
+                        "    Call<LoginCmsResponse> loginCms(@Body LoginCms request);\n" +
+                        "}\n",
+                source);
+
+        // Mock verification
+        verify(pullParserProvider);
+    }
+
+    @Test
+    public void testGenerateSoap12() {
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+
+        replay(pullParserProvider);
+
+        // Test execution
+        String wsdl = WSDL.replace("http://schemas.xmlsoap.org/wsdl/soap/", "http://schemas.xmlsoap.org/wsdl/soap12/")
+                .replace("soapAction=\"\"", "soapAction=\"urn:loginCms\"");
+        WsdlIndex index = new WsdlParser(pullParserProvider)
+                .parseIndex(new ByteArrayInputStream(wsdl.getBytes()), SoapSpec.V_1_2);
+        String source = new ServiceGenerator("ar.gov.afip.wsaa")
+                .generate(index, SoapSpec.V_1_2, "LoginCmsSoapBinding", "LoginCmsService");
+
+        // Assertions
+        assertTrue(source.contains("    @Headers({SoapConstants.SOAP_12_CONTENT_TYPE_ACTION_PREFIX + \"\\\"urn:loginCms\\\"\"})\n" +
+                "    @POST(\".\")\n" +
+                "    Call<LoginCmsResponse> loginCms(@Body LoginCms request);\n"));
+
+        // Mock verification
+        verify(pullParserProvider);
+    }
+
+    @Test
+    public void testGenerateBindingsOfSpec() throws IOException {
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+
+        replay(pullParserProvider);
+
+        // Test execution
+        WsdlIndex index = new WsdlParser(pullParserProvider)
+                .parseIndex(new ByteArrayInputStream(buildDualWsdl().getBytes()), SoapSpec.V_1_1);
+        ServiceGenerator generator = new ServiceGenerator("ar.gov.afip.wsaa");
+        List<File> files = generator.generate(index, SoapSpec.V_1_1, folder.getRoot());
+        String source = generator.generate(index, SoapSpec.V_1_1, "LoginCmsSoap12Binding", "LoginCmsService");
+
+        // Assertions
+        assertEquals(SoapSpec.V_1_2, index.getBinding("LoginCmsSoap12Binding").getSoapSpec());
+        assertEquals("urn:loginCms", index.getBinding("LoginCmsSoap12Binding").getOperation("loginCms").getSoapAction());
+        assertEquals(Collections.singletonList(new File(folder.getRoot(), "ar/gov/afip/wsaa/LoginCmsSoapBinding.java")),
+                files);
+        assertTrue(source.contains("    @Headers({SoapConstants.SOAP_12_CONTENT_TYPE_ACTION_PREFIX + \"\\\"urn:loginCms\\\"\"})\n"));
+
+        // Mock verification
+        verify(pullParserProvider);
+    }
+
+    @Test
+    public void testSoapAction() throws NoSuchMethodException {
+        assertEquals("\"urn:loginCms\"", RetroSoapFactory.getSoapAction(
+                Soap12Service.class.getMethod("loginCms").getAnnotations()));
+        assertEquals("\"urn:loginCms\"", RetroSoapFactory.getSoapAction(new Request.Builder()
+                .url("http://localhost/")
+                .post(RequestBody.create(MediaType.parse("application/soap+xml;charset=UTF-8;action=\"urn:loginCms\""), ""))
+                .build()));
+    }
+
+    // Same port type with a SOAP 1.2 binding next to the SOAP 1.1 one
+    private static String buildDualWsdl() {
+        int start = WSDL.indexOf("   <wsdl:binding");
+        int end = WSDL.indexOf("</wsdl:binding>") + "</wsdl:binding>\n".length();
+        String binding12 = WSDL.substring(start, end)
+                .replace("LoginCmsSoapBinding", "LoginCmsSoap12Binding")
+                .replace("wsdlsoap:", "wsdlsoap12:")
+                .replace("soapAction=\"\"", "soapAction=\"urn:loginCms\"");
+        return WSDL.substring(0, end)
+                .replace("xmlns:wsdlsoap=", "xmlns:wsdlsoap12=\"http://schemas.xmlsoap.org/wsdl/soap12/\" xmlns:wsdlsoap=")
+                + binding12
+                + WSDL.substring(end);
+    }
+
+    @Test
+    public void testNames() {
+        assertEquals("LoginCmsResponse", ServiceGenerator.typeName("loginCmsResponse"));
+        assertEquals("Get_data", ServiceGenerator.typeName("get-data"));
+        assertEquals("class_", ServiceGenerator.methodName("Class"));
+    }
+
+    interface Soap12Service {
+        @Headers({SoapConstants.SOAP_12_CONTENT_TYPE_ACTION_PREFIX + "\"urn:loginCms\""})
+        @POST(".")
+        Call<Void> loginCms();
+    }
+}
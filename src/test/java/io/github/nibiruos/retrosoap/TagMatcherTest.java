@@ -0,0 +1,26 @@
+package io.github.nibiruos.retrosoap;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TagMatcherTest {
+    private final TagMatcher tag = new TagMatcher("urn:test", "Body");
+
+    @Test
+    public void testMatchesInterned() {
+        // Assertions
+        assertTrue(tag.matches("urn:test", "Body", true));
+        assertFalse(tag.matches("urn:test", "Fault", true));
+        assertFalse(tag.matches("urn:other", "Body", true));
+    }
+
+    @Test
+    public void testMatchesNotInterned() {
+        // Assertions
+        assertTrue(tag.matches(new String("urn:test"), new String("Body"), false));
+        assertFalse(tag.matches(new String("urn:test"), new String("Fault"), false));
+        assertFalse(tag.matches(null, new String("Body"), false));
+    }
+}
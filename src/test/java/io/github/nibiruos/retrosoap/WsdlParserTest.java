@@ -13,7 +13,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
 public class WsdlParserTest {
-    private static String WSDL = "\n" +
+    static String WSDL = "\n" +
             "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
             "<wsdl:definitions targetNamespace=\"https://wsaahomo.afip.gov.ar/ws/services/LoginCms\" xmlns:apachesoap=\"http://xml.apache.org/xml-soap\" xmlns:impl=\"https://wsaahomo.afip.gov.ar/ws/services/LoginCms\" xmlns:intf=\"https://wsaahomo.afip.gov.ar/ws/services/LoginCms\" xmlns:tns1=\"http://wsaa.view.sua.dvadac.desein.afip.gov\" xmlns:wsdl=\"http://schemas.xmlsoap.org/wsdl/\" xmlns:wsdlsoap=\"http://schemas.xmlsoap.org/wsdl/soap/\" xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\">\n" +
             "<!--WSDL created by Apache Axis version: 1.4\n" +
@@ -129,7 +129,7 @@ public class WsdlParserTest {
             "   </wsdl:service>\n" +
             "\n" +
             "</wsdl:definitions>\n";
-    private static String LOCATION = "https://wsaahomo.afip.gov.ar/ws/services/LoginCms";
+    static String LOCATION = "https://wsaahomo.afip.gov.ar/ws/services/LoginCms";
 
 
     private Provider<XmlPullParser> pullParserProvider;
@@ -267,4 +267,68 @@ public class WsdlParserTest {
         // Mock verification
         verify(pullParserProvider);
     }
+
+    @Test
+    public void testParseIndex() {
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+
+        replay(pullParserProvider);
+
+        // Test execution
+        WsdlIndex index = wsdlParser.parseIndex(new ByteArrayInputStream(WSDL.getBytes()),
+                SoapSpec.V_1_1);
+
+        // Assertions
+        assertEquals(1, index.getServices().size());
+        WsdlIndex.Port port = index.getService("LoginCMSService")
+                .getPort("LoginCms");
+        assertEquals(LOCATION, port.getAddress());
+        assertEquals("LoginCmsSoapBinding", port.getBinding());
+        WsdlIndex.Binding binding = index.getBinding(port.getBinding());
+        assertEquals("LoginCMS", binding.getPortType());
+        assertEquals(SoapSpec.V_1_1, binding.getSoapSpec());
+        assertEquals("", binding.getOperation("loginCms").getSoapAction());
+        WsdlIndex.PortTypeOperation operation = index.getPortType(binding.getPortType())
+                .getOperation("loginCms");
+        assertEquals("loginCmsRequest", operation.getInput());
+        assertEquals("loginCmsResponse", operation.getOutput());
+        assertEquals("loginCmsResponse", index.getMessage(operation.getOutput()).getElement());
+        assertEquals(LOCATION, index.findServicePortUrl(null, "LoginCms"));
+        assertNull(index.findServicePortUrl("LoginCMSService", "LoginCmsx"));
+        assertNull(index.getService("LoginCMSServicex"));
+
+        // Mock verification
+        verify(pullParserProvider);
+    }
+
+    @Test
+    public void testFindServicePortUrlSkipsOtherSections() {
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+
+        replay(pullParserProvider);
+
+        // Test execution
+        String url = wsdlParser.findServicePortUrl(new ByteArrayInputStream(WSDL
+                        .replace(" <wsdl:types>\n",
+                                " <wsdl:types>\n" +
+                                        "  <wsdl:service name=\"LoginCMSService\">\n" +
+                                        "   <wsdl:port name=\"LoginCms\">\n" +
+                                        "    <wsdlsoap:address location=\"http://localhost/types\"/>\n" +
+                                        "   </wsdl:port>\n" +
+                                        "  </wsdl:service>\n")
+                        .getBytes()),
+                SoapSpec.V_1_1,
+                null,
+                null);
+
+        // Assertions
+        assertEquals(LOCATION, url);
+
+        // Mock verification
+        verify(pullParserProvider);
+    }
 }
@@ -0,0 +1,262 @@
+package io.github.nibiruos.retrosoap;
+
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.junit.Before;
+import org.junit.Test;
+import org.simpleframework.xml.Attribute;
+import org.simpleframework.xml.Default;
+import org.simpleframework.xml.Element;
+import org.simpleframework.xml.ElementList;
+import org.simpleframework.xml.Namespace;
+import org.simpleframework.xml.Path;
+import org.simpleframework.xml.Root;
+import org.simpleframework.xml.Text;
+import org.xmlpull.mxp1_serializer.MXSerializer;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlSerializer;
+import retrofit2.Converter;
+
+import javax.inject.Provider;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.github.nibiruos.retrosoap.Utils.XML_MEDIA_TYPE;
+import static io.github.nibiruos.retrosoap.Utils.buildXmlPullParser;
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class XmlCodecFactoryTest {
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    private Provider<XmlSerializer> serializerProvider;
+    private Provider<XmlPullParser> pullParserProvider;
+
+    @Before
+    public void setup() {
+        serializerProvider = createMock(Provider.class);
+        pullParserProvider = createMock(Provider.class);
+    }
+
+    @Test
+    public void testRequestBodyConverter() throws IOException {
+        // Expectations setup
+        expect(serializerProvider.get())
+                .andReturn(new MXSerializer());
+
+        replay(serializerProvider);
+        replay(pullParserProvider);
+
+        // Test execution
+        XmlCodecFactory factory = XmlCodecFactory.builder(serializerProvider, pullParserProvider)
+                .add(String.class, new ResponseConverterTest.DataCodec())
+                .build();
+        RequestBody body = ((Converter<String, RequestBody>) factory.requestBodyConverter(String.class,
+                NO_ANNOTATIONS,
+                NO_ANNOTATIONS,
+                null))
+                .convert("Patoruzu");
+
+        // Assertions
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        assertEquals("<data>Patoruzu</data>", buffer.readUtf8());
+        assertNull(factory.requestBodyConverter(Integer.class, NO_ANNOTATIONS, NO_ANNOTATIONS, null));
+
+        // Mock verification
+        verify(serializerProvider);
+        verify(pullParserProvider);
+    }
+
+    @Test
+    public void testResponseBodyConverter() throws IOException {
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+
+        replay(serializerProvider);
+        replay(pullParserProvider);
+
+        // Test execution
+        XmlCodecFactory factory = XmlCodecFactory.builder(serializerProvider, pullParserProvider)
+                .add(String.class, new ResponseConverterTest.DataCodec())
+                .build();
+        Object body = factory.responseBodyConverter(String.class, NO_ANNOTATIONS, null)
+                .convert(ResponseBody.create(XML_MEDIA_TYPE, "<data>Patoruzu</data>"));
+
+        // Assertions
+        assertEquals("Patoruzu", body);
+
+        // Mock verification
+        verify(serializerProvider);
+        verify(pullParserProvider);
+    }
+
+    @Test
+    public void testAnnotatedClass() throws IOException {
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+        expect(serializerProvider.get())
+                .andReturn(new MXSerializer());
+
+        replay(serializerProvider);
+        replay(pullParserProvider);
+
+        // Test execution
+        XmlCodecFactory factory = XmlCodecFactory.builder(serializerProvider, pullParserProvider)
+                .build();
+        Rates rates = (Rates) factory.responseBodyConverter(Rates.class, NO_ANNOTATIONS, null)
+                .convert(ResponseBody.create(XML_MEDIA_TYPE,
+                        "<ns1:rates xmlns:ns1=\"urn:rates\" base=\"USD\">" +
+                                "<date>2018-10-18</date>" +
+                                "<ignored><rate>0</rate></ignored>" +
+                                "<rate currency=\"EUR\">0.87</rate>" +
+                                "<rate currency=\"ARS\">37.5</rate>" +
+                                "<source><type>BANK</type><name>Central &amp; Co</name></source>" +
+                                "</ns1:rates>"));
+        RequestBody body = ((Converter<Rates, RequestBody>) factory.requestBodyConverter(Rates.class,
+                NO_ANNOTATIONS,
+                NO_ANNOTATIONS,
+                null))
+                .convert(rates);
+
+        // Assertions
+        assertEquals("USD", rates.base);
+        assertEquals("2018-10-18", rates.date);
+        assertEquals(2, rates.rates.size());
+        assertEquals("EUR", rates.rates.get(0).currency);
+        assertEquals(new BigDecimal("37.5"), rates.rates.get(1).value);
+        assertEquals(SourceType.BANK, rates.source.type);
+        assertEquals("Central & Co", rates.source.name);
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        assertEquals("<ns1:rates base=\"USD\" xmlns:ns1=\"urn:rates\">" +
+                        "<date>2018-10-18</date>" +
+                        "<rate currency=\"EUR\">0.87</rate>" +
+                        "<rate currency=\"ARS\">37.5</rate>" +
+                        "<source><type>BANK</type><name>Central &amp; Co</name></source>" +
+                        "</ns1:rates>",
+                buffer.readUtf8());
+
+        // Mock verification
+        verify(serializerProvider);
+        verify(pullParserProvider);
+    }
+
+    @Test
+    public void testAnnotatedClassNamespaces() throws IOException {
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+
+        replay(serializerProvider);
+        replay(pullParserProvider);
+
+        // Test execution
+        XmlCodecFactory factory = XmlCodecFactory.builder(serializerProvider, pullParserProvider)
+                .build();
+        Quote quote = (Quote) factory.responseBodyConverter(Quote.class, NO_ANNOTATIONS, null)
+                .convert(ResponseBody.create(XML_MEDIA_TYPE,
+                        "<q:quote xmlns:q=\"urn:quotes\" xmlns:r=\"urn:rates\" xmlns:x=\"urn:other\">" +
+                                "<q:symbol>ARS</q:symbol>" +
+                                "<x:symbol>XXX</x:symbol>" +
+                                "<r:value>37.5</r:value>" +
+                                "<x:value>0</x:value>" +
+                                "</q:quote>"));
+
+        // Assertions
+        assertEquals("ARS", quote.symbol);
+        assertEquals(new BigDecimal("37.5"), quote.value);
+
+        // Mock verification
+        verify(serializerProvider);
+        verify(pullParserProvider);
+    }
+
+    @Test
+    public void testAnnotatedClassUnsupported() {
+        for (Class<?> type : Arrays.asList(Defaults.class, Paths.class, Accessors.class)) {
+            try {
+                AnnotatedCodec.of(type);
+                fail(type.getName());
+            } catch (IllegalArgumentException e) {
+                // Assertions
+                assertTrue(e.getMessage(), e.getMessage().startsWith("Unsupported annotation @"));
+            }
+        }
+    }
+
+    @Root(strict = false)
+    @Namespace(reference = "urn:quotes", prefix = "q")
+    static class Quote {
+        @Element
+        private String symbol;
+        @Element
+        @Namespace(reference = "urn:rates")
+        private BigDecimal value;
+    }
+
+    @Root(strict = false)
+    @Default
+    static class Defaults {
+        private String name;
+    }
+
+    @Root(strict = false)
+    static class Paths {
+        @Element
+        @Path("details")
+        private String name;
+    }
+
+    @Root(strict = false)
+    static class Accessors {
+        private String name;
+
+        @Element
+        public String getName() {
+            return name;
+        }
+    }
+
+    @Root(strict = false)
+    @Namespace(reference = "urn:rates", prefix = "ns1")
+    static class Rates {
+        @Attribute
+        private String base;
+        @Element
+        private String date;
+        @ElementList(inline = true)
+        private List<Rate> rates;
+        @Element(required = false)
+        private Source source;
+    }
+
+    @Root
+    static class Rate {
+        @Attribute
+        private String currency;
+        @Text
+        private BigDecimal value;
+    }
+
+    @Root
+    static class Source {
+        @Element
+        private SourceType type;
+        @Element
+        private String name;
+    }
+
+    enum SourceType {
+        BANK
+    }
+}
@@ -0,0 +1,78 @@
+package io.github.nibiruos.retrosoap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParser;
+
+import javax.inject.Provider;
+
+import static io.github.nibiruos.retrosoap.Utils.buildXmlPullParser;
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class XmlPoolTest {
+    private Provider<XmlPullParser> pullParserProvider;
+
+    @Before
+    public void setup() {
+        pullParserProvider = createMock(Provider.class);
+    }
+
+    @Test
+    public void testReuse() {
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+
+        replay(pullParserProvider);
+
+        // Test execution
+        XmlPool<XmlPullParser> pool = XmlPool.pullParsers(pullParserProvider, 1);
+        XmlPullParser first = pool.acquire();
+        XmlPullParser second = pool.acquire();
+        pool.release(first);
+        pool.release(second);
+        XmlPullParser third = pool.acquire();
+
+        // Assertions
+        assertNotSame(first, second);
+        assertSame(first, third);
+        PoolStatistics statistics = pool.getStatistics();
+        assertEquals(1, statistics.getHits());
+        assertEquals(2, statistics.getMisses());
+        assertEquals(1, statistics.getDiscards());
+        assertEquals(0, statistics.getIdle());
+
+        // Mock verification
+        verify(pullParserProvider);
+    }
+
+    @Test
+    public void testNoPooling() {
+        // Expectations setup
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+        expect(pullParserProvider.get())
+                .andReturn(buildXmlPullParser());
+
+        replay(pullParserProvider);
+
+        // Test execution
+        XmlPool<XmlPullParser> pool = XmlPool.pullParsers(pullParserProvider, 0);
+        XmlPullParser first = pool.acquire();
+        pool.release(first);
+        XmlPullParser second = pool.acquire();
+
+        // Assertions
+        assertNotSame(first, second);
+        assertEquals(0, pool.getStatistics().getHits());
+        assertEquals(2, pool.getStatistics().getMisses());
+
+        // Mock verification
+        verify(pullParserProvider);
+    }
+}